@@ -3,6 +3,7 @@ package com.billooms.clclass;
 import java.awt.Color;
 import java.text.NumberFormat;
 import java.text.ParseException;
+import java.util.List;
 import org.w3c.dom.Element;
 
 /**
@@ -90,7 +91,10 @@ public class CLUtilities {
       return def;
     }
     try {
-      Number num = NF.parse(element.getAttribute(name));
+      Number num;
+      synchronized (NF) {   // NumberFormat is not thread-safe and files may be parsed in parallel
+        num = NF.parse(element.getAttribute(name));
+      }
       return num.doubleValue();
     } catch (ParseException ex) {
       return def;
@@ -148,4 +152,48 @@ public class CLUtilities {
     }
     return def;
   }
+
+  /**
+   * Utility to find the rotational symmetry of something made of repeats
+   * around a circle, such as the index positions of a mask.
+   *
+   * @param variants what each repeat looks like, in order around the circle
+   * (compared with equals)
+   * @return the largest number of times that the whole set repeats exactly
+   * (1 if there is no symmetry)
+   */
+  public static int symmetry(List<?> variants) {
+    int n = variants.size();
+    for (int fold = n; fold > 1; fold--) {
+      if (n % fold == 0) {
+        int shift = n / fold;
+        boolean same = true;
+        for (int i = 0; same && (i < n); i++) {
+          same = variants.get(i).equals(variants.get((i + shift) % n));
+        }
+        if (same) {
+          return fold;
+        }
+      }
+    }
+    return 1;
+  }
+
+  /**
+   * Utility to find the greatest common divisor of two numbers.
+   *
+   * @param a first number
+   * @param b second number
+   * @return greatest common divisor (the other number if one of them is 0)
+   */
+  public static int gcd(int a, int b) {
+    a = Math.abs(a);
+    b = Math.abs(b);
+    while (b != 0) {
+      int t = a % b;
+      a = b;
+      b = t;
+    }
+    return a;
+  }
 }
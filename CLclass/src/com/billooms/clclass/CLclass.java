@@ -1,9 +1,15 @@
 package com.billooms.clclass;
 
+import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeListenerProxy;
 import java.beans.PropertyChangeSupport;
-import java.io.PrintWriter;
+import java.io.Writer;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * This defines a class that is always defined by an XML DOM Element.
@@ -11,6 +17,19 @@ import java.text.DecimalFormat;
  * All CLclass objects should have a constructor that takes a DOM Element.
  * CLclass requires a means of writing the object information to an XML file.
  *
+ * Every CLclass has a content hash that depends only on what it contains, so
+ * it can be used as a cache key and it comes back to the same value when a
+ * property is set back to an earlier value. The hash is kept until the object
+ * fires a propertyChange, which clears it along with the hash of every
+ * CLclass listening to it (and so on up), so only the hashes along the
+ * changed path are recomputed.
+ *
+ * Changes that involve many steps can be wrapped in beginChanges() and
+ * commitChanges(). In between, the propertyChanges fired by the object are
+ * held and coalesced (generally one per property name) and then fired once on
+ * commit, so listeners recompute once per user action rather than once per
+ * step.
+ *
  * @author Bill Ooms. Copyright 2015 Studio of Bill Ooms. All rights reserved.
  * 
  * This program is free software: you can redistribute it and/or modify
@@ -37,36 +56,201 @@ public abstract class CLclass implements PropertyChangeListener {
   /** Formatter for four digits after the decimal place. */
   protected final static DecimalFormat F4 = new DecimalFormat("0.0000");
 
-  /** Indentation is shared by all classes and used for formatting writeXML */
-  public static String indent = "";
+  /** FNV-1a 64-bit offset basis. */
+  private final static long FNV_BASIS = 0xcbf29ce484222325L;
+  /** FNV-1a 64-bit prime. */
+  private final static long FNV_PRIME = 0x100000001b3L;
+
+  /**
+   * All CLclass objects can fire propertyChanges (which clears the content
+   * hash, and which are held until commitChanges() during a change).
+   */
+  protected final PropertyChangeSupport pcs = new PropertyChangeSupport(this) {
+    @Override
+    public void firePropertyChange(PropertyChangeEvent evt) {
+      invalidateHash();
+      if (changeDepth > 0) {
+        holdEvent(evt);
+        return;
+      }
+      super.firePropertyChange(evt);
+    }
+  };
+
+  /** Number of nested beginChanges() that haven't been committed. */
+  private int changeDepth = 0;
+  /** Events held until commitChanges(), in firing order. */
+  private final List<PropertyChangeEvent> heldEvents = new ArrayList<>();
+  /** Where the merged event for each property name is in heldEvents. */
+  private final Map<String, Integer> heldIndex = new HashMap<>();
+
+  /** Content hash (0 means it has to be computed). */
+  private volatile long contentHash = 0;
+  /** True while clearing hashes (stops a loop of listeners). */
+  private boolean invalidating = false;
+
+  /**
+   * Write the data to an xml file.
+   *
+   * @param out XMLWriter which carries the indentation
+   */
+  public abstract void writeXML(XMLWriter out);
+
+  /**
+   * Begin a change that involves many steps. The propertyChanges fired until
+   * the matching commitChanges() are held and then fired once. Calls can be
+   * nested, and should be made on the thread that edits the model.
+   */
+  public void beginChanges() {
+    changeDepth++;
+  }
 
-  /** All CLclass objects can fire propertyChanges. */
-  protected final PropertyChangeSupport pcs = new PropertyChangeSupport(this);
+  /**
+   * Finish a change started with beginChanges(). When the outermost change is
+   * committed, the held propertyChanges are fired: one per property name. A
+   * property that changed once keeps its old and new values. A property that
+   * changed more than once is fired with a null old value and the last new
+   * value, since the steps may have been for different objects (like the
+   * CutPoints relayed by a manager) and must always be announced. Events with
+   * a null new value (like deletes, where the old value says what was deleted)
+   * are all fired, in order.
+   */
+  public void commitChanges() {
+    if (changeDepth == 0) {
+      throw new IllegalStateException("commitChanges() without beginChanges()");
+    }
+    if (--changeDepth > 0) {
+      return;
+    }
+    List<PropertyChangeEvent> events = new ArrayList<>(heldEvents);
+    heldEvents.clear();
+    heldIndex.clear();
+    events.stream().forEach((evt) -> {
+      pcs.firePropertyChange(evt);
+    });
+  }
 
   /**
-   * Increase indentation by 2 spaces.
+   * Is a change in progress (between beginChanges() and commitChanges())?
+   *
+   * @return true: change in progress
    */
-  public static synchronized void indentMore() {
-    indent += "  ";
+  public boolean isChanging() {
+    return changeDepth > 0;
   }
 
   /**
-   * Decrease indentation by 2 spaces.
+   * Hold an event during a change, merging it with an earlier event for the
+   * same property. A merged event has a null old value so that it is always
+   * fired.
+   *
+   * @param evt event
    */
-  public static synchronized void indentLess() {
-    if (indent.length() >= 2) {
-      indent = indent.substring(2);
+  private void holdEvent(PropertyChangeEvent evt) {
+    if (evt.getNewValue() == null) {
+      heldEvents.add(evt);    // the old value says what changed, so keep each one
+      return;
+    }
+    String name = (evt.getPropertyName() == null) ? "" : evt.getPropertyName();
+    Integer index = heldIndex.get(name);
+    if (index == null) {
+      heldIndex.put(name, heldEvents.size());
+      heldEvents.add(evt);
     } else {
-      indent = "";
+      heldEvents.set(index, new PropertyChangeEvent(evt.getSource(), evt.getPropertyName(),
+          null, evt.getNewValue()));
     }
   }
 
   /**
-   * Write the data to an xml file.
+   * Get the content hash of this object. This is computed only when something
+   * has changed since the last time.
    *
-   * @param out output stream for writing
+   * @return content hash (never 0)
    */
-  public abstract void writeXML(PrintWriter out);
+  public long getContentHash() {
+    long hash = contentHash;
+    if (hash == 0) {
+      hash = computeHash();
+      if (hash == 0) {
+        hash = 1;     // 0 is reserved for "not computed"
+      }
+      contentHash = hash;
+    }
+    return hash;
+  }
+
+  /**
+   * Compute the content hash. The default hashes the xml of the object, with
+   * numbers written exactly (not rounded as they are in the file).
+   * Objects that hold other CLclass objects can override this to combine the
+   * hashes of the objects they hold, so that only the changed ones are
+   * recomputed.
+   *
+   * @return content hash
+   */
+  protected long computeHash() {
+    HashWriter hasher = new HashWriter();
+    try (XMLWriter out = new XMLWriter(hasher, true)) {
+      writeXML(out);
+    }
+    return hasher.hash;
+  }
+
+  /**
+   * Clear the content hash of this object and of every CLclass that is
+   * listening to it. This is called whenever this object fires a
+   * propertyChange. Call it directly if the content is changed without firing
+   * a propertyChange.
+   */
+  protected void invalidateHash() {
+    contentHash = 0;
+    if (invalidating) {
+      return;
+    }
+    invalidating = true;
+    try {
+      for (PropertyChangeListener listener : pcs.getPropertyChangeListeners()) {
+        if (listener instanceof PropertyChangeListenerProxy) {
+          listener = ((PropertyChangeListenerProxy) listener).getListener();
+        }
+        if (listener instanceof CLclass) {
+          ((CLclass) listener).invalidateHash();
+        }
+      }
+    } finally {
+      invalidating = false;
+    }
+  }
+
+  /**
+   * Combine a hash with another value.
+   *
+   * @param hash hash so far
+   * @param value value to add to the hash
+   * @return new hash
+   */
+  public static long combineHash(long hash, long value) {
+    for (int i = 0; i < 8; i++) {
+      hash = (hash ^ (value & 0xff)) * FNV_PRIME;
+      value >>>= 8;
+    }
+    return hash;
+  }
+
+  /**
+   * Hash a string.
+   *
+   * @param str string
+   * @return hash
+   */
+  protected static long hashString(String str) {
+    long hash = FNV_BASIS;
+    for (int i = 0; i < str.length(); i++) {
+      hash = (hash ^ str.charAt(i)) * FNV_PRIME;
+    }
+    return hash;
+  }
 
   /**
    * Add the given listener to this object.
@@ -86,4 +270,43 @@ public abstract class CLclass implements PropertyChangeListener {
     pcs.removePropertyChangeListener(listener);
   }
 
+  /**
+   * Writer that keeps an FNV-1a hash of the characters written to it.
+   */
+  private static class HashWriter extends Writer {
+
+    private long hash = FNV_BASIS;
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+      for (int i = off; i < off + len; i++) {
+        add(cbuf[i]);
+      }
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+      for (int i = off; i < off + len; i++) {
+        add(str.charAt(i));
+      }
+    }
+
+    /** Add a character, skipping '\r' so the hash is the same on every platform. */
+    private void add(char c) {
+      if (c != '\r') {
+        hash = (hash ^ c) * FNV_PRIME;
+      }
+    }
+
+    @Override
+    public void flush() {
+      // nothing to flush
+    }
+
+    @Override
+    public void close() {
+      // nothing to close
+    }
+  }
+
 }
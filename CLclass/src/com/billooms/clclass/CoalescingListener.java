@@ -0,0 +1,110 @@
+package com.billooms.clclass;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.Timer;
+
+/**
+ * A PropertyChangeListener that passes events on to another listener after a
+ * short delay, coalescing a burst of events into one.
+ *
+ * Events are held until no new event has arrived for the given delay, and
+ * are then passed on (on the event dispatch thread) either one per source and
+ * property name, or only the latest one for listeners that just need to know
+ * that something changed. Events whose property name contains "Drag" are
+ * passed on right away so that dragging still updates smoothly.
+ *
+ * Use it in place of the listener itself when adding and removing:
+ * <pre>
+ *   listener = new CoalescingListener(this, 50, true);
+ *   model.addPropertyChangeListener(listener);
+ * </pre>
+ *
+ * @author Bill Ooms. Copyright 2015 Studio of Bill Ooms. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class CoalescingListener implements PropertyChangeListener {
+
+  /** Listener that the events are passed on to. */
+  private final PropertyChangeListener target;
+  /** True: pass on only the latest event. */
+  private final boolean latestOnly;
+  /** Fires when no new event has arrived for the delay. */
+  private final Timer timer;
+  /** Events waiting to be passed on, keyed by source and property name. */
+  private final Map<List<Object>, PropertyChangeEvent> pending = new LinkedHashMap<>();
+
+  /**
+   * Construct a new CoalescingListener.
+   *
+   * @param target listener that the events are passed on to
+   * @param delay milliseconds with no new events before passing them on
+   * @param latestOnly true: pass on only the latest event; false: pass on the
+   * latest event for each source and property name
+   */
+  public CoalescingListener(PropertyChangeListener target, int delay, boolean latestOnly) {
+    this.target = target;
+    this.latestOnly = latestOnly;
+    this.timer = new Timer(delay, (e) -> flush());
+    this.timer.setRepeats(false);
+  }
+
+  @Override
+  public void propertyChange(PropertyChangeEvent evt) {
+    if ((evt.getPropertyName() != null) && evt.getPropertyName().contains("Drag")) {
+      target.propertyChange(evt);     // keep dragging smooth
+      return;
+    }
+    synchronized (pending) {
+      if (latestOnly) {
+        pending.clear();
+      }
+      List<Object> key = Arrays.asList(evt.getSource(), evt.getPropertyName());
+      pending.remove(key);    // so that it moves to the end
+      pending.put(key, evt);
+    }
+    timer.restart();
+  }
+
+  /**
+   * Pass on any held events now.
+   */
+  public void flush() {
+    timer.stop();
+    List<PropertyChangeEvent> events;
+    synchronized (pending) {
+      events = new ArrayList<>(pending.values());
+      pending.clear();
+    }
+    events.stream().forEach((evt) -> {
+      target.propertyChange(evt);
+    });
+  }
+
+  /**
+   * Drop any held events without passing them on.
+   */
+  public void cancel() {
+    timer.stop();
+    synchronized (pending) {
+      pending.clear();
+    }
+  }
+}
@@ -0,0 +1,216 @@
+package com.billooms.clclass;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.swing.SwingUtilities;
+
+/**
+ * A bounded cache of small icon-like images (like the images of patterns and
+ * profiles), with the least recently used images dropped first.
+ *
+ * Each image is saved by a key that holds everything the image depends on
+ * (generally the name and content hash of the object, a version of the
+ * object, and any parameters). Keys should not hold the objects themselves,
+ * so that the cache doesn't keep them from being garbage collected.
+ *
+ * A painter is only made when an image isn't saved. It is made on the calling
+ * thread, so it can copy whatever it needs from an object that is edited
+ * there, and only the painter runs on the background thread.
+ * Images are made at the resolution of the screen they are painted on, so
+ * they stay sharp on scaled displays.
+ *
+ * An image that isn't saved yet can be made right away (get) or on a
+ * background thread (getLater), in which case it is announced on the event
+ * dispatch thread when it is ready.
+ *
+ * @author Bill Ooms. Copyright 2015 Studio of Bill Ooms. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class ThumbnailCache {
+
+  /** All ThumbnailCaches share one background thread for making images. */
+  private final static ExecutorService IMAGE_MAKER = Executors.newSingleThreadExecutor((r) -> {
+    Thread t = new Thread(r, "COrnLathe thumbnails");
+    t.setDaemon(true);
+    return t;
+  });
+
+  /** Saved images (least recently used first). */
+  private final Map<List<Object>, BufferedImage> images;
+  /** Keys of images waiting to be made in the background. */
+  private final Set<List<Object>> pending = Collections.synchronizedSet(new HashSet<>());
+
+  /**
+   * Construct a new ThumbnailCache.
+   *
+   * @param maxSize maximum number of images to save
+   */
+  public ThumbnailCache(int maxSize) {
+    images = Collections.synchronizedMap(new LinkedHashMap<List<Object>, BufferedImage>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<List<Object>, BufferedImage> eldest) {
+        return size() > maxSize;
+      }
+    });
+  }
+
+  /**
+   * Get an image, making it right away if it isn't saved.
+   *
+   * @param key everything the image depends on
+   * @param width width of the image when painted
+   * @param height height of the image when painted
+   * @param scale pixels per unit of width and height (1.0 except on scaled
+   * displays)
+   * @param painter makes a painter that paints the image in a width x height
+   * area
+   * @return image with (width * scale) x (height * scale) pixels
+   */
+  public BufferedImage get(List<Object> key, int width, int height, double scale,
+      Supplier<Consumer<Graphics2D>> painter) {
+    List<Object> fullKey = fullKey(key, width, height, scale);
+    BufferedImage image = images.get(fullKey);
+    if (image == null) {
+      image = makeImage(width, height, scale, painter.get());
+      images.put(fullKey, image);
+    }
+    return image;
+  }
+
+  /**
+   * Get an image if it is saved. If it isn't, the image is made in the
+   * background and whenReady is run on the event dispatch thread when it is
+   * ready.
+   *
+   * @param key everything the image depends on
+   * @param width width of the image when painted
+   * @param height height of the image when painted
+   * @param scale pixels per unit of width and height (1.0 except on scaled
+   * displays)
+   * @param painter makes a painter (on the calling thread) that paints the
+   * image in a width x height area (on the background thread)
+   * @param whenReady run when the image is ready (can be null)
+   * @return image with (width * scale) x (height * scale) pixels, or null if
+   * it isn't ready yet
+   */
+  public BufferedImage getLater(List<Object> key, int width, int height, double scale,
+      Supplier<Consumer<Graphics2D>> painter, Runnable whenReady) {
+    List<Object> fullKey = fullKey(key, width, height, scale);
+    BufferedImage image = images.get(fullKey);
+    if ((image == null) && pending.add(fullKey)) {
+      Consumer<Graphics2D> paintNow;
+      try {
+        paintNow = painter.get();
+      } catch (RuntimeException ex) {
+        pending.remove(fullKey);
+        throw ex;
+      }
+      IMAGE_MAKER.execute(() -> {
+        try {
+          images.put(fullKey, makeImage(width, height, scale, paintNow));
+        } finally {
+          pending.remove(fullKey);
+        }
+        if (whenReady != null) {
+          SwingUtilities.invokeLater(whenReady);
+        }
+      });
+    }
+    return image;
+  }
+
+  /**
+   * Get the scale of the screen for the given graphics (how many pixels there
+   * are for each unit painted).
+   *
+   * @param g Graphics
+   * @return scale (1.0 except on scaled displays)
+   */
+  public static double getScale(Graphics g) {
+    if (g instanceof Graphics2D) {
+      AffineTransform device = ((Graphics2D) g).getTransform();
+      return Math.max(Math.abs(device.getScaleX()), 1.0);
+    }
+    return 1.0;
+  }
+
+  /**
+   * Get the scale of the given screen (how many pixels there are for each unit
+   * painted).
+   *
+   * @param gc GraphicsConfiguration of the screen (can be null)
+   * @return scale (1.0 except on scaled displays)
+   */
+  public static double getScale(GraphicsConfiguration gc) {
+    if (gc == null) {
+      return 1.0;
+    }
+    return Math.max(Math.abs(gc.getDefaultTransform().getScaleX()), 1.0);
+  }
+
+  /**
+   * Add the size of the image to a key.
+   *
+   * @param key everything the image depends on
+   * @param width width of the image when painted
+   * @param height height of the image when painted
+   * @param scale pixels per unit of width and height
+   * @return key for the image
+   */
+  private static List<Object> fullKey(List<Object> key, int width, int height, double scale) {
+    List<Object> fullKey = new ArrayList<>(key);
+    fullKey.add(width);
+    fullKey.add(height);
+    fullKey.add(scale);
+    return fullKey;
+  }
+
+  /**
+   * Make an image.
+   *
+   * @param width width of the image when painted
+   * @param height height of the image when painted
+   * @param scale pixels per unit of width and height
+   * @param painter paints the image in a width x height area
+   * @return image
+   */
+  private static BufferedImage makeImage(int width, int height, double scale, Consumer<Graphics2D> painter) {
+    BufferedImage image = new BufferedImage((int) Math.ceil(width * scale), (int) Math.ceil(height * scale),
+        BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g2d = image.createGraphics();
+    if (scale != 1.0) {
+      g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+      g2d.scale(scale, scale);
+    }
+    painter.accept(g2d);
+    g2d.dispose();
+    return image;
+  }
+}
@@ -0,0 +1,174 @@
+package com.billooms.clclass;
+
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.text.DecimalFormat;
+import java.text.FieldPosition;
+import java.util.ArrayList;
+
+/**
+ * A PrintWriter for writing xml files which carries its own indentation and
+ * number formatters.
+ *
+ * Nothing is shared between XMLWriters, so several files can be written at the
+ * same time from different threads. An XMLWriter itself should only be used by
+ * one thread at a time. Indentation strings are made once per level and
+ * numbers are formatted into a reused buffer.
+ *
+ * @author Bill Ooms. Copyright 2015 Studio of Bill Ooms. All rights reserved.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class XMLWriter extends PrintWriter {
+
+  /** Indentation added for each level. */
+  private final static String INDENT = "  ";
+
+  /** Indentation string for each level (made as needed). */
+  private final ArrayList<String> indents = new ArrayList<>();
+  /** Current indentation level. */
+  private int level = 0;
+
+  /** Formatter for single digit after the decimal place. */
+  private final DecimalFormat f1 = new DecimalFormat("0.0");
+  /** Formatter for double digit after the decimal place. */
+  private final DecimalFormat f2 = new DecimalFormat("0.00");
+  /** Formatter for three digits after the decimal place. */
+  private final DecimalFormat f3 = new DecimalFormat("0.000");
+  /** Formatter for four digits after the decimal place. */
+  private final DecimalFormat f4 = new DecimalFormat("0.0000");
+  /** Reused buffer for formatting numbers. */
+  private final StringBuffer numBuf = new StringBuffer(16);
+  /** Reused field position for formatting numbers. */
+  private final FieldPosition numPos = new FieldPosition(0);
+  /** Flag indicating that numbers are written with every digit (for hashing). */
+  private final boolean exact;
+
+  /**
+   * Construct a new buffered XMLWriter using the default character encoding.
+   *
+   * @param out output stream
+   */
+  public XMLWriter(OutputStream out) {
+    super(out);     // PrintWriter buffers an OutputStream
+    this.exact = false;
+    indents.add("");
+  }
+
+  /**
+   * Construct a new XMLWriter.
+   *
+   * @param out writer
+   */
+  public XMLWriter(Writer out) {
+    this(out, false);
+  }
+
+  /**
+   * Construct a new XMLWriter.
+   *
+   * @param out writer
+   * @param exact true: write numbers with every digit instead of rounding
+   * them (for content hashes, so that any change to a number changes the hash)
+   */
+  public XMLWriter(Writer out, boolean exact) {
+    super(out);
+    this.exact = exact;
+    indents.add("");
+  }
+
+  /**
+   * Get the current indentation.
+   *
+   * @return indentation string
+   */
+  public String indent() {
+    return indents.get(level);
+  }
+
+  /**
+   * Increase indentation by 2 spaces.
+   */
+  public void indentMore() {
+    level++;
+    if (level == indents.size()) {
+      indents.add(indents.get(level - 1) + INDENT);
+    }
+  }
+
+  /**
+   * Decrease indentation by 2 spaces.
+   */
+  public void indentLess() {
+    if (level > 0) {
+      level--;
+    }
+  }
+
+  /**
+   * Format a number with a single digit after the decimal place.
+   *
+   * @param value number
+   * @return formatted string
+   */
+  public String f1(double value) {
+    return format(f1, value);
+  }
+
+  /**
+   * Format a number with two digits after the decimal place.
+   *
+   * @param value number
+   * @return formatted string
+   */
+  public String f2(double value) {
+    return format(f2, value);
+  }
+
+  /**
+   * Format a number with three digits after the decimal place.
+   *
+   * @param value number
+   * @return formatted string
+   */
+  public String f3(double value) {
+    return format(f3, value);
+  }
+
+  /**
+   * Format a number with four digits after the decimal place.
+   *
+   * @param value number
+   * @return formatted string
+   */
+  public String f4(double value) {
+    return format(f4, value);
+  }
+
+  /**
+   * Format a number into the reused buffer.
+   *
+   * @param format formatter
+   * @param value number
+   * @return formatted string
+   */
+  private String format(DecimalFormat format, double value) {
+    if (exact) {
+      return Double.toString(value);    // every value has its own string
+    }
+    numBuf.setLength(0);
+    return format.format(value, numBuf, numPos).toString();
+  }
+}
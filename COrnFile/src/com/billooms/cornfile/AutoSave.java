@@ -0,0 +1,380 @@
+package com.billooms.cornfile;
+
+import com.billooms.clclass.XMLWriter;
+import java.beans.PropertyChangeEvent;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.swing.SwingUtilities;
+import org.openide.util.Exceptions;
+
+/**
+ * Background autosave for a COrnLathe file.
+ *
+ * Model changes are debounced: a snapshot is saved once there have been no
+ * changes for DELAY_MILLIS (or at least every MAX_DELAY_MILLIS while changes
+ * keep coming). The snapshot is written in memory on a background thread, so
+ * a big design doesn't hold up the event dispatch thread (where the model is
+ * edited). It is only kept if the model didn't change while it was being
+ * written; if the model keeps changing, the snapshot is written on the event
+ * dispatch thread instead. It is then written to disk on the background
+ * thread: first to a temporary file which is forced to disk, then atomically
+ * renamed over the autosave file. So the autosave file is always either the
+ * previous snapshot or the new one.
+ *
+ * Every change is also appended to a journal which is restarted with each
+ * snapshot. After a crash, the autosave file can be loaded in place of the
+ * original file, and the journal lists the edits made after that snapshot.
+ *
+ * The autosave and journal files are deleted when the file is saved or the
+ * changes are discarded.
+ *
+ * @author Bill Ooms. Copyright 2015 Studio of Bill Ooms. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class AutoSave {
+
+  /** Save this long after the last change. */
+  public final static long DELAY_MILLIS = 5000;
+  /** Save at least this often while changes keep coming. */
+  public final static long MAX_DELAY_MILLIS = 30000;
+  /** Extension added to the file name for the autosave file. */
+  public final static String AUTOSAVE_EXT = ".autosave";
+  /** Extension added to the file name for the journal. */
+  public final static String JOURNAL_EXT = ".journal";
+  /** Extension added to the autosave file name while it is being written. */
+  private final static String TEMP_EXT = ".tmp";
+  /** First characters of a journal line that marks a snapshot. */
+  private final static String SNAPSHOT = "# snapshot ";
+  /** Longest value written to the journal. */
+  private final static int MAX_VALUE_LENGTH = 80;
+  /** Number of tries to write a snapshot in the background before writing it on the event dispatch thread. */
+  private final static int BACKGROUND_TRIES = 3;
+
+  /** All autosaves share one background thread so that writes are in order. */
+  private final static ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor((r) -> {
+    Thread t = new Thread(r, "COrnLathe autosave");
+    t.setDaemon(true);
+    return t;
+  });
+
+  /** The autosave file. */
+  private final Path autoSaveFile;
+  /** The temporary file that is renamed to the autosave file. */
+  private final Path tempFile;
+  /** The journal. */
+  private final Path journalFile;
+  /** Supplies the current top object (called on the event dispatch thread). */
+  private final Supplier<COrnTopObject> source;
+  /** Date format for the journal (only used on the background thread). */
+  private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+  /** Pending snapshot (or null). */
+  private ScheduledFuture<?> pending = null;
+  /** Time of the first change since the last snapshot (0 if none). */
+  private long firstChange = 0;
+  /** Number of changes since the file was loaded or saved. */
+  private int sequence = 0;
+
+  /**
+   * Construct a new AutoSave for the given file.
+   *
+   * @param file the COrnLathe file
+   * @param source supplies the current top object
+   */
+  public AutoSave(File file, Supplier<COrnTopObject> source) {
+    this.autoSaveFile = new File(file.getPath() + AUTOSAVE_EXT).toPath();
+    this.tempFile = new File(file.getPath() + AUTOSAVE_EXT + TEMP_EXT).toPath();
+    this.journalFile = new File(file.getPath() + JOURNAL_EXT).toPath();
+    this.source = source;
+  }
+
+  /**
+   * Get the autosave file.
+   *
+   * @return autosave file
+   */
+  public File getAutoSaveFile() {
+    return autoSaveFile.toFile();
+  }
+
+  /**
+   * Is there an autosave file that is newer than the given file? This means
+   * that the program was not closed normally while there were unsaved
+   * changes.
+   *
+   * @param file the COrnLathe file
+   * @return true: there is something to recover
+   */
+  public boolean hasRecovery(File file) {
+    File auto = autoSaveFile.toFile();
+    return auto.exists() && (auto.lastModified() >= file.lastModified());
+  }
+
+  /**
+   * Get the edits from the journal that were made after the last snapshot
+   * (and so are not in the autosave file).
+   *
+   * @return list of edits (empty if none)
+   */
+  public List<String> getLostEdits() {
+    List<String> edits = new ArrayList<>();
+    if (!Files.exists(journalFile)) {
+      return edits;
+    }
+    try (BufferedReader in = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        if (line.startsWith(SNAPSHOT)) {
+          edits.clear();      // everything before this is in the snapshot
+        } else if (!line.isEmpty()) {
+          edits.add(line);
+        }
+      }
+    } catch (IOException ex) {
+      // a journal cut short by a crash is still useful up to that point
+    }
+    return edits;
+  }
+
+  /**
+   * Note a change to the model. This journals the change and schedules a
+   * snapshot.
+   *
+   * @param evt the change
+   */
+  public synchronized void changed(PropertyChangeEvent evt) {
+    sequence++;
+    if (!evt.getPropertyName().contains("Drag")) {    // don't journal every step of a drag
+      String line = sequence + "\t" + evt.getSource().getClass().getSimpleName()
+          + "\t" + evt.getPropertyName() + "\t" + valueText(evt.getNewValue());
+      EXECUTOR.execute(() -> appendJournal(line));
+    }
+
+    long now = System.currentTimeMillis();
+    if (firstChange == 0) {
+      firstChange = now;
+    }
+    if (pending != null) {
+      if (now - firstChange >= MAX_DELAY_MILLIS) {
+        return;       // don't keep putting it off
+      }
+      pending.cancel(false);
+    }
+    pending = EXECUTOR.schedule(this::save, DELAY_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Discard any pending snapshot and delete the autosave and journal. Call this
+   * when the file has been saved or the changes have been forgotten.
+   */
+  public synchronized void discard() {
+    if (pending != null) {
+      pending.cancel(false);
+      pending = null;
+    }
+    firstChange = 0;
+    sequence = 0;
+    EXECUTOR.execute(() -> {
+      try {
+        Files.deleteIfExists(tempFile);
+        Files.deleteIfExists(autoSaveFile);
+        Files.deleteIfExists(journalFile);
+      } catch (IOException ex) {
+        Exceptions.printStackTrace(ex);
+      }
+    });
+  }
+
+  /**
+   * Save a snapshot (runs on the background thread).
+   */
+  private void save() {
+    synchronized (this) {
+      pending = null;
+      firstChange = 0;
+    }
+    byte[] xml;
+    try {
+      xml = snapshot();
+    } catch (InterruptedException | InvocationTargetException ex) {
+      Exceptions.printStackTrace(ex);
+      return;
+    }
+    if (xml == null) {
+      return;
+    }
+    try {
+      try (FileChannel channel = FileChannel.open(tempFile,
+          StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+        ByteBuffer buf = ByteBuffer.wrap(xml);
+        while (buf.hasRemaining()) {
+          channel.write(buf);
+        }
+        channel.force(true);      // make sure it's on the disk before the rename
+      }
+      try {
+        Files.move(tempFile, autoSaveFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException ex) {
+        Files.move(tempFile, autoSaveFile, StandardCopyOption.REPLACE_EXISTING);
+      }
+      // restart the journal now that everything is in the snapshot
+      writeJournal(SNAPSHOT + dateFormat.format(new Date()) + "\n", StandardOpenOption.TRUNCATE_EXISTING);
+    } catch (IOException ex) {
+      Exceptions.printStackTrace(ex);
+    }
+  }
+
+  /**
+   * Write the model to memory (runs on the background thread).
+   *
+   * The model is written in the background while it may still be edited on the
+   * event dispatch thread, and the result is only kept if there were no
+   * changes in the meantime. Checking for changes on the event dispatch thread
+   * makes sure that no edit was part way done. If the model keeps changing, it
+   * is written on the event dispatch thread so that the snapshot is consistent.
+   *
+   * @return xml bytes (or null if there is nothing to save)
+   * @throws InterruptedException if interrupted while waiting
+   * @throws InvocationTargetException if the snapshot failed
+   */
+  private byte[] snapshot() throws InterruptedException, InvocationTargetException {
+    final COrnTopObject[] top = new COrnTopObject[1];
+    final int[] seq = new int[1];
+    final boolean[] same = {false};
+    for (int i = 0; i < BACKGROUND_TRIES; i++) {
+      onEventThread(() -> {
+        top[0] = source.get();
+        seq[0] = getSequence();
+      });
+      if (top[0] == null) {
+        return null;
+      }
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+      try (XMLWriter out = new XMLWriter(bytes)) {
+        top[0].writeXML(out);
+      } catch (RuntimeException ex) {
+        continue;     // the model changed while it was being written
+      }
+      onEventThread(() -> {
+        same[0] = (source.get() == top[0]) && (getSequence() == seq[0]);
+      });
+      if (same[0]) {
+        return bytes.toByteArray();
+      }
+    }
+
+    // the model keeps changing, so write it where it is edited
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+    final boolean[] ok = {false};
+    onEventThread(() -> {
+      COrnTopObject current = source.get();
+      if (current != null) {
+        try (XMLWriter out = new XMLWriter(bytes)) {
+          current.writeXML(out);
+        }
+        ok[0] = true;
+      }
+    });
+    return ok[0] ? bytes.toByteArray() : null;
+  }
+
+  /**
+   * Get the number of changes since the file was loaded or saved.
+   *
+   * @return number of changes
+   */
+  private synchronized int getSequence() {
+    return sequence;
+  }
+
+  /**
+   * Run something on the event dispatch thread and wait for it to finish.
+   *
+   * @param run what to run
+   * @throws InterruptedException if interrupted while waiting
+   * @throws InvocationTargetException if it failed
+   */
+  private static void onEventThread(Runnable run) throws InterruptedException, InvocationTargetException {
+    if (SwingUtilities.isEventDispatchThread()) {
+      run.run();
+    } else {
+      SwingUtilities.invokeAndWait(run);
+    }
+  }
+
+  /**
+   * Append a line to the journal (runs on the background thread).
+   *
+   * @param line journal line (without the date)
+   */
+  private void appendJournal(String line) {
+    try {
+      writeJournal(dateFormat.format(new Date()) + "\t" + line + "\n", StandardOpenOption.APPEND);
+    } catch (IOException ex) {
+      Exceptions.printStackTrace(ex);
+    }
+  }
+
+  /**
+   * Write text to the journal.
+   *
+   * @param text text
+   * @param mode APPEND or TRUNCATE_EXISTING
+   * @throws IOException if the journal can't be written
+   */
+  private void writeJournal(String text, StandardOpenOption mode) throws IOException {
+    try (FileChannel channel = FileChannel.open(journalFile,
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode)) {
+      ByteBuffer buf = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+      while (buf.hasRemaining()) {
+        channel.write(buf);
+      }
+    }
+  }
+
+  /**
+   * Make a short single-line description of a property value.
+   *
+   * @param value value
+   * @return text
+   */
+  private static String valueText(Object value) {
+    String str = String.valueOf(value).replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    if (str.length() > MAX_VALUE_LENGTH) {
+      str = str.substring(0, MAX_VALUE_LENGTH) + "...";
+    }
+    return str;
+  }
+}
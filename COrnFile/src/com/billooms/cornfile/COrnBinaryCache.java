@@ -0,0 +1,368 @@
+package com.billooms.cornfile;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Binary cache of COrnLathe files that have already been parsed and
+ * validated.
+ *
+ * When a file is loaded the first time, the element events are recorded into
+ * a compact binary entry in the cache directory: a string table holding every
+ * distinct element name, attribute name and attribute value, followed by the
+ * elements as indexes into the table. The entry is keyed by the path, size,
+ * modification time and SHA-256 hash of the file.
+ *
+ * The next time the file is loaded, the entry is memory-mapped and the events
+ * are replayed straight into the COrnStreamLoader, so the objects are built
+ * exactly as before but without tokenizing the XML or validating it against
+ * the DTD again. If the entry is missing, stale or damaged, the XML is read as
+ * usual and the entry is re-written.
+ *
+ * @author Bill Ooms. Copyright 2015 Studio of Bill Ooms. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class COrnBinaryCache {
+
+  /** First 4 bytes of every entry ("CORN"). */
+  private final static int MAGIC = 0x434F524E;
+  /** Change this if the format of an entry changes. */
+  private final static int FORMAT = 1;
+  /** Extension of a cache entry. */
+  private final static String EXT = ".bin";
+  /** Event codes. */
+  private final static byte END_DOCUMENT = 0, START_ELEMENT = 1, END_ELEMENT = 2;
+
+  /** Directory holding the cache entries. */
+  private final File dir;
+  /** True if the last load came from the cache. */
+  private boolean hit = false;
+
+  /**
+   * Construct a new COrnBinaryCache using the given directory.
+   *
+   * @param dir directory for the cache entries (created if necessary)
+   */
+  public COrnBinaryCache(File dir) {
+    this.dir = dir;
+  }
+
+  /**
+   * Get the default cache directory.
+   *
+   * @return directory in the user's home directory
+   */
+  public static File getDefaultDirectory() {
+    return new File(new File(System.getProperty("user.home"), ".cornlathe"), "cache");
+  }
+
+  /**
+   * Did the last load come from the cache?
+   *
+   * @return true: loaded from the cache
+   */
+  public boolean isHit() {
+    return hit;
+  }
+
+  /**
+   * Load a COrnLathe file, from the cache if there is a current entry for it
+   * or else from the XML (and then write a new entry).
+   *
+   * @param file COrnLathe file
+   * @param loader loader to use
+   * @return COrnTopObject holding all the top objects, or null if the file was
+   * not valid
+   * @throws IOException if the file can't be read
+   * @throws SAXException if the file can't be parsed
+   */
+  public COrnTopObject load(File file, COrnStreamLoader loader) throws IOException, SAXException {
+    hit = false;
+    long modified = file.lastModified();
+    byte[] content = Files.readAllBytes(file.toPath());
+    byte[] hash = sha256(content);
+    String path = file.getCanonicalPath();
+    File entry = new File(dir, hex(sha256(path.getBytes(StandardCharsets.UTF_8))) + EXT);
+
+    COrnTopObject top = readEntry(entry, path, content.length, modified, hash, loader);
+    if (top != null) {
+      hit = true;
+      return top;
+    }
+
+    Recorder recorder = new Recorder();
+    top = loader.load(new ByteArrayInputStream(content), recorder);
+    if ((top != null) && !loader.hadWarnings()) {     // warnings aren't replayed, so read the XML every time
+      try {
+        writeEntry(entry, path, content.length, modified, hash, recorder);
+      } catch (IOException ex) {
+        // the cache is only an optimization -- the file was still loaded
+        Files.deleteIfExists(new File(entry.getPath() + ".tmp").toPath());
+      }
+    }
+    return top;
+  }
+
+  /**
+   * Read the objects from a cache entry.
+   *
+   * @return COrnTopObject, or null if there is no current entry
+   * @throws SAXException if the objects can't be built
+   */
+  private COrnTopObject readEntry(File entry, String path, long size, long modified, byte[] hash,
+      COrnStreamLoader loader) throws SAXException {
+    if (!entry.exists()) {
+      return null;
+    }
+    MappedByteBuffer buf;
+    try (FileChannel channel = FileChannel.open(entry.toPath(), StandardOpenOption.READ)) {
+      buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } catch (IOException ex) {
+      return null;
+    }
+    try {
+      if ((buf.getInt() != MAGIC) || (buf.getInt() != FORMAT)
+          || !getString(buf).equals(path)
+          || (buf.getLong() != size) || (buf.getLong() != modified)) {
+        return null;
+      }
+      byte[] entryHash = new byte[hash.length];
+      buf.get(entryHash);
+      if (!Arrays.equals(entryHash, hash)) {
+        return null;
+      }
+      String[] strings = new String[checkLength(buf, buf.getInt(), 4)];   // each string has at least a length
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = getString(buf);
+      }
+      return loader.replay((handler) -> replay(buf, strings, handler));
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException ex) {
+      return null;    // damaged entry -- read the XML instead
+    }
+  }
+
+  /**
+   * Replay the events of an entry.
+   *
+   * @param buf buffer positioned at the first event
+   * @param strings string table
+   * @param handler handler for the events
+   * @throws SAXException if the handler can't build an object
+   */
+  private static void replay(ByteBuffer buf, String[] strings, ContentHandler handler) throws SAXException {
+    AttributesImpl attributes = new AttributesImpl();
+    while (true) {
+      byte code = buf.get();
+      switch (code) {
+        case START_ELEMENT:
+          String name = strings[buf.getInt()];
+          attributes.clear();
+          int n = buf.getShort();
+          for (int i = 0; i < n; i++) {
+            String aName = strings[buf.getInt()];
+            attributes.addAttribute("", aName, aName, "CDATA", strings[buf.getInt()]);
+          }
+          handler.startElement("", name, name, attributes);
+          break;
+        case END_ELEMENT:
+          String endName = strings[buf.getInt()];
+          handler.endElement("", endName, endName);
+          break;
+        case END_DOCUMENT:
+          handler.endDocument();
+          return;
+        default:
+          throw new IllegalArgumentException("Bad event code " + code);
+      }
+    }
+  }
+
+  /**
+   * Write a cache entry. It is written to a temporary file which is then
+   * renamed, so a partly written entry is never read.
+   *
+   * @throws IOException if the entry can't be written
+   */
+  private void writeEntry(File entry, String path, long size, long modified, byte[] hash,
+      Recorder recorder) throws IOException {
+    if (!dir.exists() && !dir.mkdirs()) {
+      throw new IOException("Can't make cache directory " + dir);
+    }
+    Path temp = new File(entry.getPath() + ".tmp").toPath();
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT);
+      putString(out, path);
+      out.writeLong(size);
+      out.writeLong(modified);
+      out.write(hash);
+      out.writeInt(recorder.strings.size());
+      for (String str : recorder.strings) {
+        putString(out, str);
+      }
+      out.write(recorder.events.toByteArray());
+    }
+    try {
+      Files.move(temp, entry.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException ex) {
+      Files.move(temp, entry.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Write a string as a length followed by UTF-8 bytes.
+   */
+  private static void putString(DataOutputStream out, String str) throws IOException {
+    byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Read a string written by putString.
+   */
+  private static String getString(ByteBuffer buf) {
+    byte[] bytes = new byte[checkLength(buf, buf.getInt(), 1)];
+    buf.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Check that a length read from an entry fits in what is left of it, so
+   * that a damaged entry can't make a huge (or negative) array.
+   *
+   * @param buf buffer positioned after the length
+   * @param length number of items
+   * @param itemSize smallest number of bytes for each item
+   * @return length
+   * @throws IllegalArgumentException if the length doesn't fit
+   */
+  private static int checkLength(ByteBuffer buf, int length, int itemSize) {
+    if ((length < 0) || (length > buf.remaining() / itemSize)) {
+      throw new IllegalArgumentException("Bad length " + length);
+    }
+    return length;
+  }
+
+  /**
+   * Get the SHA-256 hash of some bytes.
+   */
+  private static byte[] sha256(byte[] bytes) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(bytes);
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException(ex);    // every JRE has SHA-256
+    }
+  }
+
+  /**
+   * Get the first 16 bytes as hex characters.
+   */
+  private static String hex(byte[] bytes) {
+    StringBuilder str = new StringBuilder();
+    for (int i = 0; i < Math.min(bytes.length, 16); i++) {
+      str.append(String.format("%02x", bytes[i]));
+    }
+    return str.toString();
+  }
+
+  /**
+   * Records element events as indexes into a string table.
+   */
+  private static class Recorder extends DefaultHandler {
+
+    /** Distinct strings in order of first use. */
+    private final List<String> strings = new ArrayList<>();
+    /** Index of each string in the table. */
+    private final Map<String, Integer> index = new HashMap<>();
+    /** Recorded events. */
+    private final ByteArrayOutputStream events = new ByteArrayOutputStream(16 * 1024);
+    /** For writing the events. */
+    private final DataOutputStream out = new DataOutputStream(events);
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+      try {
+        out.writeByte(START_ELEMENT);
+        out.writeInt(indexOf(qName));
+        out.writeShort(attributes.getLength());
+        for (int i = 0; i < attributes.getLength(); i++) {
+          out.writeInt(indexOf(attributes.getQName(i)));
+          out.writeInt(indexOf(attributes.getValue(i)));
+        }
+      } catch (IOException ex) {
+        throw new SAXException(ex);   // never happens with a ByteArrayOutputStream
+      }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+      try {
+        out.writeByte(END_ELEMENT);
+        out.writeInt(indexOf(qName));
+      } catch (IOException ex) {
+        throw new SAXException(ex);
+      }
+    }
+
+    @Override
+    public void endDocument() throws SAXException {
+      try {
+        out.writeByte(END_DOCUMENT);
+      } catch (IOException ex) {
+        throw new SAXException(ex);
+      }
+    }
+
+    /**
+     * Get the index of a string, adding it to the table if it's new.
+     */
+    private int indexOf(String str) {
+      Integer i = index.get(str);
+      if (i == null) {
+        i = strings.size();
+        strings.add(str);
+        index.put(str, i);
+      }
+      return i;
+    }
+  }
+}
@@ -1,21 +1,22 @@
 package com.billooms.cornfile;
 
-import com.billooms.clclass.CLUtilities;
 import com.billooms.clclass.CLclass;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.comment.Comment;
 import com.billooms.cutpoints.CutPoints;
 import com.billooms.gcodeoutput.GCodeTopComponent;
 import com.billooms.gcodeoutput.GControls;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.PrintWriter;
-import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import org.netbeans.core.spi.multiview.MultiViewElement;
 import org.netbeans.core.spi.multiview.text.MultiViewEditorElement;
@@ -35,6 +36,7 @@ import org.openide.filesystems.FileChangeListener;
 import org.openide.filesystems.FileEvent;
 import org.openide.filesystems.FileObject;
 import org.openide.filesystems.FileRenameEvent;
+import org.openide.filesystems.FileUtil;
 import org.openide.filesystems.MIMEResolver;
 import org.openide.loaders.DataObject;
 import org.openide.loaders.DataObjectExistsException;
@@ -43,7 +45,6 @@ import org.openide.loaders.MultiFileLoader;
 import org.openide.nodes.Node;
 import org.openide.util.Exceptions;
 import org.openide.util.Lookup;
-import org.openide.util.NbBundle;
 import org.openide.util.NbBundle.Messages;
 import org.openide.util.lookup.AbstractLookup;
 import org.openide.util.lookup.InstanceContent;
@@ -51,10 +52,6 @@ import org.openide.util.lookup.ProxyLookup;
 import org.openide.windows.TopComponent;
 import org.openide.windows.WindowManager;
 import org.openide.xml.EntityCatalog;
-import org.openide.xml.XMLUtil;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 /**
@@ -156,17 +153,20 @@ public class COrnFileDataObject extends MultiDataObject implements PropertyChang
 
   /** A separate DataNOde for exploring. */
   private COrnDataNode dataNode = null;
-  /** The XML DOM Document. */
-  private Document doc = null;
+  /** True if the file has been read (no DOM Document is kept). */
+  private boolean loaded = false;
   /** The container for the top object */
   private COrnTopObject topObject = null;
 
   private static ExplorerManager em = null;   // all instances share one ExplorerManager
+  private final static COrnBinaryCache CACHE = new COrnBinaryCache(COrnBinaryCache.getDefaultDirectory());
   private final InstanceContent ic = new InstanceContent();
   private final ProxyLookup proxy;
   private final ParseErrorHandler errHandler;
+  private final COrnStreamLoader streamLoader;
   private final FileChangeListener fcl = new MyFileListener();
   private GControls gControlPanel = null;
+  private AutoSave autoSave = null;     // null if the file is not on a local disk
 
   /**
    * Construct a new COrnFileDataObject.
@@ -181,6 +181,7 @@ public class COrnFileDataObject extends MultiDataObject implements PropertyChang
     registerEditor("text/cornlathe+xml", true);
 
     errHandler = new ParseErrorHandler(this);
+    streamLoader = new COrnStreamLoader(EntityCatalog.getDefault(), errHandler);
     proxy = new ProxyLookup(new AbstractLookup(ic), super.getLookup());
   }
 
@@ -240,16 +241,19 @@ public class COrnFileDataObject extends MultiDataObject implements PropertyChang
       gControlPanel = ((GCodeTopComponent) WindowManager.getDefault().findTopComponent("GCodeTopComponent")).getLookup().lookup(GControls.class);
     }
 
-    if (reload || (doc == null)) {	  // doc will be null if the file hasn't yet been read
+    if (reload || !loaded) {	  // loaded will be false if the file hasn't yet been read
       if (reload) {
         forgetChanges();    // forget any changes
       }
+      File file = FileUtil.toFile(getPrimaryFile());
+      autoSave = (file == null) ? null : new AutoSave(file, () -> topObject);
       // Parse the file and generate the top CLclass objects
       parseFile();
-      if (doc == null) {
+      if (!loaded) {
         em.setRootContext(Node.EMPTY);	  // there was some problem with the file
         return;
       }
+      boolean recovered = !reload && recoverAutoSave(file);
 
       // Create the COrnDataNode
       COrnDataNode newDataNode = new COrnDataNode(this);
@@ -268,7 +272,10 @@ public class COrnFileDataObject extends MultiDataObject implements PropertyChang
       topObject.getTopObjects().stream().forEach((topObj) -> {
         topObj.addPropertyChangeListener(this);
       });
-    } else {	  // doc is not null, so it's already been read
+      if (recovered) {
+        modified();     // the recovered copy still needs to be saved
+      }
+    } else {	  // it's already been read
       // set the root context of the DataNavigator to the original COrnDataNode 
       CutPoints lookup = dataNode.getLookup().lookup(CutPoints.class);
       em.setRootContext(dataNode);
@@ -282,63 +289,45 @@ public class COrnFileDataObject extends MultiDataObject implements PropertyChang
           INFORMATION_MESSAGE);
       DialogDisplayer.getDefault().notify(d);
     }
-    StatusDisplayer.getDefault().setStatusText("Loaded file: " + this.getPrimaryFile().getNameExt());
+    StatusDisplayer.getDefault().setStatusText("Loaded file: " + this.getPrimaryFile().getNameExt()
+        + (CACHE.isHit() ? " from cache" : "") + " (" + streamLoader.getTimingSummary() + ")");
   }
 
   /**
-   * Parse the file into a DOM Document and extract the first layer of elements.
+   * Stream the file through the COrnStreamLoader.
    *
-   * This builds objects for all the nodes in the document.
+   * This builds objects for all the nodes in the document without keeping a
+   * DOM Document. Files on a local disk go through the COrnBinaryCache so
+   * that a file which hasn't changed isn't parsed and validated again.
    */
   private void parseFile() {
     InputStream inputStream = null;
+    loaded = false;
     try {
-      inputStream = getPrimaryFile().getInputStream();
       errHandler.clear();   // clear any old messages
-      doc = XMLUtil.parse(new InputSource(inputStream), true, true, errHandler, EntityCatalog.getDefault());
-      if (errHandler.showMessages()) {
-        doc = null;
-        return;	  // the finally below will close inputStream
-      }
-
-      // Get the topElement and look for first layer of elements.
-      Element topElement = doc.getDocumentElement();
-      
-      // Check to see that the decimal character matches the locale
-      char localeSep = ((DecimalFormat)DecimalFormat.getInstance()).getDecimalFormatSymbols().getDecimalSeparator();
-      String version = topElement.getAttribute("version");    // version should have a decimal separator
-      if (!version.contains(Character.valueOf(localeSep).toString())) {
-        NotifyDescriptor d = new NotifyDescriptor.Message(
-            "Incorrect decimal delimeter: locale requires '" + localeSep + "' character",
-            ERROR_MESSAGE);
-        DialogDisplayer.getDefault().notify(d);
-        doc = null;
-        return;	  // the finally below will close inputStream
+      File file = FileUtil.toFile(getPrimaryFile());
+      COrnTopObject newTop;
+      if (file != null) {
+        newTop = CACHE.load(file, streamLoader);
+      } else {
+        inputStream = getPrimaryFile().getInputStream();
+        newTop = streamLoader.load(inputStream);
       }
-      
-      double fileVersion = CLUtilities.getDouble(topElement, "version", 99.0);
-
-      double thisVersion = Double.parseDouble(NbBundle.getMessage(COrnFileDataObject.class, "COrnLathe_Version"));
-      if (fileVersion > thisVersion) {
-        NotifyDescriptor d = new NotifyDescriptor.Message(
-            "XML file was written by a newer version of software.\nFound version " + fileVersion,
-            ERROR_MESSAGE);
-        DialogDisplayer.getDefault().notify(d);
-        doc = null;
+      if (errHandler.showMessages() || (newTop == null)) {
         return;	  // the finally below will close inputStream
       }
-      if (fileVersion < thisVersion) {
+      topObject = newTop;
+      loaded = true;
+    } catch (FileNotFoundException ex) {
+      Exceptions.printStackTrace(ex);
+    } catch (SAXException ex) {
+      if (!errHandler.showMessages()) {   // version problems, etc.
         NotifyDescriptor d = new NotifyDescriptor.Message(
-            "XML file was written by an older version of software.\nFound version " + fileVersion + "\n",
+            ex.getMessage(),
             ERROR_MESSAGE);
         DialogDisplayer.getDefault().notify(d);
-        doc = null;
-        return;	  // the finally below will close inputStream
       }
-      topObject = new COrnTopObject(topElement);
-    } catch (FileNotFoundException ex) {
-      Exceptions.printStackTrace(ex);
-    } catch (IOException | SAXException ex) {
+    } catch (IOException ex) {
       Exceptions.printStackTrace(ex);
     } finally {
       try {
@@ -352,6 +341,58 @@ public class COrnFileDataObject extends MultiDataObject implements PropertyChang
     }
   }
 
+  /**
+   * If there is an autosaved copy that is newer than the file (because the
+   * program was not closed normally), ask the user whether to restore it, and
+   * if so load it in place of the file.
+   *
+   * @param file the primary file (or null if not on a local disk)
+   * @return true if the autosaved copy was loaded
+   */
+  private boolean recoverAutoSave(File file) {
+    if (autoSave == null) {
+      return false;
+    }
+    if (!autoSave.hasRecovery(file)) {
+      autoSave.discard();   // left over and older than the file
+      return false;
+    }
+    String message = "There is an autosaved copy of " + getPrimaryFile().getNameExt()
+        + " that is newer than the file.\n"
+        + "Do you want to restore the autosaved copy?";
+    List<String> lost = autoSave.getLostEdits();
+    if (!lost.isEmpty()) {
+      message += "\n\nThese edits were made after the last autosave and can't be restored:";
+      for (int i = 0; i < Math.min(lost.size(), 10); i++) {
+        message += "\n" + lost.get(i);
+      }
+      if (lost.size() > 10) {
+        message += "\n... and " + (lost.size() - 10) + " more";
+      }
+    }
+    NotifyDescriptor d = new NotifyDescriptor.Confirmation(
+        message,
+        "Restore Autosave",
+        NotifyDescriptor.YES_NO_OPTION,
+        NotifyDescriptor.QUESTION_MESSAGE);
+    if (DialogDisplayer.getDefault().notify(d) != NotifyDescriptor.YES_OPTION) {
+      autoSave.discard();
+      return false;
+    }
+    try (InputStream inputStream = new FileInputStream(autoSave.getAutoSaveFile())) {
+      errHandler.clear();
+      COrnTopObject newTop = streamLoader.load(inputStream);
+      if (errHandler.showMessages() || (newTop == null)) {
+        return false;   // keep what was read from the file
+      }
+      topObject = newTop;
+      return true;
+    } catch (IOException | SAXException ex) {
+      Exceptions.printStackTrace(ex);
+    }
+    return false;
+  }
+
   /**
    * Call this to indicate that the data has been modified and it needs to be
    * saved.
@@ -373,6 +414,9 @@ public class COrnFileDataObject extends MultiDataObject implements PropertyChang
     if (sav != null) {
       sav.forget();
     }
+    if (autoSave != null) {
+      autoSave.discard();
+    }
   }
 
   @Override
@@ -393,6 +437,9 @@ public class COrnFileDataObject extends MultiDataObject implements PropertyChang
       DialogDisplayer.getDefault().notify(d);
     }
     modified();
+    if (autoSave != null) {
+      autoSave.changed(evt);
+    }
   }
 
   /**
@@ -426,9 +473,12 @@ public class COrnFileDataObject extends MultiDataObject implements PropertyChang
       COrnFileDataObject.this.getPrimaryFile().removeFileChangeListener(fcl);
 
       try (OutputStream outputStream = getPrimaryFile().getOutputStream();
-          PrintWriter out = new PrintWriter(outputStream)) {
+          XMLWriter out = new XMLWriter(outputStream)) {
         topObject.writeXML(out);
       }
+      if (autoSave != null) {
+        autoSave.discard();   // the file is now newer than any autosave
+      }
 
       COrnFileDataObject.this.getPrimaryFile().addFileChangeListener(fcl);
       getFileDObj().ic.remove(this);
@@ -507,7 +557,7 @@ public class COrnFileDataObject extends MultiDataObject implements PropertyChang
         DialogDisplayer.getDefault().notify(d);
       }
       synchronized (this) {
-        doc = null;
+        loaded = false;
         em.setRootContext(Node.EMPTY);
       }
     }
@@ -0,0 +1,464 @@
+package com.billooms.cornfile;
+
+import com.billooms.clclass.CLUtilities;
+import com.billooms.clclass.CLclass;
+import com.billooms.comment.Comment;
+import com.billooms.controls.Controls;
+import com.billooms.cutpoints.CutPoints;
+import com.billooms.cutters.Cutters;
+import com.billooms.outline.Outline;
+import com.billooms.patterns.Patterns;
+import com.billooms.profiles.Profiles;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.DecimalFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import org.openide.util.NbBundle;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Streaming loader for COrnLathe files.
+ *
+ * The file is read with a validating SAX parser, so validation happens as the
+ * file streams in. Each top section (Comment, Controls, Patterns, Profiles,
+ * Cutters, Outline) is turned into its object as soon as its end tag is read,
+ * and each CutPoint is built as soon as its own end tag is read. Only the
+ * section (or CutPoint) currently being read is ever held as DOM Elements, and
+ * nothing of the DOM is kept after loading.
+ *
+ * The element events can also be passed on to a recorder while loading, and
+ * recorded events can be replayed later without parsing or validating the
+ * file again (see COrnBinaryCache).
+ *
+ * The time spent on each section is recorded and can be shown with
+ * getTimingSummary().
+ *
+ * @author Bill Ooms. Copyright 2015 Studio of Bill Ooms. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class COrnStreamLoader {
+
+  /** Top sections in the order required by the DTD. */
+  private final static List<String> SECTIONS = Arrays.asList(
+      "Comment", "Controls", "Patterns", "Profiles", "Cutters", "Outline", "CutPoints");
+
+  /** Resolves the DTD. */
+  private final EntityResolver resolver;
+  /** Receives warnings and errors. */
+  private final ErrorHandler errHandler;
+  /** Milliseconds spent on each section of the last file loaded. */
+  private final Map<String, Double> timing = new LinkedHashMap<>();
+  /** True: there were warnings in the last file loaded. */
+  private boolean warnings = false;
+
+  /**
+   * Construct a new COrnStreamLoader.
+   *
+   * @param resolver EntityResolver for the DTD
+   * @param errHandler ErrorHandler for warnings and errors
+   */
+  public COrnStreamLoader(EntityResolver resolver, ErrorHandler errHandler) {
+    this.resolver = resolver;
+    this.errHandler = errHandler;
+  }
+
+  /**
+   * Load a COrnLathe file from the given stream.
+   *
+   * Validation errors are passed to the ErrorHandler, and if there are any
+   * then no objects are built and null is returned. Problems with the version
+   * of the file are thrown as a SAXException.
+   *
+   * @param inputStream input stream
+   * @return COrnTopObject holding all the top objects, or null if the file was
+   * not valid
+   * @throws IOException if the stream can't be read
+   * @throws SAXException if the file can't be parsed
+   */
+  public COrnTopObject load(InputStream inputStream) throws IOException, SAXException {
+    return load(inputStream, null);
+  }
+
+  /**
+   * Load a COrnLathe file from the given stream, passing the element events on
+   * to the given recorder.
+   *
+   * @param inputStream input stream
+   * @param recorder receives startElement, endElement and endDocument (or null)
+   * @return COrnTopObject holding all the top objects, or null if the file was
+   * not valid
+   * @throws IOException if the stream can't be read
+   * @throws SAXException if the file can't be parsed
+   */
+  public COrnTopObject load(InputStream inputStream, ContentHandler recorder) throws IOException, SAXException {
+    timing.clear();
+    warnings = false;
+    Handler handler;
+    XMLReader reader;
+    try {
+      SAXParserFactory factory = SAXParserFactory.newInstance();
+      factory.setValidating(true);
+      factory.setNamespaceAware(true);
+      reader = factory.newSAXParser().getXMLReader();
+      handler = new Handler(DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument());
+    } catch (ParserConfigurationException ex) {
+      throw new SAXException(ex);
+    }
+    handler.recorder = recorder;
+    reader.setEntityResolver(resolver);
+    reader.setErrorHandler(handler);
+    reader.setContentHandler(handler);
+    long start = System.nanoTime();
+    reader.parse(new InputSource(inputStream));
+    timing.put("Total", (System.nanoTime() - start) / 1e6);
+    warnings = handler.warned;
+    if (handler.failed) {
+      return null;
+    }
+    return new COrnTopObject(handler.fileVersion, handler.objects);
+  }
+
+  /**
+   * Build the objects from element events that were recorded from a valid
+   * file. There is no validation, so only replay events that were recorded by
+   * load(InputStream, ContentHandler) from a file that loaded without errors.
+   *
+   * @param source replays the events
+   * @return COrnTopObject holding all the top objects
+   * @throws SAXException if the objects can't be built
+   */
+  public COrnTopObject replay(EventSource source) throws SAXException {
+    timing.clear();
+    warnings = false;
+    Handler handler;
+    try {
+      handler = new Handler(DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument());
+    } catch (ParserConfigurationException ex) {
+      throw new SAXException(ex);
+    }
+    long start = System.nanoTime();
+    source.replay(handler);
+    timing.put("Total", (System.nanoTime() - start) / 1e6);
+    if (handler.failed) {
+      return null;
+    }
+    return new COrnTopObject(handler.fileVersion, handler.objects);
+  }
+
+  /**
+   * Get the milliseconds spent on each section of the last file loaded. The
+   * last entry is the total.
+   *
+   * @return map of section name to milliseconds
+   */
+  public Map<String, Double> getTiming() {
+    return timing;
+  }
+
+  /**
+   * Determine if there were warnings in the last file loaded (which were
+   * passed to the ErrorHandler).
+   *
+   * @return true: there were warnings
+   */
+  public boolean hadWarnings() {
+    return warnings;
+  }
+
+  /**
+   * Get a one line summary of the time spent on each section of the last file
+   * loaded.
+   *
+   * @return summary
+   */
+  public String getTimingSummary() {
+    DecimalFormat f1 = new DecimalFormat("0.0");
+    StringBuilder str = new StringBuilder();
+    timing.forEach((name, ms) -> {
+      str.append((str.length() == 0) ? "" : ", ").append(name).append(" ").append(f1.format(ms)).append(" ms");
+    });
+    return str.toString();
+  }
+
+  /**
+   * SAX handler that builds the top objects section by section.
+   */
+  private class Handler extends DefaultHandler {
+
+    /** Document used only as a factory for the Elements of one section. */
+    private final Document factoryDoc;
+    /** Top objects in the order of the file format. */
+    private final CLclass[] tops = new CLclass[SECTIONS.size()];
+    /** Top objects once the whole file has been read. */
+    private final List<CLclass> objects = new ArrayList<>();
+    /** Elements of the section currently being read. */
+    private final Deque<Element> stack = new ArrayDeque<>();
+    /** Version of the file. */
+    private double fileVersion;
+    /** Section currently being read (-1 if none). */
+    private int section = -1;
+    /** Time the current section started. */
+    private long sectionStart;
+    /** Set when there has been an error, after which nothing more is built. */
+    private boolean failed = false;
+    /** Set when there has been a warning. */
+    private boolean warned = false;
+    /** Receives the element events as they are read (or null). */
+    private ContentHandler recorder = null;
+
+    Handler(Document factoryDoc) {
+      this.factoryDoc = factoryDoc;
+    }
+
+    @Override
+    public InputSource resolveEntity(String publicId, String systemId) throws IOException, SAXException {
+      return resolver.resolveEntity(publicId, systemId);
+    }
+
+    @Override
+    public void warning(SAXParseException exception) throws SAXException {
+      warned = true;
+      errHandler.warning(exception);
+    }
+
+    @Override
+    public void error(SAXParseException exception) throws SAXException {
+      failed = true;
+      errHandler.error(exception);
+    }
+
+    @Override
+    public void fatalError(SAXParseException exception) throws SAXException {
+      failed = true;
+      errHandler.fatalError(exception);
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+      if (recorder != null) {
+        recorder.startElement(uri, localName, qName, attributes);
+      }
+      Element element = factoryDoc.createElement(qName);
+      for (int i = 0; i < attributes.getLength(); i++) {
+        element.setAttribute(attributes.getQName(i), attributes.getValue(i));
+      }
+      if (qName.equals("COrnLathe") && (section < 0) && stack.isEmpty()) {
+        checkVersion(element);
+        return;
+      }
+      if (stack.isEmpty()) {    // start of a new section
+        section = SECTIONS.indexOf(qName);
+        sectionStart = System.nanoTime();
+        fillDefaults(section);
+        if (qName.equals("CutPoints") && !failed) {
+          tops[section] = build(() -> new CutPoints((Cutters) tops[4], (Outline) tops[5], (Patterns) tops[2]));
+        }
+      } else if ((stack.size() > 1) || !stack.peek().getTagName().equals("CutPoints")) {
+        stack.peek().appendChild(element);    // each CutPoint is built on its own (not appended)
+      }
+      stack.push(element);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+      if (recorder != null) {
+        recorder.endElement(uri, localName, qName);
+      }
+      if (stack.isEmpty()) {    // end of COrnLathe
+        return;
+      }
+      Element element = stack.pop();
+      if (section < 0) {
+        return;     // not a section we know about
+      }
+      if ((stack.size() == 1) && stack.peek().getTagName().equals("CutPoints")) {
+        if (!failed) {
+          build(() -> {
+            ((CutPoints) tops[section]).readCutPoint(element);
+            return null;
+          });
+        }
+        return;
+      }
+      if (!stack.isEmpty()) {
+        return;
+      }
+      // end of a section
+      if (!failed) {
+        switch (qName) {
+          case "Comment":
+            tops[section] = build(() -> new Comment(element));
+            break;
+          case "Controls":
+            tops[section] = build(() -> new Controls(element));
+            break;
+          case "Patterns":
+            tops[section] = build(() -> new Patterns(element));
+            break;
+          case "Profiles":
+            tops[section] = build(() -> new Profiles(element));
+            break;
+          case "Cutters":
+            tops[section] = build(() -> new Cutters(element, (Profiles) tops[3]));
+            break;
+          case "Outline":
+            tops[section] = build(() -> new Outline(element, (Cutters) tops[4]));
+            break;
+          case "CutPoints":
+            build(() -> {
+              ((CutPoints) tops[section]).finishRead();
+              return null;
+            });
+            break;
+        }
+      }
+      timing.put(qName, (System.nanoTime() - sectionStart) / 1e6);
+      section = -1;
+    }
+
+    @Override
+    public void endDocument() throws SAXException {
+      if (recorder != null) {
+        recorder.endDocument();
+      }
+      fillDefaults(SECTIONS.size());
+      if (!failed) {
+        objects.addAll(Arrays.asList(tops));
+      }
+    }
+
+    /**
+     * Check the version and decimal separator of the file.
+     *
+     * @param root COrnLathe Element
+     * @throws SAXException if the file can't be read by this version
+     */
+    private void checkVersion(Element root) throws SAXException {
+      // Check to see that the decimal character matches the locale
+      char localeSep = ((DecimalFormat) DecimalFormat.getInstance()).getDecimalFormatSymbols().getDecimalSeparator();
+      String version = root.getAttribute("version");    // version should have a decimal separator
+      if (!version.contains(Character.valueOf(localeSep).toString())) {
+        throw new SAXException("Incorrect decimal delimeter: locale requires '" + localeSep + "' character");
+      }
+
+      fileVersion = CLUtilities.getDouble(root, "version", 99.0);
+      double thisVersion = Double.parseDouble(NbBundle.getMessage(COrnStreamLoader.class, "COrnLathe_Version"));
+      if (fileVersion > thisVersion) {
+        throw new SAXException("XML file was written by a newer version of software.\nFound version " + fileVersion);
+      }
+      if (fileVersion < thisVersion) {
+        throw new SAXException("XML file was written by an older version of software.\nFound version " + fileVersion + "\n");
+      }
+    }
+
+    /**
+     * Make defaults for any optional sections before the given one that were
+     * not in the file.
+     *
+     * @param upTo index of the section about to be read
+     * @throws SAXException if a default can't be built
+     */
+    private void fillDefaults(int upTo) throws SAXException {
+      if (failed) {
+        return;
+      }
+      for (int i = 0; i < Math.min(upTo, SECTIONS.size()); i++) {
+        if (tops[i] == null) {
+          switch (SECTIONS.get(i)) {
+            case "Comment":
+              tops[i] = new Comment();
+              break;
+            case "Patterns":      // default Patterns manager for built-ins
+              tops[i] = new Patterns();
+              break;
+            case "Profiles":      // default Profiles manager for built-ins
+              tops[i] = new Profiles();
+              break;
+            case "CutPoints":     // default CutPoints manager so you can add some
+              tops[i] = build(() -> new CutPoints((Cutters) tops[4], (Outline) tops[5], (Patterns) tops[2]));
+              break;
+            default:      // required by the DTD, so the parser reports the error
+              failed = true;
+              return;
+          }
+        }
+      }
+    }
+
+    /**
+     * Build an object, turning any problem into a SAXException that names
+     * the section.
+     *
+     * @param maker builds the object
+     * @return the object
+     * @throws SAXException if the object can't be built
+     */
+    private CLclass build(Maker maker) throws SAXException {
+      try {
+        return maker.make();
+      } catch (RuntimeException ex) {
+        failed = true;
+        throw new SAXException("Error reading " + ((section < 0) ? "file" : SECTIONS.get(section)) + ": " + ex, ex);
+      }
+    }
+  }
+
+  /**
+   * Replays recorded element events.
+   */
+  public interface EventSource {
+
+    /**
+     * Call startElement and endElement on the handler for each element in
+     * document order, then endDocument.
+     *
+     * @param handler handler
+     * @throws SAXException if the handler can't build an object
+     */
+    void replay(ContentHandler handler) throws SAXException;
+  }
+
+  /**
+   * Builds one object from the file.
+   */
+  private interface Maker {
+
+    /**
+     * Build the object.
+     *
+     * @return the object (or null)
+     */
+    CLclass make();
+  }
+}
@@ -2,7 +2,7 @@ package com.billooms.cornfile;
 
 import com.billooms.clclass.CLUtilities;
 import com.billooms.clclass.CLclass;
-import static com.billooms.clclass.CLclass.indent;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.comment.Comment;
 import com.billooms.controls.Controls;
 import com.billooms.cutpoints.CutPoints;
@@ -11,8 +11,8 @@ import com.billooms.outline.Outline;
 import com.billooms.patterns.Patterns;
 import com.billooms.profiles.Profiles;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.List;
 import org.openide.util.NbBundle;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
@@ -117,6 +117,18 @@ public final class COrnTopObject extends CLclass {
     }
   }
 
+  /**
+   * Construct the COrnTopObject from top objects that have already been built
+   * (for example, by COrnStreamLoader).
+   *
+   * @param fileVersion version of the file
+   * @param objects top objects in the order of the file format
+   */
+  public COrnTopObject(double fileVersion, List<CLclass> objects) {
+    this.fileVersion = fileVersion;
+    topObjects.addAll(objects);
+  }
+
   /**
    * Get the list of all top objects.
    *
@@ -143,19 +155,18 @@ public final class COrnTopObject extends CLclass {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
-    indent = "";    // reset it just to make sure
+  public void writeXML(XMLWriter out) {
     double thisVersion = Double.parseDouble(NbBundle.getMessage(COrnTopObject.class, "COrnLathe_Version"));
     out.println("<?xml version=\"1.0\"?>");
     out.println("<!DOCTYPE COrnLathe PUBLIC \"-//IDN billooms.com//DTD COrnLathe file format 3.1//EN\" \"http://www.billooms.com/dtds/cornlathe3_1.dtd\">");
     out.println("<COrnLathe"
-        + " version='" + F1.format(thisVersion) + "'"
+        + " version='" + out.f1(thisVersion) + "'"
         + ">");
-    indentMore();
+    out.indentMore();
     topObjects.stream().forEach((item) -> {
       item.writeXML(out);
     });
-    indentLess();
+    out.indentLess();
     out.println("</COrnLathe>");
   }
 
@@ -0,0 +1,415 @@
+package com.billooms.cornfile.batch;
+
+import com.billooms.controls.CoarseFine;
+import com.billooms.controls.Controls;
+import com.billooms.controls.FeedRate;
+import com.billooms.cornfile.COrnFileDataObject;
+import com.billooms.cornfile.COrnStreamLoader;
+import com.billooms.cornfile.COrnTopObject;
+import com.billooms.cutlist.CutList;
+import com.billooms.cutlist.Inst;
+import com.billooms.cutpoints.CutPoints;
+import com.billooms.cutters.Cutter;
+import com.billooms.cutters.Cutters;
+import com.billooms.gcodeoutput.GCodeWriter;
+import com.billooms.gcodeoutput.hardwareprefs.HardwarePrefs;
+import com.billooms.outline.Outline;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.openide.util.Lookup;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Headless batch processing of COrnLathe files.
+ *
+ * Each .xml file given on the command line (or each .xml file in a given
+ * directory) is streamed through the COrnStreamLoader (which validates
+ * against the COrnLathe DTD), the Outline,
+ * Cutters, CutPoints and Controls are built directly from the XML, and g-code
+ * is written for each cutter that has cut points. Statistics are printed for
+ * each file and for the whole batch. Files are processed in parallel.
+ *
+ * Usage: BatchGCode [-out dir] [-threads n] [-stepsPerRotation n]
+ * [-stepsPerInch x] file-or-directory ...
+ *
+ * @author Bill Ooms. Copyright 2015 Studio of Bill Ooms. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class BatchGCode {
+
+  /** Public IDs of the supported DTDs. */
+  private final static String[] PUBLIC_IDS = {
+    "-//IDN billooms.com//DTD COrnLathe file format 3.0//EN",
+    "-//IDN billooms.com//DTD COrnLathe file format 3.1//EN"};
+  /** Local copies of the DTDs (in the same order as PUBLIC_IDS). */
+  private final static String[] DTDS = {"cornlathe3_0.dtd", "cornlathe3_1.dtd"};
+  /** Extension for g-code files. */
+  private final static String GCODE_EXT = ".ngc";
+
+  /** Output directory (null means put g-code next to the xml file). */
+  private File outDir = null;
+  /** Number of files to process at the same time. */
+  private int nThreads = Runtime.getRuntime().availableProcessors();
+  /** Spindle steps per rotation. */
+  private int stepsPerRot;
+  /** X and Z stage steps per inch. */
+  private double stepsPerInch;
+
+  /**
+   * Construct a new BatchGCode using the hardware preferences for steps.
+   */
+  public BatchGCode() {
+    HardwarePrefs prefs = Lookup.getDefault().lookup(HardwarePrefs.class);
+    if (prefs == null) {
+      prefs = new HardwarePrefs();
+    }
+    stepsPerRot = prefs.getStepsPerRotation();
+    stepsPerInch = prefs.getStepsPerInch();
+  }
+
+  /**
+   * Set the output directory.
+   *
+   * @param dir output directory (null means put g-code next to the xml file)
+   */
+  public void setOutputDirectory(File dir) {
+    this.outDir = dir;
+  }
+
+  /**
+   * Set the number of files to process at the same time.
+   *
+   * @param n number of threads (at least 1)
+   */
+  public void setThreads(int n) {
+    this.nThreads = Math.max(1, n);
+  }
+
+  /**
+   * Set the spindle steps per rotation.
+   *
+   * @param steps steps per rotation
+   */
+  public void setStepsPerRotation(int steps) {
+    this.stepsPerRot = steps;
+  }
+
+  /**
+   * Set the X and Z stage steps per inch.
+   *
+   * @param steps steps per inch
+   */
+  public void setStepsPerInch(double steps) {
+    this.stepsPerInch = steps;
+  }
+
+  /**
+   * Process all the given files in parallel.
+   *
+   * @param files xml files
+   * @return results in the same order as the given files
+   */
+  public List<Result> process(List<File> files) {
+    ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+    try {
+      List<Future<Result>> futures = new ArrayList<>();
+      files.stream().forEach((f) -> {
+        futures.add(executor.submit(() -> process(f)));
+      });
+      List<Result> results = new ArrayList<>();
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          results.add(futures.get(i).get());
+        } catch (InterruptedException | ExecutionException ex) {
+          Result r = new Result(files.get(i));
+          r.error = ex.toString();
+          results.add(r);
+        }
+      }
+      return results;
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Process a single file.
+   *
+   * @param file xml file
+   * @return result of processing the file
+   */
+  public Result process(File file) {
+    Result r = new Result(file);
+    long start = System.nanoTime();
+    COrnTopObject topObject;
+    try {
+      topObject = load(file, r);
+    } catch (IOException | SAXException ex) {
+      r.error = ex.getMessage();
+      return r;
+    }
+    r.parseMillis = (System.nanoTime() - start) / 1000000;
+
+    Controls controls = (Controls) topObject.getClass(Controls.class);
+    Outline outline = (Outline) topObject.getClass(Outline.class);
+    Cutters cutMgr = (Cutters) topObject.getClass(Cutters.class);
+    CutPoints cutPts = (CutPoints) topObject.getClass(CutPoints.class);
+    r.cutPoints = cutPts.size();
+    if (controls.getKind() != Controls.Kind.NORMAL) {
+      // Outline and thread cutting are driven from the g-code panels, so only normal cuts are done in batch
+      r.error = "skipped: active control is " + controls.getKind().getText();
+      return r;
+    }
+    if (outline.getDotCurve().getSize() < 2) {
+      r.error = "Traced outline must have at least 2 points.";
+      return r;
+    }
+    FeedRate feed = controls.getFeedRate();
+    if (feed == null) {
+      feed = new FeedRate();
+    }
+    CoarseFine cf = (CoarseFine) controls.getActive();
+    if (cf == null) {
+      cf = new CoarseFine();
+    }
+
+    start = System.nanoTime();
+    String baseName = file.getName().substring(0, file.getName().length() - 4);
+    File dir = (outDir == null) ? file.getAbsoluteFile().getParentFile() : outDir;
+    for (Cutter cutter : cutMgr.getAllCutters()) {
+      if (cutPts.getAll(cutter).isEmpty()) {
+        continue;
+      }
+      // CutPoints put their instructions in the one shared CutList,
+      // so only one file at a time can generate instructions.
+      List<Inst> insts;
+      CutList cutList = Lookup.getDefault().lookup(CutList.class);
+      synchronized (cutList) {
+        cutList.clear();
+        cutPts.makeInstructions(null, cutter, cf, stepsPerRot);
+        insts = new ArrayList<>(cutList.getAll());
+        cutList.clear();
+      }
+      if (insts.isEmpty()) {
+        continue;
+      }
+      File outFile = new File(dir, baseName
+          + ((cutMgr.size() > 1) ? "_" + cutter.getName() : "") + GCODE_EXT);
+      GCodeWriter writer = new GCodeWriter(stepsPerRot, stepsPerInch, feed.getRpm(), feed.getVelocity());
+      try (PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(outFile), StandardCharsets.UTF_8))) {
+        writer.write(out, insts, file.getName());
+        if (out.checkError()) {
+          r.error = "Error writing " + outFile.getName();
+        }
+      } catch (IOException ex) {
+        r.error = ex.getMessage();
+        return r;
+      }
+      r.outputs.add(outFile);
+      r.instructions += insts.size();
+      r.gLines += writer.getLineCount();
+    }
+    r.gCodeMillis = (System.nanoTime() - start) / 1000000;
+    return r;
+  }
+
+  /**
+   * Stream, validate and build all the top objects from the given file.
+   *
+   * @param file xml file
+   * @param r result which receives the timing of each section
+   * @return top object
+   * @throws IOException if the file can't be read
+   * @throws SAXException if the file isn't valid
+   */
+  public COrnTopObject load(File file, Result r) throws IOException, SAXException {
+    BatchErrorHandler errHandler = new BatchErrorHandler();
+    COrnStreamLoader loader = new COrnStreamLoader((publicId, systemId) -> {
+      for (int i = 0; i < PUBLIC_IDS.length; i++) {
+        if (PUBLIC_IDS[i].equals(publicId)) {
+          InputStream in = COrnFileDataObject.class.getResourceAsStream(DTDS[i]);
+          if (in != null) {
+            InputSource source = new InputSource(in);
+            source.setPublicId(publicId);
+            return source;
+          }
+        }
+      }
+      return null;    // let the parser try the system id
+    }, errHandler);
+    COrnTopObject topObject;
+    try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+      topObject = loader.load(in);
+    }
+    if (topObject == null) {
+      throw new SAXException(errHandler.message);
+    }
+    r.timing = loader.getTimingSummary();
+    return topObject;
+  }
+
+  /**
+   * Run the batch from the command line.
+   *
+   * @param args command line arguments
+   */
+  public static void main(String[] args) {
+    BatchGCode batch = new BatchGCode();
+    List<File> files = new ArrayList<>();
+    try {
+      for (int i = 0; i < args.length; i++) {
+        switch (args[i]) {
+          case "-out":
+            batch.setOutputDirectory(new File(args[++i]));
+            break;
+          case "-threads":
+            batch.setThreads(Integer.parseInt(args[++i]));
+            break;
+          case "-stepsPerRotation":
+            batch.setStepsPerRotation(Integer.parseInt(args[++i]));
+            break;
+          case "-stepsPerInch":
+            batch.setStepsPerInch(Double.parseDouble(args[++i]));
+            break;
+          default:
+            File f = new File(args[i]);
+            if (f.isDirectory()) {
+              File[] xmlFiles = f.listFiles((dir, name) -> name.toLowerCase().endsWith(".xml"));
+              if (xmlFiles != null) {
+                Arrays.sort(xmlFiles);
+                files.addAll(Arrays.asList(xmlFiles));
+              }
+            } else {
+              files.add(f);
+            }
+        }
+      }
+    } catch (ArrayIndexOutOfBoundsException | NumberFormatException ex) {
+      files.clear();
+    }
+    if (files.isEmpty()) {
+      System.err.println("Usage: BatchGCode [-out dir] [-threads n] [-stepsPerRotation n] [-stepsPerInch x] file-or-directory ...");
+      System.exit(2);
+    }
+
+    long start = System.nanoTime();
+    List<Result> results = batch.process(files);
+    int nErrors = 0, nCutPoints = 0, nInst = 0, nLines = 0, nOutputs = 0;
+    for (Result r : results) {
+      System.out.println(r);
+      if (r.error != null) {
+        nErrors++;
+      }
+      nCutPoints += r.cutPoints;
+      nInst += r.instructions;
+      nLines += r.gLines;
+      nOutputs += r.outputs.size();
+    }
+    System.out.println("Total: " + results.size() + " files, "
+        + nErrors + " errors, "
+        + nOutputs + " g-code files, "
+        + nCutPoints + " cut points, "
+        + nInst + " instructions, "
+        + nLines + " g-code lines, "
+        + ((System.nanoTime() - start) / 1000000) + " ms");
+    System.exit(nErrors == 0 ? 0 : 1);
+  }
+
+  /**
+   * Statistics from processing a single file.
+   */
+  public static class Result {
+
+    /** The xml file. */
+    public final File file;
+    /** G-code files that were written. */
+    public final List<File> outputs = new ArrayList<>();
+    /** Error message (or null if there was no error). */
+    public String error = null;
+    /** Number of cut points. */
+    public int cutPoints = 0;
+    /** Number of pseudo-instructions. */
+    public int instructions = 0;
+    /** Number of g-code lines. */
+    public int gLines = 0;
+    /** Time to parse the file and build the objects. */
+    public long parseMillis = 0;
+    /** Time to read each section of the file. */
+    public String timing = "";
+    /** Time to make the instructions and write the g-code. */
+    public long gCodeMillis = 0;
+
+    Result(File file) {
+      this.file = file;
+    }
+
+    @Override
+    public String toString() {
+      return file.getName() + ": "
+          + ((error == null) ? "" : error + ", ")
+          + cutPoints + " cut points, "
+          + instructions + " instructions, "
+          + gLines + " g-code lines, "
+          + outputs.size() + " g-code files, "
+          + "parse " + parseMillis + " ms" + (timing.isEmpty() ? "" : " (" + timing + ")") + ", "
+          + "g-code " + gCodeMillis + " ms";
+    }
+  }
+
+  /**
+   * Collect parse warnings and errors rather than showing them in a dialog.
+   */
+  private static class BatchErrorHandler implements ErrorHandler {
+
+    /** Cumulative message. */
+    private String message = "";
+    /** True: error or fatal error occurred. */
+    private boolean error = false;
+
+    @Override
+    public void warning(SAXParseException exception) throws SAXException {
+      // warnings are ignored in batch
+    }
+
+    @Override
+    public void error(SAXParseException exception) throws SAXException {
+      message += "ERROR: Line=" + exception.getLineNumber() + ": " + exception.getMessage() + " ";
+      error = true;
+    }
+
+    @Override
+    public void fatalError(SAXParseException exception) throws SAXException {
+      message += "FATAL ERROR: Line=" + exception.getLineNumber() + ": " + exception.getMessage() + " ";
+      error = true;
+    }
+  }
+}
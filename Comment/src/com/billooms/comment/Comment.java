@@ -2,8 +2,8 @@ package com.billooms.comment;
 
 import com.billooms.clclass.CLUtilities;
 import com.billooms.clclass.CLclass;
+import com.billooms.clclass.XMLWriter;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import org.w3c.dom.Element;
 
 /**
@@ -90,9 +90,9 @@ public class Comment extends CLclass {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
+  public void writeXML(XMLWriter out) {
     if (!isEmpty()) {
-      out.println(indent + "<Comment text='" + text + "'/>");
+      out.println(out.indent() + "<Comment text='" + text + "'/>");
     }
   }
 
@@ -3,8 +3,8 @@ package com.billooms.controls;
 import com.billooms.clclass.CLUtilities;
 import com.billooms.clclass.CLclass;
 import static com.billooms.controls.Controls.PROP_PREFIX;
+import com.billooms.clclass.XMLWriter;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import org.w3c.dom.Element;
 
 /**
@@ -295,17 +295,17 @@ public class CoarseFine extends CLclass {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
+  public void writeXML(XMLWriter out) {
     String optional = "";
     if (softLift) {
       optional += " softLift='" + softLift + "'"
-          + " softLiftHeight='" + F4.format(softLiftHeight) + "'"
-          + " softLiftDeg='" + F1.format(softLiftDeg) + "'";
+          + " softLiftHeight='" + out.f4(softLiftHeight) + "'"
+          + " softLiftDeg='" + out.f1(softLiftDeg) + "'";
     }
-    out.println(indent + "<CoarseFine "
-        + " passDepth='" + F4.format(passDepth) + "'"
+    out.println(out.indent() + "<CoarseFine "
+        + " passDepth='" + out.f4(passDepth) + "'"
         + " passStep='" + passStep + "'"
-        + " lastDepth='" + F4.format(lastDepth) + "'"
+        + " lastDepth='" + out.f4(lastDepth) + "'"
         + " lastStep='" + lastStep + "'"
         + " rotation='" + rotation.toString() + "'"
         + optional
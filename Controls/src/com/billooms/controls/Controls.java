@@ -2,8 +2,8 @@ package com.billooms.controls;
 
 import com.billooms.clclass.CLUtilities;
 import com.billooms.clclass.CLclass;
+import com.billooms.clclass.XMLWriter;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
@@ -158,15 +158,15 @@ public class Controls extends CLclass {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
-    out.println(indent + "<Controls"
+  public void writeXML(XMLWriter out) {
+    out.println(out.indent() + "<Controls"
         + " active='" + kind.toString() + "'"
         + ">");
-    indentMore();
+    out.indentMore();
     feedRate.writeXML(out);
     active.writeXML(out);
-    indentLess();
-    out.println(indent + "</Controls>");
+    out.indentLess();
+    out.println(out.indent() + "</Controls>");
   }
 
   @Override
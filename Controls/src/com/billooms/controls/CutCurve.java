@@ -3,8 +3,8 @@ package com.billooms.controls;
 import com.billooms.clclass.CLUtilities;
 import com.billooms.clclass.CLclass;
 import static com.billooms.controls.Controls.PROP_PREFIX;
+import com.billooms.clclass.XMLWriter;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import org.w3c.dom.Element;
 
 /**
@@ -267,15 +267,15 @@ public class CutCurve extends CLclass {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
-    out.println(indent + "<CutCurve"
-        + " step='" + F4.format(step) + "'"
-        + " backoff='" + F4.format(backoff) + "'"
+  public void writeXML(XMLWriter out) {
+    out.println(out.indent() + "<CutCurve"
+        + " step='" + out.f4(step) + "'"
+        + " backoff='" + out.f4(backoff) + "'"
         + " direction='" + direction.toString() + "'"
         + " count1='" + count1 + "'"
-        + " depth1='" + F4.format(depth1) + "'"
+        + " depth1='" + out.f4(depth1) + "'"
         + " count2='" + count2 + "'"
-        + " depth2='" + F4.format(depth2) + "'"
+        + " depth2='" + out.f4(depth2) + "'"
         + "/>");
   }
 
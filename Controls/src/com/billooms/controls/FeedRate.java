@@ -3,8 +3,8 @@ package com.billooms.controls;
 import com.billooms.clclass.CLUtilities;
 import com.billooms.clclass.CLclass;
 import static com.billooms.controls.Controls.PROP_PREFIX;
+import com.billooms.clclass.XMLWriter;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import org.w3c.dom.Element;
 
 /**
@@ -114,10 +114,10 @@ public class FeedRate extends CLclass {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
-    out.println(indent + "<FeedRate"
-        + " rpm='" + F2.format(rpm) + "'"
-        + " velocity='" + F2.format(velocity) + "'"
+  public void writeXML(XMLWriter out) {
+    out.println(out.indent() + "<FeedRate"
+        + " rpm='" + out.f2(rpm) + "'"
+        + " velocity='" + out.f2(velocity) + "'"
         + "/>");
   }
 
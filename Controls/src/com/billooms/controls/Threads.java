@@ -3,8 +3,8 @@ package com.billooms.controls;
 import com.billooms.clclass.CLUtilities;
 import com.billooms.clclass.CLclass;
 import static com.billooms.controls.Controls.PROP_PREFIX;
+import com.billooms.clclass.XMLWriter;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import org.w3c.dom.Element;
 
 /**
@@ -132,8 +132,8 @@ public class Threads extends CLclass {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
-    out.println(indent + "<Threads"
+  public void writeXML(XMLWriter out) {
+    out.println(out.indent() + "<Threads"
         + " tpi='" + tpi + "'"
         + " starts='" + starts + "'"
         + " percent='" + percent + "'"
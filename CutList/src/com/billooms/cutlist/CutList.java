@@ -82,6 +82,17 @@ public class CutList {
     return Collections.unmodifiableList(list);
   }
 
+  /**
+   * Add instructions that were made earlier (for example, a copy of part of
+   * getAll()) to the end of the list. Note: this does NOT fire a
+   * PropertyChange!
+   *
+   * @param insts instructions
+   */
+  public void append(List<Inst> insts) {
+    list.addAll(insts);
+  }
+
   /**
    * Pop the first instruction from the list and remove it. Note: this does NOT
    * fire a PropertyChange!
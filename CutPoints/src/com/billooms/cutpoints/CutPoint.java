@@ -2,17 +2,18 @@ package com.billooms.cutpoints;
 
 import com.billooms.clclass.CLUtilities;
 import com.billooms.clclass.CLclass;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.controls.CoarseFine;
 import com.billooms.cutlist.CutList;
 import com.billooms.cutpoints.surface.Line3D;
+import com.billooms.cutpoints.surface.RenderProgress;
 import com.billooms.cutpoints.surface.Surface;
 import com.billooms.cutters.Cutter;
 import com.billooms.cutters.Cutters;
 import com.billooms.cutters.Frame;
 import com.billooms.drawables.Drawable;
 import com.billooms.drawables.geometry.CircleGeom;
-import com.billooms.drawables.geometry.Intersection2;
-import com.billooms.drawables.geometry.LineGeom;
+import com.billooms.drawables.geometry.SegmentIndex;
 import com.billooms.drawables.simple.Curve;
 import com.billooms.drawables.simple.Text;
 import com.billooms.drawables.simple.Text.Justify;
@@ -21,11 +22,11 @@ import com.billooms.outline.Outline;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import java.util.ArrayList;
-import javax.swing.ProgressMonitor;
+import java.util.List;
 import org.openide.util.Lookup;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
@@ -99,6 +100,8 @@ public abstract class CutPoint extends CLclass {
   protected final Outline outline;
   /** CutList for instructions. */
   protected CutList cutList = Lookup.getDefault().lookup(CutList.class);
+  /** Most recent result of findIntersect (reused for the same circle and curve). */
+  private volatile IntersectResult lastIntersect = null;
 
   /**
    * Construct a new CutPoint from the given DOM Element.
@@ -184,6 +187,35 @@ public abstract class CutPoint extends CLclass {
     }
   }
 
+  /**
+   * Get the area that paint(g2d) would cover, in the pixels of the given
+   * Graphics2D.
+   *
+   * @param g2d Graphics2D as it would be painted
+   * @return area in pixels (or null if it isn't known)
+   */
+  public Rectangle getPaintBounds(Graphics2D g2d) {
+    Rectangle bounds = pt.getPaintBounds(g2d);
+    for (Drawable d : drawList) {
+      bounds = addBounds(bounds, d.getPaintBounds(g2d));
+    }
+    return bounds;
+  }
+
+  /**
+   * Add an area to the given area.
+   *
+   * @param bounds area in pixels (or null if it isn't known)
+   * @param more area to add (or null if it isn't known)
+   * @return area covering both (or null if either isn't known)
+   */
+  protected static Rectangle addBounds(Rectangle bounds, Rectangle more) {
+    if ((bounds == null) || (more == null)) {
+      return null;
+    }
+    return bounds.union(more);
+  }
+
   @Override
   public String toString() {
     return num + ": " + F3.format(pt.getX()) + " " + F3.format(pt.getZ()) + " d:" + F3.format(cutDepth);
@@ -458,6 +490,20 @@ public abstract class CutPoint extends CLclass {
     pcs.firePropertyChange(PROP_DEPTH, old, cutDepth);
   }
 
+  /**
+   * Set one step of a spiral into this CutPoint without making drawables or
+   * firing property changes. This is only for the working copy that a
+   * SpiralCut cuts its steps with, which has been cleared so that it doesn't
+   * listen to anything and nothing listens to it.
+   *
+   * @param steps steps of the spiral
+   * @param i index of the step
+   */
+  void setStep(SpiralSteps steps, int i) {
+    pt.move(steps.getX(i), steps.getZ(i));    // nothing is listening to the Pt
+    cutDepth = steps.getDepth(i);
+  }
+
   /**
    * Get the separation from this point to the specified point.
    *
@@ -471,16 +517,17 @@ public abstract class CutPoint extends CLclass {
   /**
    * String with xml information that is common to all CutPoints.
    *
+   * @param out XMLWriter (for formatting numbers)
    * @return string
    */
-  protected String xmlCutPointInfo() {
+  protected String xmlCutPointInfo(XMLWriter out) {
     String str = "";
     str += " n='" + num + "'";
     if (!snap) {
       str += " snap='false'";
     }
     str += " cutter='" + cutter.getName() + "'";
-    str += " depth='" + F4.format(cutDepth) + "'";
+    str += " depth='" + out.f4(cutDepth) + "'";
     return str;
   }
 
@@ -501,7 +548,7 @@ public abstract class CutPoint extends CLclass {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
+  public void writeXML(XMLWriter out) {
     pt.writeXML(out);
   }
 
@@ -509,9 +556,40 @@ public abstract class CutPoint extends CLclass {
    * Cut the surface with the CutPoint.
    *
    * @param surface surface
-   * @param monitor progress monitor which can be canceled
+   * @param monitor progress and cancellation token
+   */
+  public abstract void cutSurface(Surface surface, RenderProgress monitor);
+
+  /**
+   * Get the number of times that the cut of this CutPoint repeats exactly
+   * around the spindle. The Surface uses this to cut only part of the way
+   * around and copy the rest.
+   *
+   * @return number of exact repeats (1 if there is no symmetry, 0 if nothing
+   * is cut)
    */
-  public abstract void cutSurface(Surface surface, ProgressMonitor monitor);
+  public int getSymmetry() {
+    return 1;
+  }
+
+  /**
+   * Get the symmetry of a set of index positions with a mask.
+   *
+   * @param repeat number of index positions
+   * @param mask mask ('0' means no cut at that position, blank for no mask)
+   * @return number of exact repeats (1 if there is no symmetry)
+   */
+  protected static int maskSymmetry(int repeat, String mask) {
+    String fullMask = mask;
+    while (!mask.isEmpty() && (fullMask.length() < repeat)) {
+      fullMask += mask;	// fill out to full length
+    }
+    List<Boolean> cuts = new ArrayList<>();
+    for (int i = 0; i < repeat; i++) {
+      cuts.add(mask.isEmpty() || (fullMask.charAt(i) != '0'));
+    }
+    return CLUtilities.symmetry(cuts);
+  }
 
   /**
    * Make instructions for this CutPoint
@@ -563,6 +641,9 @@ public abstract class CutPoint extends CLclass {
    * Find the points on the given circle that intersect with the curve. Note:
    * this is to be used with HCF only.
    *
+   * The result is kept and reused for the same circle and curve, so don't
+   * change the points.
+   *
    * @param circle circle of a cut
    * @param curve Curve
    * @return two points (or null if they don't intersect)
@@ -574,75 +655,17 @@ public abstract class CutPoint extends CLclass {
     if (circle == null) {
       return null;
     }
-    Point2D.Double[] pts = curve.getPoints();
-    if (pts.length < 2) {
-      return null;
-    }
-
-    ArrayList<Point2D.Double> iPts = new ArrayList<>();
-    Intersection2 isect;
-    for (int i = 0; i < pts.length - 1; i++) {
-      final Point2D.Double p0 = pts[i];
-      final Point2D.Double p1 = pts[i + 1];
-      isect = new Intersection2(new LineGeom(p0, p1), circle);
-      if (isect.p0 != null) {
-        if (ptOnSegment(isect.p0, p0, p1)) {
-          iPts.add(isect.p0);
-        }
-      }
-      if (isect.p1 != null) {
-        if (ptOnSegment(isect.p1, p0, p1)) {
-          iPts.add(isect.p1);
-        }
-      }
-    }
-    if (iPts.isEmpty()) {
+    SegmentIndex index = curve.getSegmentIndex();
+    if (index.size() < 2) {
       return null;
     }
-    if (iPts.size() == 1) {
-      if (circle.isInside(pts[0])) {
-        iPts.add(0, pts[0]);			// add the first point on the curve
-      } else if (circle.isInside(pts[pts.length - 1])) {
-        iPts.add(pts[pts.length - 1]);	// add the last point on the curve
-      } else {
-        return null;
-      }
-    }
-//    return (Point2D.Double[]) iPts.toArray();   // TODO: what's wrong with this?
-    Point2D.Double[] p = new Point2D.Double[2];
-    p[0] = iPts.get(0);
-    p[1] = iPts.get(iPts.size() - 1);
-    return p;
-  }
-
-  /**
-   * Is the point p between points p0 and p1 (inclusive)?
-   *
-   * @param p given point
-   * @param p0 starting point
-   * @param p1 ending point
-   * @return true=point is between p0 and p1, else false
-   */
-  private boolean ptOnSegment(Point2D.Double p, Point2D.Double p0, Point2D.Double p1) {
-    if (p0.x < p1.x) {
-      if ((p.x < p0.x) || (p.x > p1.x)) {
-        return false;
-      }
-    } else {
-      if ((p.x < p1.x) || (p.x > p0.x)) {
-        return false;
-      }
-    }
-    if (p0.y < p1.y) {
-      if ((p.y < p0.y) || (p.y > p1.y)) {
-        return false;
-      }
-    } else {
-      if ((p.y < p1.y) || (p.y > p0.y)) {
-        return false;
-      }
+    IntersectResult last = lastIntersect;
+    if ((last != null) && last.matches(index, circle)) {
+      return last.pts;
     }
-    return true;
+    Point2D.Double[] pts = index.intersect(circle);
+    lastIntersect = new IntersectResult(index, circle, pts);
+    return pts;
   }
 
   /**
@@ -795,4 +818,26 @@ public abstract class CutPoint extends CLclass {
     return y1 + (y2 - y1)/(x2 - x1) * (x - x1);
   }
   
+  /**
+   * A result of findIntersect and what it was found from. The curve's segment
+   * index is replaced whenever its points change.
+   */
+  private static class IntersectResult {
+
+    private final SegmentIndex index;
+    private final double x, y, r;
+    private final Point2D.Double[] pts;
+
+    IntersectResult(SegmentIndex index, CircleGeom circle, Point2D.Double[] pts) {
+      this.index = index;
+      this.x = circle.p.x;
+      this.y = circle.p.y;
+      this.r = circle.r;
+      this.pts = pts;
+    }
+
+    boolean matches(SegmentIndex index, CircleGeom circle) {
+      return (this.index == index) && (x == circle.p.x) && (y == circle.p.y) && (r == circle.r);
+    }
+  }
 }
@@ -1,10 +1,10 @@
 package com.billooms.cutpoints;
 
 import com.billooms.clclass.CLclass;
-import static com.billooms.clclass.CLclass.indent;
-import static com.billooms.clclass.CLclass.indentLess;
-import static com.billooms.clclass.CLclass.indentMore;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.controls.CoarseFine;
+import com.billooms.cutlist.CutList;
+import com.billooms.cutlist.Inst;
 import com.billooms.cutpoints.surface.Line3D;
 import com.billooms.cutters.Cutter;
 import com.billooms.cutters.Cutters;
@@ -15,13 +15,15 @@ import com.billooms.patterns.Patterns;
 import java.awt.Graphics2D;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import javafx.geometry.Point3D;
 import org.openide.util.Exceptions;
+import org.openide.util.Lookup;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
@@ -70,6 +72,8 @@ public class CutPoints extends CLclass {
   private final Outline outline;
   /** Saved copy of the Pattern Manager. */
   private final Patterns patMgr;
+  /** Instructions made last time for each CutPoint. */
+  private final Map<CutPoint, Segment> instCache = new WeakHashMap<>();
 
   /**
    * Construct an empty CutPoint manager.
@@ -101,36 +105,53 @@ public class CutPoints extends CLclass {
     NodeList childNodes = element.getChildNodes();
     for (int i = 0; i < childNodes.getLength(); i++) {
       if (childNodes.item(i) instanceof Element) {
-        Element profElement = (Element) childNodes.item(i);
-        if (profElement.getTagName().equals("GoToPoint")) {
-          list.add(new GoToPoint(profElement, cutMgr, outline));
-        }
-        if (profElement.getTagName().equals("IndexPoint")) {
-          list.add(new IndexPoint(profElement, cutMgr, outline));
-        }
-        if (profElement.getTagName().equals("PiercePoint")) {
-          list.add(new PiercePoint(profElement, cutMgr, outline));
-        }
-        if (profElement.getTagName().equals("RosettePoint")) {
-          list.add(new RosettePoint(profElement, cutMgr, outline, patMgr));
-        }
-        if (profElement.getTagName().equals("SpiralIndex")) {
-          list.add(new SpiralIndex(profElement, cutMgr, outline));
-        }
-        if (profElement.getTagName().equals("SpiralRosette")) {
-          list.add(new SpiralRosette(profElement, cutMgr, outline, patMgr));
-        }
-        if (profElement.getTagName().equals("SpiralLine")) {
-          list.add(new SpiralLine(profElement, cutMgr, outline, patMgr));
-        }
-        if (profElement.getTagName().equals("PatternPoint")) {
-          list.add(new PatternPoint(profElement, cutMgr, outline, patMgr));
-        }
-        if (profElement.getTagName().equals("OffsetGroup")) {
-          list.add(new OffsetGroup(profElement, cutMgr, outline, patMgr));
-        }
+        readCutPoint((Element) childNodes.item(i));
       }
     }
+    finishRead();
+  }
+
+  /**
+   * Read a single CutPoint from the given DOM Element and add it to the end of
+   * the list. This lets a file be loaded one CutPoint at a time. Call
+   * finishRead() after the last one has been read.
+   *
+   * @param profElement DOM Element for a single CutPoint
+   */
+  public void readCutPoint(Element profElement) {
+    if (profElement.getTagName().equals("GoToPoint")) {
+      list.add(new GoToPoint(profElement, cutterMgr, outline));
+    }
+    if (profElement.getTagName().equals("IndexPoint")) {
+      list.add(new IndexPoint(profElement, cutterMgr, outline));
+    }
+    if (profElement.getTagName().equals("PiercePoint")) {
+      list.add(new PiercePoint(profElement, cutterMgr, outline));
+    }
+    if (profElement.getTagName().equals("RosettePoint")) {
+      list.add(new RosettePoint(profElement, cutterMgr, outline, patMgr));
+    }
+    if (profElement.getTagName().equals("SpiralIndex")) {
+      list.add(new SpiralIndex(profElement, cutterMgr, outline));
+    }
+    if (profElement.getTagName().equals("SpiralRosette")) {
+      list.add(new SpiralRosette(profElement, cutterMgr, outline, patMgr));
+    }
+    if (profElement.getTagName().equals("SpiralLine")) {
+      list.add(new SpiralLine(profElement, cutterMgr, outline, patMgr));
+    }
+    if (profElement.getTagName().equals("PatternPoint")) {
+      list.add(new PatternPoint(profElement, cutterMgr, outline, patMgr));
+    }
+    if (profElement.getTagName().equals("OffsetGroup")) {
+      list.add(new OffsetGroup(profElement, cutterMgr, outline, patMgr));
+    }
+  }
+
+  /**
+   * Finish reading CutPoints: renumber and listen to each CutPoint.
+   */
+  public void finishRead() {
     renumber();	// just in case any were not numbered correctly
     list.stream().forEach((cp) -> {
       cp.addPropertyChangeListener(this);   // listen to each CutPoint
@@ -149,9 +170,21 @@ public class CutPoints extends CLclass {
    * @param cutter Cutter (or null for all CutPoints)
    */
   public void paint(Graphics2D g2d, Cutter cutter) {
+    paint(g2d, cutter, null);
+  }
+
+  /**
+   * Draw all CutPoints for the given cutter, or all cutters if null, except
+   * for one (such as a CutPoint that is being dragged and is drawn separately).
+   *
+   * @param g2d Graphics2D
+   * @param cutter Cutter (or null for all CutPoints)
+   * @param except CutPoint not to draw (or null to draw them all)
+   */
+  public void paint(Graphics2D g2d, Cutter cutter, CutPoint except) {
     if (!list.isEmpty()) {
       for (CutPoint cp : list) {
-        if (cp.isVisible() && cutPtMatchesCutter(cp, cutter)) {
+        if ((cp != except) && cp.isVisible() && cutPtMatchesCutter(cp, cutter)) {
           cp.paint(g2d);
         }
       }
@@ -358,6 +391,24 @@ public class CutPoints extends CLclass {
     return list.isEmpty();
   }
 
+  /**
+   * Get the cutter manager used by these CutPoints.
+   *
+   * @return cutter manager
+   */
+  public Cutters getCutterMgr() {
+    return cutterMgr;
+  }
+
+  /**
+   * Get the pattern manager used by these CutPoints.
+   *
+   * @return pattern manager
+   */
+  public Patterns getPatternMgr() {
+    return patMgr;
+  }
+
   /**
    * Get the size of the CutPointList.
    *
@@ -645,13 +696,18 @@ public class CutPoints extends CLclass {
    * Snap all CutPoints to their respective cutter path curve.
    */
   public void snapAllCutPoints() {
-    for (Cutter cutter : cutterMgr.getAllCutters()) {
-      for (CutPoint c : getAll(cutter)) {
-        c.snapToCurve();
-        if (c instanceof SpiralCut) {
-          ((SpiralCut) c).getBeginPoint().snapToCurve();
+    beginChanges();     // listeners hear about this once
+    try {
+      for (Cutter cutter : cutterMgr.getAllCutters()) {
+        for (CutPoint c : getAll(cutter)) {
+          c.snapToCurve();
+          if (c instanceof SpiralCut) {
+            ((SpiralCut) c).getBeginPoint().snapToCurve();
+          }
         }
       }
+    } finally {
+      commitChanges();
     }
   }
 
@@ -666,24 +722,29 @@ public class CutPoints extends CLclass {
     if (list.isEmpty()) {
       return;
     }
-    for (CutPoint c : list) {			// move the cutPoints
-      c.invert();
-      if (c instanceof SpiralCut) {
-        CutPoint beginPt = ((SpiralCut) c).getBeginPoint();
-        beginPt.drag(new Point2D.Double(beginPt.getX(), -beginPt.getZ()));
-        for (int i = 0; i < ((SpiralCut) c).getNumGoTos(); i++) {
-          GoToPoint goToPt = ((SpiralCut) c).getGoToPoint(i);
-          goToPt.drag(new Point2D.Double(goToPt.getX(), -goToPt.getZ()));
+    beginChanges();     // listeners hear about this once
+    try {
+      for (CutPoint c : list) {			// move the cutPoints
+        c.invert();
+        if (c instanceof SpiralCut) {
+          CutPoint beginPt = ((SpiralCut) c).getBeginPoint();
+          beginPt.drag(new Point2D.Double(beginPt.getX(), -beginPt.getZ()));
+          for (int i = 0; i < ((SpiralCut) c).getNumGoTos(); i++) {
+            GoToPoint goToPt = ((SpiralCut) c).getGoToPoint(i);
+            goToPt.drag(new Point2D.Double(goToPt.getX(), -goToPt.getZ()));
+          }
         }
-      }
-      if (c instanceof OffsetGroup) {
-        for (int i = 0; i < ((OffsetGroup) c).getNumCutPoints(); i++) {
-          CutPoint cPt = ((OffsetGroup) c).getCutPoint(i);
-          cPt.drag(new Point2D.Double(cPt.getX(), -cPt.getZ()));
+        if (c instanceof OffsetGroup) {
+          for (int i = 0; i < ((OffsetGroup) c).getNumCutPoints(); i++) {
+            CutPoint cPt = ((OffsetGroup) c).getCutPoint(i);
+            cPt.drag(new Point2D.Double(cPt.getX(), -cPt.getZ()));
+          }
         }
       }
+      pcs.firePropertyChange(PROP_MULTI, null, null);
+    } finally {
+      commitChanges();
     }
-    pcs.firePropertyChange(PROP_MULTI, null, null);
   }
 
   /**
@@ -703,24 +764,29 @@ public class CutPoints extends CLclass {
     if ((factor < 0.1) && (factor > 10.0) && (factor == 1.0)) {
       return;
     }
-    for (CutPoint c : list) {			// move the cutPoints
-      c.scale(factor);
-      if (c instanceof SpiralCut) {
-        CutPoint beginPt = ((SpiralCut) c).getBeginPoint();
-        beginPt.drag(new Point2D.Double(beginPt.getX() * factor, beginPt.getZ() * factor));
-        for (int i = 0; i < ((SpiralCut) c).getNumGoTos(); i++) {
-          GoToPoint goToPt = ((SpiralCut) c).getGoToPoint(i);
-          goToPt.drag(new Point2D.Double(goToPt.getX() * factor, goToPt.getZ() * factor));
+    beginChanges();     // listeners hear about this once
+    try {
+      for (CutPoint c : list) {			// move the cutPoints
+        c.scale(factor);
+        if (c instanceof SpiralCut) {
+          CutPoint beginPt = ((SpiralCut) c).getBeginPoint();
+          beginPt.drag(new Point2D.Double(beginPt.getX() * factor, beginPt.getZ() * factor));
+          for (int i = 0; i < ((SpiralCut) c).getNumGoTos(); i++) {
+            GoToPoint goToPt = ((SpiralCut) c).getGoToPoint(i);
+            goToPt.drag(new Point2D.Double(goToPt.getX() * factor, goToPt.getZ() * factor));
+          }
         }
-      }
-      if (c instanceof OffsetGroup) {
-        for (int i = 0; i < ((OffsetGroup) c).getNumCutPoints(); i++) {
-          CutPoint cPt = ((OffsetGroup) c).getCutPoint(i);
-          cPt.drag(new Point2D.Double(cPt.getX() * factor, cPt.getZ() * factor));
+        if (c instanceof OffsetGroup) {
+          for (int i = 0; i < ((OffsetGroup) c).getNumCutPoints(); i++) {
+            CutPoint cPt = ((OffsetGroup) c).getCutPoint(i);
+            cPt.drag(new Point2D.Double(cPt.getX() * factor, cPt.getZ() * factor));
+          }
         }
       }
+      pcs.firePropertyChange(PROP_MULTI, null, null);
+    } finally {
+      commitChanges();
     }
-    pcs.firePropertyChange(PROP_MULTI, null, null);
   }
 
   /**
@@ -735,39 +801,53 @@ public class CutPoints extends CLclass {
     if (list.isEmpty()) {
       return;
     }
-    for (CutPoint c : list) {			// move the cutPoints
-      c.offSetVertical(delta);
-      if (c instanceof SpiralCut) {
-        CutPoint beginPt = ((SpiralCut) c).getBeginPoint();
-        beginPt.drag(new Point2D.Double(beginPt.getX(), beginPt.getZ() - delta));
-        for (int i = 0; i < ((SpiralCut) c).getNumGoTos(); i++) {
-          GoToPoint goToPt = ((SpiralCut) c).getGoToPoint(i);
-          goToPt.drag(new Point2D.Double(goToPt.getX(), goToPt.getZ() - delta));
+    beginChanges();     // listeners hear about this once
+    try {
+      for (CutPoint c : list) {			// move the cutPoints
+        c.offSetVertical(delta);
+        if (c instanceof SpiralCut) {
+          CutPoint beginPt = ((SpiralCut) c).getBeginPoint();
+          beginPt.drag(new Point2D.Double(beginPt.getX(), beginPt.getZ() - delta));
+          for (int i = 0; i < ((SpiralCut) c).getNumGoTos(); i++) {
+            GoToPoint goToPt = ((SpiralCut) c).getGoToPoint(i);
+            goToPt.drag(new Point2D.Double(goToPt.getX(), goToPt.getZ() - delta));
+          }
         }
-      }
-      if (c instanceof OffsetGroup) {
-        for (int i = 0; i < ((OffsetGroup) c).getNumCutPoints(); i++) {
-          CutPoint cPt = ((OffsetGroup) c).getCutPoint(i);
-          cPt.drag(new Point2D.Double(cPt.getX(), cPt.getZ() - delta));
+        if (c instanceof OffsetGroup) {
+          for (int i = 0; i < ((OffsetGroup) c).getNumCutPoints(); i++) {
+            CutPoint cPt = ((OffsetGroup) c).getCutPoint(i);
+            cPt.drag(new Point2D.Double(cPt.getX(), cPt.getZ() - delta));
+          }
         }
       }
+      pcs.firePropertyChange(PROP_MULTI, null, null);
+    } finally {
+      commitChanges();
     }
-    pcs.firePropertyChange(PROP_MULTI, null, null);
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
+  public void writeXML(XMLWriter out) {
     if (!list.isEmpty()) {
-      out.println(indent + "<CutPoints>");
-      indentMore();
+      out.println(out.indent() + "<CutPoints>");
+      out.indentMore();
       list.stream().forEach((cp) -> {
         cp.writeXML(out);    // CutPoints can write out their own xml
       });
-      indentLess();
-      out.println(indent + "</CutPoints>");
+      out.indentLess();
+      out.println(out.indent() + "</CutPoints>");
     }
   }
 
+  @Override
+  protected long computeHash() {
+    long hash = hashString("CutPoints");
+    for (CutPoint cp : list) {
+      hash = combineHash(hash, cp.getContentHash());    // only changed CutPoints are recomputed
+    }
+    return hash;
+  }
+
   @Override
   public void propertyChange(PropertyChangeEvent evt) {
 //    System.out.println("CutPoints.propertyChange " + evt.getSource().getClass().getSimpleName() + " " + evt.getPropertyName() + " " + evt.getOldValue() + " " + evt.getNewValue());
@@ -824,14 +904,55 @@ public class CutPoints extends CLclass {
     if (cPt == null) {
       for (CutPoint cp : getAll(cutter)) {
         if (!(cp instanceof OffsetCut)) {			// no reason to ever generate code for multiple OffsetCutPoint
-          cp.makeInstructions(controls, stepsPerRot);
+          makeInstructions(cp, controls, stepsPerRot);
         }
       }
     } else {
-      cPt.makeInstructions(controls, stepsPerRot);
+      makeInstructions(cPt, controls, stepsPerRot);
     }
   }
 
+  /**
+   * Make the instructions for one CutPoint, re-using the instructions from
+   * last time if nothing that they depend on has changed.
+   *
+   * @param cp CutPoint
+   * @param controls coarse/fine controls
+   * @param stepsPerRot steps per rotation
+   */
+  private void makeInstructions(CutPoint cp, CoarseFine controls, int stepsPerRot) {
+    CutList cutList = Lookup.getDefault().lookup(CutList.class);
+    long key = instructionKey(cp, controls, stepsPerRot);
+    Segment seg = instCache.get(cp);
+    if ((seg != null) && (seg.key == key)) {
+      cutList.append(seg.insts);
+      return;
+    }
+    int start = cutList.length();
+    cp.makeInstructions(controls, stepsPerRot);
+    List<Inst> all = cutList.getAll();
+    instCache.put(cp, new Segment(key, new ArrayList<>(all.subList(start, all.size()))));
+  }
+
+  /**
+   * Make a key from everything that the instructions of a CutPoint depend on.
+   *
+   * @param cp CutPoint
+   * @param controls coarse/fine controls
+   * @param stepsPerRot steps per rotation
+   * @return key
+   */
+  private long instructionKey(CutPoint cp, CoarseFine controls, int stepsPerRot) {
+    long key = combineHash(cp.getContentHash(), cp.getCutter().getContentHash());
+    if (cp.getCutter().getProfile() instanceof CLclass) {
+      key = combineHash(key, ((CLclass) cp.getCutter().getProfile()).getContentHash());
+    }
+    key = combineHash(key, outline.getContentHash());
+    key = combineHash(key, patMgr.getContentHash());
+    key = combineHash(key, controls.getContentHash());
+    return combineHash(key, stepsPerRot);
+  }
+
   /** Delete all CutPoints that have the given cutter (the cutter is already
    * deleted). */
   private synchronized void deletePtsForCutter(String cutterName) {
@@ -858,8 +979,7 @@ public class CutPoints extends CLclass {
     Point3D[] rzcSurface = spiralCutPt.getSurfaceTwist();
     ArrayList<Point3D> xyzSurface = spiralCutPt.toXYZ(rzcSurface);
     // use a much finer resolution cutterPathCurve for smoothness
-    Curve fineCut = outline.getCutterPathCurve(spiralCutPt.getCutter());
-    fineCut.reSample(outline.getResolution() / 10.0);
+    Curve fineCut = spiralCutPt.getFineCutterPath();
     
     // cumLength[] is an array  of cummulative length at each point for interpolation
     double[] cumLength = new double[rzcSurface.length];
@@ -1017,4 +1137,18 @@ public class CutPoints extends CLclass {
     pcs.firePropertyChange(PROP_ADD, null, null);
   }
 
+  /**
+   * The instructions made for a CutPoint and the key they were made with.
+   */
+  private static class Segment {
+
+    private final long key;
+    private final List<Inst> insts;
+
+    Segment(long key, List<Inst> insts) {
+      this.key = key;
+      this.insts = insts;
+    }
+  }
+
 }
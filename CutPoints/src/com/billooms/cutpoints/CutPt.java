@@ -4,6 +4,7 @@ import com.billooms.drawables.Pt;
 import com.billooms.drawables.simple.Plus;
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
 import org.w3c.dom.Element;
@@ -61,6 +62,12 @@ public class CutPt extends Pt {
     }
   }
 
+  @Override
+  public Rectangle getPaintBounds(Graphics2D g2d) {
+    plus.setXY(getX(), getZ());
+    return plus.getPaintBounds(g2d);
+  }
+
   @Override
   public synchronized void setVisible(boolean v) {
     super.setVisible(v);
@@ -1,8 +1,9 @@
 package com.billooms.cutpoints;
 
-import static com.billooms.clclass.CLclass.indent;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.controls.CoarseFine;
 import static com.billooms.cutlist.Speed.*;
+import com.billooms.cutpoints.surface.RenderProgress;
 import com.billooms.cutpoints.surface.Surface;
 import com.billooms.cutters.Cutter;
 import com.billooms.cutters.Cutters;
@@ -10,8 +11,6 @@ import com.billooms.outline.Outline;
 import java.awt.Color;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
-import javax.swing.ProgressMonitor;
 import javax.swing.text.JTextComponent;
 import org.netbeans.spi.palette.PaletteItemRegistration;
 import org.openide.text.*;
@@ -113,22 +112,27 @@ public class GoToPoint extends CutPoint implements ActiveEditorDrop {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
-    out.println(indent + "<GoToPoint"
+  public void writeXML(XMLWriter out) {
+    out.println(out.indent() + "<GoToPoint"
         + " n='" + num + "'"        // no depth or snap
         + " cutter='" + cutter.getName() + "'"
         + ">");
-    indentMore();
+    out.indentMore();
     super.writeXML(out);    // for point
-    indentLess();
-    out.println(indent + "</GoToPoint>");
+    out.indentLess();
+    out.println(out.indent() + "</GoToPoint>");
   }
 
   @Override
-  public synchronized void cutSurface(Surface surface, ProgressMonitor monitor) {
+  public synchronized void cutSurface(Surface surface, RenderProgress monitor) {
     // do nothing for a GoToPoint
   }
 
+  @Override
+  public int getSymmetry() {
+    return 0;     // nothing is cut
+  }
+
   @Override
   protected void make3DLines() {
     // do nothing for a GoToPoint
@@ -1,9 +1,11 @@
 package com.billooms.cutpoints;
 
 import com.billooms.clclass.CLUtilities;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.controls.CoarseFine;
 import static com.billooms.cutlist.Speed.*;
 import com.billooms.cutpoints.surface.Line3D;
+import com.billooms.cutpoints.surface.RenderProgress;
 import com.billooms.cutpoints.surface.RotMatrix.Axis;
 import com.billooms.cutpoints.surface.Surface;
 import com.billooms.cutters.Cutter;
@@ -17,9 +19,7 @@ import com.billooms.outline.Outline;
 import java.awt.Color;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import javafx.geometry.Point3D;
-import javax.swing.ProgressMonitor;
 import javax.swing.text.JTextComponent;
 import org.netbeans.spi.palette.PaletteItemRegistration;
 import org.openide.text.ActiveEditorDrop;
@@ -227,6 +227,12 @@ public class IndexPoint extends CutPoint implements ActiveEditorDrop {
     pcs.firePropertyChange(PROP_PHASE, old, phase);
   }
 
+  @Override
+  void setStep(SpiralSteps steps, int i) {
+    super.setStep(steps, i);
+    this.phase = angleCheck(steps.getPhase(i));
+  }
+
   /**
    * Set the fractional phase shift (in the range 0.0 to 1.0). This fires a
    * PROP_PHASE property change with the old and new values.
@@ -420,22 +426,27 @@ public class IndexPoint extends CutPoint implements ActiveEditorDrop {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
+  public void writeXML(XMLWriter out) {
     String optional = "";
     if (!mask.isEmpty()) {
       optional += " mask='" + mask + "'";
     }
-    out.println(indent + "<IndexPoint"
-        + xmlCutPointInfo()
+    out.println(out.indent() + "<IndexPoint"
+        + xmlCutPointInfo(out)
         + " direction='" + direction.toString() + "'"
         + " repeat='" + repeat + "'"
-        + " phase='" + F1.format(phase) + "'"
+        + " phase='" + out.f1(phase) + "'"
         + optional
         + ">");
-    indentMore();
+    out.indentMore();
     super.writeXML(out);    // for point
-    indentLess();
-    out.println(indent + "</IndexPoint>");
+    out.indentLess();
+    out.println(out.indent() + "</IndexPoint>");
+  }
+
+  @Override
+  public int getSymmetry() {
+    return maskSymmetry(getRepeat(), mask);
   }
 
   /**
@@ -445,7 +456,7 @@ public class IndexPoint extends CutPoint implements ActiveEditorDrop {
    * @param monitor progress monitor which can be canceled
    */
   @Override
-  public synchronized void cutSurface(Surface surface, ProgressMonitor monitor) {
+  public synchronized void cutSurface(Surface surface, RenderProgress monitor) {
     Vector2d cutVectorS = getMoveVector(cutDepth);	// cut direction scaled by depth
     double cutX = getX() + cutVectorS.x;
     double cutZ = getZ() + cutVectorS.y;
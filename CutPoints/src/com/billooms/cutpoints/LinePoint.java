@@ -1,8 +1,10 @@
 package com.billooms.cutpoints;
 
 import com.billooms.clclass.CLUtilities;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.controls.CoarseFine;
 import com.billooms.cutpoints.surface.Line3D;
+import com.billooms.cutpoints.surface.RenderProgress;
 import com.billooms.cutpoints.surface.RotMatrix;
 import com.billooms.cutpoints.surface.Surface;
 import com.billooms.cutters.Cutter;
@@ -17,10 +19,8 @@ import com.billooms.patterns.Patterns;
 import java.awt.Color;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import java.util.ArrayList;
 import javafx.geometry.Point3D;
-import javax.swing.ProgressMonitor;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
@@ -203,6 +203,12 @@ public class LinePoint extends CutPoint {
     pcs.firePropertyChange(PROP_PHASE, old, phase);
   }
 
+  @Override
+  void setStep(SpiralSteps steps, int i) {
+    super.setStep(steps, i);
+    this.phase = steps.getPhase(i);   // When cutting surface, the phase may be negative
+  }
+
   /**
    * Set the fractional phase shift (in the range 0.0 to 1.0). This fires a
    * PROP_PHASE property change with the old and new values.
@@ -317,22 +323,22 @@ public class LinePoint extends CutPoint {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
+  public void writeXML(XMLWriter out) {
     String optional = "";
     if (!mask.isEmpty()) {
       optional += " mask='" + mask + "'";
     }
-    out.println(indent + "<LinePoint"
-        + xmlCutPointInfo()
+    out.println(out.indent() + "<LinePoint"
+        + xmlCutPointInfo(out)
         + " repeat='" + repeat + "'"
-        + " phase='" + F1.format(phase) + "'"
+        + " phase='" + out.f1(phase) + "'"
         + optional
         + ">");
-    indentMore();
+    out.indentMore();
     super.writeXML(out);    // for point
     patternBar.writeXML(out);
-    indentLess();
-    out.println(indent + "</LinePoint>");
+    out.indentLess();
+    out.println(out.indent() + "</LinePoint>");
   }
 
   @Override
@@ -374,7 +380,12 @@ public class LinePoint extends CutPoint {
   }
 
   @Override
-  public synchronized void cutSurface(Surface surface, ProgressMonitor monitor) {
+  public int getSymmetry() {
+    return maskSymmetry(getRepeat(), mask);
+  }
+
+  @Override
+  public synchronized void cutSurface(Surface surface, RenderProgress monitor) {
     Vector2d cutVectorS = getMoveVector(cutDepth);	// cut direction scaled by depth
     double cutX = getX() + cutVectorS.x;
     double cutZ = getZ() + cutVectorS.y;
@@ -1,7 +1,10 @@
 package com.billooms.cutpoints;
 
 import com.billooms.controls.CoarseFine;
+import com.billooms.cutpoints.surface.Pose;
 import com.billooms.cutpoints.surface.Surface;
+import com.billooms.cutpoints.surface.SurfaceCut;
+import java.util.List;
 
 /**
  * Interface defining a CutPoint that can be added to an OffsetGroup.
@@ -32,6 +35,17 @@ public interface OffPoint {
    */
   void cutSurface(Surface surface, double x, double y);
 
+  /**
+   * Add the cuts that this CutPoint would make to the given list instead of
+   * making them, with the surface starting in the given pose.
+   *
+   * @param cuts list of cuts
+   * @param pose pose of the surface
+   * @param x new x-coordinate
+   * @param y new y-coordinate
+   */
+  void addCuts(List<SurfaceCut> cuts, Pose pose, double x, double y);
+
   /**
    * Make instructions for this CutPoint
    *
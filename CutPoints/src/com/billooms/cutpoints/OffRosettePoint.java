@@ -8,7 +8,10 @@ import static com.billooms.cutpoints.CutPoint.ARC_ANGLE;
 import static com.billooms.cutpoints.CutPoints.NUM_3D_PTS;
 import static com.billooms.cutpoints.RosettePoint.ROSETTE_COLOR2;
 import com.billooms.cutpoints.surface.Line3D;
+import com.billooms.cutpoints.surface.Pose;
+import com.billooms.cutpoints.surface.RenderProgress;
 import com.billooms.cutpoints.surface.Surface;
+import com.billooms.cutpoints.surface.SurfaceCut;
 import com.billooms.cutters.Cutter;
 import com.billooms.cutters.Cutters;
 import static com.billooms.drawables.Drawable.LIGHT_DOT;
@@ -21,6 +24,8 @@ import com.billooms.rosette.CompoundRosette;
 import com.billooms.rosette.Rosette;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
+import java.util.ArrayList;
+import java.util.List;
 import javafx.geometry.Point3D;
 import org.w3c.dom.Element;
 
@@ -355,23 +360,26 @@ public class OffRosettePoint extends RosettePoint implements OffPoint {
 
   @Override
   public void cutSurface(Surface surface, double x, double y) {
+    List<SurfaceCut> cuts = new ArrayList<>();
+    addCuts(cuts, Pose.IDENTITY, x, y);
+    surface.cutSurface(cuts, RenderProgress.NONE);
+  }
+
+  @Override
+  public void addCuts(List<SurfaceCut> cuts, Pose pose, double x, double y) {
     Vector2d cutVectorS = getPerpVector(cutDepth).rotate(parent.getTangentAngle());
     double x0 = x + cutVectorS.x;			// cutter location with depth
     double z0 = y + cutVectorS.y;
 
-    // this is where the main work is done
-    int nSectors = surface.numSectors();		// number of sectors around shape
+    int nSectors = Surface.DEFAULT_SECTORS;		// number of sectors around shape
     double dAngle = 360.0 / (double) nSectors;	// angle increment degrees
     Vector2d cutXZ;						// Location of center of cutter
-    double spindleC, lastC = 0.0;
+    double spindleC;
     int count;
     for (count = 0, spindleC = 0.0; count < nSectors; count++, spindleC += dAngle) {
       cutXZ = rosetteMove(spindleC, x0, z0);
-      surface.rotateZ(spindleC - lastC);		// incremental rotate the surface
-      surface.cutSurface(cutter, cutXZ.x, cutXZ.y);
-      lastC = spindleC;
+      cuts.add(new SurfaceCut(cutter, cutXZ.x, cutXZ.y, pose.rotateZ(spindleC)));  // surface rotated on the spindle
     }
-    surface.rotateZ(360.0 - lastC);		// bring it back to the starting point
   }
 
   @Override
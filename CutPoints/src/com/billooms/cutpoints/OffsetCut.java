@@ -1,6 +1,7 @@
 package com.billooms.cutpoints;
 
 import com.billooms.clclass.CLUtilities;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.controls.CoarseFine;
 import com.billooms.cutters.Cutter;
 import com.billooms.cutters.Cutters;
@@ -11,7 +12,6 @@ import com.billooms.rosette.Rosette;
 import java.awt.Color;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import org.w3c.dom.Element;
@@ -105,6 +105,11 @@ public abstract class OffsetCut extends CutPoint {
     return repeat;
   }
 
+  @Override
+  public int getSymmetry() {
+    return Math.max(repeat, 0);   // each repeat is rotated by 360/repeat
+  }
+
   /**
    * Set the number of repeats. Note that this does not call makeDrawables()
    * because the repeat doesn't change anything in the drawables. This fires a
@@ -303,7 +308,7 @@ public abstract class OffsetCut extends CutPoint {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
+  public void writeXML(XMLWriter out) {
     super.writeXML(out);	// for point
   }
 
@@ -1,23 +1,23 @@
 package com.billooms.cutpoints;
 
-import static com.billooms.clclass.CLclass.indent;
-import static com.billooms.clclass.CLclass.indentLess;
-import static com.billooms.clclass.CLclass.indentMore;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.controls.CoarseFine;
 import com.billooms.cutpoints.surface.Line3D;
+import com.billooms.cutpoints.surface.Pose;
+import com.billooms.cutpoints.surface.RenderProgress;
 import com.billooms.cutpoints.surface.RotMatrix;
 import com.billooms.cutpoints.surface.Surface;
+import com.billooms.cutpoints.surface.SurfaceCut;
 import com.billooms.cutters.Cutter;
 import com.billooms.cutters.Cutters;
 import com.billooms.drawables.vecmath.Vector2d;
 import com.billooms.outline.Outline;
 import com.billooms.patterns.Patterns;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.Point2D;
-import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
-import javax.swing.ProgressMonitor;
 import org.netbeans.spi.palette.PaletteItemRegistration;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
@@ -124,6 +124,15 @@ public class OffsetGroup extends OffsetCut {
     });
   }
 
+  @Override
+  public Rectangle getPaintBounds(Graphics2D g2d) {
+    Rectangle bounds = super.getPaintBounds(g2d);
+    for (CutPoint cPt : cpList) {
+      bounds = addBounds(bounds, cPt.getPaintBounds(g2d));
+    }
+    return bounds;
+  }
+
   /**
    * Clear the CutPoint of any propertyChangeListeners.
    */
@@ -308,42 +317,31 @@ public class OffsetGroup extends OffsetCut {
   }
 
   @Override
-  public synchronized void cutSurface(Surface surface, ProgressMonitor monitor) {
+  public synchronized void cutSurface(Surface surface, RenderProgress monitor) {
     if (cpList.isEmpty() || (repeat <= 0)) {
       return;
     }
-    double zRotation = indexOffsetDegrees();
-    if (zRotation != 0.0) {
-      surface.rotateZ(zRotation);			// initial phase rotation
-    }
-    outerloop:
+    // Rather than moving the whole surface for each repeat and back again,
+    // each cut is made with its own pose of the surface. Then all the cuts
+    // can be made at once on separate parts of the surface.
+    List<SurfaceCut> cuts = new ArrayList<>();
+    double zRotation = indexOffsetDegrees();			// initial phase rotation
     for (int i = 0; i < repeat; i++) {
-      if (i > 0) {
-        surface.rotateZ(360.0 / repeat);	// rotate to the next one
-        zRotation += 360.0 / repeat;		// keep track of cumulative rotation
-      }
-      surface.offset(-getX(), 0.0, -getZ());			// move the surface over the offset point
-      surface.rotateY(-getTangentAngle());
-
-      // this is where the main work is done
-      monitor.setProgress(num+1);
-      monitor.setNote("CutPoint " + getNum() + ": " + i + "/" + repeat + "\n");
+      Pose pose = Pose.IDENTITY.rotateZ(zRotation + i * 360.0 / repeat)	// rotate to the next one
+          .offset(-getX(), 0.0, -getZ())			// move the surface over the offset point
+          .rotateY(-getTangentAngle());
       for (CutPoint cPt : cpList) {
         if (cPt instanceof OffRosettePoint) {
           Vector2d offsetPt = offsetForCutPoint(cPt);
-          ((OffRosettePoint) cPt).cutSurface(surface, offsetPt.x, offsetPt.y);			// and cut with it
-        }
-        if (monitor.isCanceled()) {
-          break outerloop;
+          ((OffRosettePoint) cPt).addCuts(cuts, pose, offsetPt.x, offsetPt.y);
         }
       }
-
-      surface.rotateY(getTangentAngle());
-      surface.offset(getX(), 0.0, getZ());	// move the surface back so that the z rotation will be around the center
-    }
-    if (zRotation < 360.0) {
-      surface.rotateZ(360.0 - zRotation);		// this should get you back to original rotation
     }
+
+    // this is where the main work is done
+    monitor.setProgress(num+1);
+    monitor.setNote("CutPoint " + getNum() + ": " + repeat + " repeats\n");
+    surface.cutSurface(cuts, monitor);
   }
 
   /**
@@ -365,19 +363,19 @@ public class OffsetGroup extends OffsetCut {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
-    out.println(indent + "<OffsetGroup"
+  public void writeXML(XMLWriter out) {
+    out.println(out.indent() + "<OffsetGroup"
         + " n='" + num + "'" // no depth or cutter
         + " repeat='" + repeat + "'"
-        + " indexOffset='" + F3.format(indexOffset) + "'"
+        + " indexOffset='" + out.f3(indexOffset) + "'"
         + ">");
-    indentMore();
+    out.indentMore();
     super.writeXML(out);    // for point
     cpList.stream().forEach((cp) -> {
       cp.writeXML(out);
     });
-    indentLess();
-    out.println(indent + "</OffsetGroup>");
+    out.indentLess();
+    out.println(out.indent() + "</OffsetGroup>");
   }
   
   @Override
@@ -1,15 +1,14 @@
 package com.billooms.cutpoints;
 
 import com.billooms.clclass.CLUtilities;
-import static com.billooms.clclass.CLclass.indent;
-import static com.billooms.clclass.CLclass.indentLess;
-import static com.billooms.clclass.CLclass.indentMore;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.controls.CoarseFine;
 import static com.billooms.controls.CoarseFine.Rotation.NEG_LAST;
 import static com.billooms.controls.CoarseFine.Rotation.PLUS_ALWAYS;
 import static com.billooms.cutlist.Speed.*;
 import static com.billooms.cutpoints.CutPoint.NOT_LAST;
 import com.billooms.cutpoints.surface.Line3D;
+import com.billooms.cutpoints.surface.RenderProgress;
 import com.billooms.cutpoints.surface.RotMatrix;
 import com.billooms.cutpoints.surface.Surface;
 import com.billooms.cutters.Cutter;
@@ -26,11 +25,9 @@ import com.billooms.patterns.Patterns;
 import static com.billooms.rosette.Rosette.DEFAULT_PATTERN;
 import java.awt.Color;
 import java.awt.geom.Point2D;
-import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collections;
 import javafx.geometry.Point3D;
-import javax.swing.ProgressMonitor;
 import org.netbeans.spi.palette.PaletteItemRegistration;
 import org.openide.*;
 import org.w3c.dom.Element;
@@ -489,7 +486,7 @@ public class PatternPoint extends OffsetCut {
   }
 
   @Override
-  public synchronized void cutSurface(Surface surface, ProgressMonitor monitor) {
+  public synchronized void cutSurface(Surface surface, RenderProgress monitor) {
     double zRotation = indexOffsetDegrees();
     if (zRotation != 0.0) {
       surface.rotateZ(zRotation);			// initial repeatPhase rotation
@@ -646,28 +643,28 @@ public class PatternPoint extends OffsetCut {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
+  public void writeXML(XMLWriter out) {
     String optional = "";
     if (patternRepeat != 1) {
       optional += " patternRepeat='" + repeat + "'";
     }
     if (phase != 0.0) {
-      optional += " phase='" + F1.format(phase) + "'";
+      optional += " phase='" + out.f1(phase) + "'";
     }
     if (optimize) {
       optional += " optimize='" + optimize + "'";
     }
-    out.println(indent + "<PatternPoint"
-        + xmlCutPointInfo()
+    out.println(out.indent() + "<PatternPoint"
+        + xmlCutPointInfo(out)
         + " repeat='" + repeat + "'"
         + " indexOffset='" + indexOffset + "'"
         + " pattern='" + pattern.getName() + "'"
         + optional
         + ">");
-    indentMore();
+    out.indentMore();
     super.writeXML(out);    // for point
-    indentLess();
-    out.println(indent + "</PatternPoint>");
+    out.indentLess();
+    out.println(out.indent() + "</PatternPoint>");
   }
 
   /**
@@ -1,10 +1,12 @@
 package com.billooms.cutpoints;
 
 import com.billooms.clclass.CLUtilities;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.controls.CoarseFine;
 import static com.billooms.cutlist.Speed.*;
 import static com.billooms.cutpoints.CutPoints.NUM_3D_PTS;
 import com.billooms.cutpoints.surface.Line3D;
+import com.billooms.cutpoints.surface.RenderProgress;
 import com.billooms.cutpoints.surface.Surface;
 import com.billooms.cutters.Cutter;
 import com.billooms.cutters.Cutters;
@@ -16,9 +18,7 @@ import com.billooms.outline.Outline;
 import java.awt.Color;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import javafx.geometry.Point3D;
-import javax.swing.ProgressMonitor;
 import javax.swing.text.JTextComponent;
 import org.netbeans.spi.palette.PaletteItemRegistration;
 import org.openide.text.ActiveEditorDrop;
@@ -257,15 +257,20 @@ public class PiercePoint extends CutPoint implements ActiveEditorDrop {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
-    out.println(indent + "<PiercePoint"
-        + xmlCutPointInfo()
+  public void writeXML(XMLWriter out) {
+    out.println(out.indent() + "<PiercePoint"
+        + xmlCutPointInfo(out)
         + " direction='" + direction.toString() + "'"
         + ">");
-    indentMore();
+    out.indentMore();
     super.writeXML(out);    // for point
-    indentLess();
-    out.println(indent + "</PiercePoint>");
+    out.indentLess();
+    out.println(out.indent() + "</PiercePoint>");
+  }
+
+  @Override
+  public int getSymmetry() {
+    return Surface.DEFAULT_SECTORS;   // the same cut at every sector
   }
 
   /**
@@ -275,7 +280,7 @@ public class PiercePoint extends CutPoint implements ActiveEditorDrop {
    * @param monitor progress monitor which can be canceled
    */
   @Override
-  public synchronized void cutSurface(Surface surface, ProgressMonitor monitor) {
+  public synchronized void cutSurface(Surface surface, RenderProgress monitor) {
     Vector2d cutVectorS = getMoveVector(cutDepth);	// cut direction scaled by depth
     double cutX = getX() + cutVectorS.x;
     double cutZ = getZ() + cutVectorS.y;
@@ -1,11 +1,13 @@
 package com.billooms.cutpoints;
 
 import com.billooms.clclass.CLUtilities;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.controls.CoarseFine;
 import static com.billooms.controls.CoarseFine.Rotation.*;
 import static com.billooms.cutlist.Speed.*;
 import static com.billooms.cutpoints.CutPoints.NUM_3D_PTS;
 import com.billooms.cutpoints.surface.Line3D;
+import com.billooms.cutpoints.surface.RenderProgress;
 import com.billooms.cutpoints.surface.Surface;
 import com.billooms.cutters.Cutter;
 import com.billooms.cutters.Cutters;
@@ -24,11 +26,9 @@ import com.billooms.rosette.Rosette;
 import java.awt.Color;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collections;
 import javafx.geometry.Point3D;
-import javax.swing.ProgressMonitor;
 import javax.swing.text.JTextComponent;
 import org.netbeans.spi.palette.PaletteItemRegistration;
 import org.openide.text.ActiveEditorDrop;
@@ -213,6 +213,22 @@ public class RosettePoint extends CutPoint implements ActiveEditorDrop {
     }
   }
 
+  @Override
+  void setStep(SpiralSteps steps, int i) {
+    super.setStep(steps, i);
+    // the rosettes are copies that nothing listens to once this is cleared
+    if (steps.hasAmp()) {
+      rosette.setPToP(steps.getAmp(i));
+    }
+    rosette.setPhase(steps.getPhase(i));
+    if (motion.usesBoth() && steps.hasPhase2()) {
+      if (steps.hasAmp2()) {
+        rosette2.setPToP(steps.getAmp2(i));
+      }
+      rosette2.setPhase(steps.getPhase2(i));
+    }
+  }
+
   /**
    * Get the motion of the cut.
    *
@@ -554,19 +570,33 @@ public class RosettePoint extends CutPoint implements ActiveEditorDrop {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
-    out.println(indent + "<RosettePoint"
-        + xmlCutPointInfo()
+  public void writeXML(XMLWriter out) {
+    out.println(out.indent() + "<RosettePoint"
+        + xmlCutPointInfo(out)
         + " motion='" + motion.toString() + "'"
         + ">");
-    indentMore();
+    out.indentMore();
     super.writeXML(out);    // for point
     rosette.writeXML(out);
     if (motion.usesBoth()) {
       rosette2.writeXML(out);
     }
-    indentLess();
-    out.println(indent + "</RosettePoint>");
+    out.indentLess();
+    out.println(out.indent() + "</RosettePoint>");
+  }
+
+  @Override
+  public int getSymmetry() {
+    switch (motion) {
+      case PERPTAN:
+      case BOTH:
+        if (rosette2 != null) {
+          return CLUtilities.gcd(rosette.getSymmetry(), rosette2.getSymmetry());
+        }
+        return rosette.getSymmetry();
+      default:
+        return rosette.getSymmetry();
+    }
   }
 
   /**
@@ -576,7 +606,7 @@ public class RosettePoint extends CutPoint implements ActiveEditorDrop {
    * @param monitor progress monitor which can be canceled
    */
   @Override
-  public synchronized void cutSurface(Surface surface, ProgressMonitor monitor) {
+  public synchronized void cutSurface(Surface surface, RenderProgress monitor) {
     Vector2d cutVectorS = getPerpVector(cutDepth);
     double x0 = getX() + cutVectorS.x;			// cutter location with depth
     double z0 = getZ() + cutVectorS.y;
@@ -1,6 +1,8 @@
 package com.billooms.cutpoints;
 
 import com.billooms.clclass.CLUtilities;
+import com.billooms.clclass.XMLWriter;
+import com.billooms.cutpoints.surface.RenderProgress;
 import com.billooms.cutpoints.surface.Surface;
 import com.billooms.cutters.Cutter;
 import com.billooms.cutters.Cutters;
@@ -10,14 +12,15 @@ import com.billooms.drawables.simple.Line;
 import com.billooms.outline.Outline;
 import com.billooms.spirals.Spiral;
 import com.billooms.spirals.SpiralMgr;
+import com.billooms.spirals.SpiralStyle;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import javafx.geometry.Point3D;
-import javax.swing.ProgressMonitor;
 import org.openide.util.Lookup;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
@@ -59,6 +62,12 @@ public abstract class SpiralCut extends CutPoint {
   protected CutPoint beginPt = null;
   /** Internal GoToPoints. */
   protected final ArrayList<GoToPoint> goList = new ArrayList<>();
+  /** Most recent result of getSurfaceTwist (reused until something it depends on changes). */
+  private volatile Reused<Point3D[]> surfaceTwist = null;
+  /** Most recent result of getCutterTwist. */
+  private volatile Reused<Point3D[]> cutterTwist = null;
+  /** Most recent result of getFineCutterPath. */
+  private volatile Reused<Curve> fineCutterPath = null;
 
   /** The Spiral manager. */
   protected final SpiralMgr spiralMgr = Lookup.getDefault().lookup(SpiralMgr.class);
@@ -144,6 +153,18 @@ public abstract class SpiralCut extends CutPoint {
     }
   }
 
+  @Override
+  public Rectangle getPaintBounds(Graphics2D g2d) {
+    Rectangle bounds = super.getPaintBounds(g2d);
+    if (beginPt != null) {
+      bounds = addBounds(bounds, beginPt.getPaintBounds(g2d));
+    }
+    for (GoToPoint gPt : goList) {
+      bounds = addBounds(bounds, gPt.getPaintBounds(g2d));
+    }
+    return bounds;
+  }
+
   @Override
   public void clear() {
     super.clear();
@@ -352,6 +373,7 @@ public abstract class SpiralCut extends CutPoint {
    * The points are a function of curve resolution. 
    * Note: Twist starts at zero, so the twist is relative. You must add
    * the phase of the initial point to these numbers!
+   * The array is reused until the spiral or the curve changes, so don't change it.
    *
    * @return an array of Point3D with x,y from the original pts and z=twist in
    * degrees (or null if there are no points given). Note: In lathe coordinates,
@@ -362,9 +384,20 @@ public abstract class SpiralCut extends CutPoint {
     if (cutSurfaceCurve == null) {
       return null;
     }
-    return spiral.getStyle()
-      .makeSpiral(cutSurfaceCurve.subsetPoints(cutSurfaceCurve.nearestPoint(beginPt.getPos2D()), cutSurfaceCurve.nearestPoint(getPos2D())),
-        spiral.getTwist(), spiral.getAmp());
+    Point2D.Double begin = beginPt.getPos2D();
+    Point2D.Double end = getPos2D();
+    SpiralStyle style = spiral.getStyle();
+    double twist = spiral.getTwist();
+    double amp = spiral.getAmp();
+    List<Object> from = Arrays.asList(cutSurfaceCurve, begin, end, style, twist, amp);
+    Reused<Point3D[]> last = surfaceTwist;
+    if ((last != null) && last.from.equals(from)) {
+      return last.result;    // the Outline replaces its curves rather than changing them
+    }
+    Point3D[] rzc = style.makeSpiral(cutSurfaceCurve.subsetPoints(cutSurfaceCurve.nearestPoint(begin), cutSurfaceCurve.nearestPoint(end)),
+        twist, amp);
+    surfaceTwist = new Reused<>(from, rzc);
+    return rzc;
   }
 
   /**
@@ -374,6 +407,7 @@ public abstract class SpiralCut extends CutPoint {
    * are based on a finer resolution than the curve resolution.
    * Note: Twist starts at zero, so the twist is relative. You must add the phase of
    * the initial point to these numbers!
+   * The array is reused until the surface twist or the cutter path changes, so don't change it.
    *
    * @return an array of Point3d with x,y from the original pts and z=twist in
    * degrees (or null if there are no points given). Note: In lathe coordinates,
@@ -393,8 +427,12 @@ public abstract class SpiralCut extends CutPoint {
     }
 
     // use a much finer resolution cutterPathCurve for smoothness
-    Curve fineCut = outline.getCutterPathCurve(cutter);
-    fineCut.reSample(outline.getResolution() / 10.0);
+    Curve fineCut = getFineCutterPath();
+    List<Object> from = Arrays.asList(rzc, fineCut);
+    Reused<Point3D[]> last = cutterTwist;
+    if ((last != null) && last.from.equals(from)) {
+      return last.result;
+    }
 
     // then look for the closest point on the fine resolution cut curve
     Point3D[] newPts = new Point3D[rzc.length];
@@ -402,9 +440,35 @@ public abstract class SpiralCut extends CutPoint {
       Point2D.Double near = fineCut.nearestPoint(new Point2D.Double(rzc[i].getX(), rzc[i].getY()));
       newPts[i] = new Point3D(near.x, near.y, rzc[i].getZ());
     }
+    cutterTwist = new Reused<>(from, newPts);
     return newPts;
   }
 
+  /**
+   * Get the cutter path curve at a much finer resolution (1/10 of the outline
+   * resolution) for smoothness. This is a copy that belongs to this SpiralCut,
+   * and it is reused until the Outline makes a new cutter path, so don't change
+   * it.
+   *
+   * @return fine resolution cutter path curve (or null if there is no cutter path)
+   */
+  public Curve getFineCutterPath() {
+    Curve path = outline.getCutterPathCurve(cutter);
+    if (path == null) {
+      return null;
+    }
+    double spacing = outline.getResolution() / 10.0;
+    List<Object> from = Arrays.asList(path, spacing);
+    Reused<Curve> last = fineCutterPath;
+    if ((last != null) && last.from.equals(from)) {
+      return last.result;
+    }
+    Curve fineCut = new Curve(path);    // reSample gives the copy its own points
+    fineCut.reSample(spacing);
+    fineCutterPath = new Reused<>(from, fineCut);
+    return fineCut;
+  }
+
   /**
    * Get an array of numbers representing the 3D position of spiral points on
    * the surface. 
@@ -463,7 +527,7 @@ public abstract class SpiralCut extends CutPoint {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
+  public void writeXML(XMLWriter out) {
     super.writeXML(out);	// for point
     beginPt.writeXML(out);  // for beginPt
     spiral.writeXML(out);   // <Spiral...
@@ -481,23 +545,51 @@ public abstract class SpiralCut extends CutPoint {
   }
   
   /**
-   * Make a list of CutPoints along the curve of the spiral.
+   * Make the steps along the curve of the spiral.
    * 
-   * @return ArrayList of RosettePoints
+   * @return steps of the spiral
    */
-   protected abstract ArrayList<CutPoint> makeListOfPoints();
+  protected abstract SpiralSteps makeSteps();
+
+  /**
+   * Make a working copy of the beginPt to cut the steps with. The copy is
+   * cleared so that it doesn't listen to anything (see CutPoint.setStep).
+   * 
+   * @return working copy of the beginPt
+   */
+  protected abstract CutPoint makeStepPoint();
 
   @Override
-  public synchronized void cutSurface(Surface surface, ProgressMonitor monitor) {
-    ArrayList<CutPoint> list = makeListOfPoints();
-    for (int i = 0; i < list.size(); i++) {
+  public synchronized void cutSurface(Surface surface, RenderProgress monitor) {
+    SpiralSteps steps = makeSteps();
+    CutPoint stepPt = makeStepPoint();
+    for (int i = 0; i < steps.size(); i++) {
       monitor.setProgress(num + 1);
-      monitor.setNote("CutPoint " + getNum() + ": " + i + "/" + list.size() + "\n");
-      list.get(i).cutSurface(surface, monitor);
+      monitor.setNote("CutPoint " + getNum() + ": " + i + "/" + steps.size() + "\n");
+      stepPt.setStep(steps, i);
+      stepPt.cutSurface(surface, monitor);
       if (monitor.isCanceled()) {
         break;
       }
     }
   }
-   
+
+  /**
+   * A result and everything that it was made from. Curves and arrays are
+   * compared by identity and everything else by value.
+   *
+   * @param <T> type of the result
+   */
+  private static class Reused<T> {
+
+    /** What the result was made from. */
+    private final List<Object> from;
+    /** The result (don't change it). */
+    private final T result;
+
+    Reused(List<Object> from, T result) {
+      this.from = from;
+      this.result = result;
+    }
+  }
 }
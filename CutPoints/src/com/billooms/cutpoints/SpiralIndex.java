@@ -1,5 +1,6 @@
 package com.billooms.cutpoints;
 
+import com.billooms.clclass.XMLWriter;
 import com.billooms.controls.CoarseFine;
 import static com.billooms.cutlist.Speed.*;
 import static com.billooms.cutpoints.IndexPoint.Direction.*;
@@ -18,7 +19,6 @@ import com.billooms.drawables.vecmath.Vector2d;
 import com.billooms.outline.Outline;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import java.util.ArrayList;
 import javafx.geometry.Point3D;
 import org.netbeans.spi.palette.PaletteItemRegistration;
@@ -197,15 +197,15 @@ public class SpiralIndex extends SpiralCut {
   }
   
   @Override
-  public void writeXML(PrintWriter out) {
-    out.println(indent + "<SpiralIndex"
+  public void writeXML(XMLWriter out) {
+    out.println(out.indent() + "<SpiralIndex"
         + xmlCutPointInfo2()     // don't write depth
-        + " endDepth='" + F4.format(endCutDepth) + "'"
+        + " endDepth='" + out.f4(endCutDepth) + "'"
         + ">");
-    indentMore();
+    out.indentMore();
     super.writeXML(out);    // for beginPt, Pt, Spiral
-    indentLess();
-    out.println(indent + "</SpiralIndex>");
+    out.indentLess();
+    out.println(out.indent() + "</SpiralIndex>");
   }
   
   @Override
@@ -241,17 +241,15 @@ public class SpiralIndex extends SpiralCut {
   }
   
   @Override
-  protected ArrayList<CutPoint> makeListOfPoints() {
-    ArrayList<CutPoint> list = new ArrayList<>();
-    
+  protected SpiralSteps makeSteps() {
     Point3D[] rzcCutter = getCutterTwist();     // This is on the cutter curve
     Point3D[] rzcSurface = getSurfaceTwist();   // This is on the surface curve
     ArrayList<Point3D> xyzSurface = toXYZ(rzcSurface);
 
     double totLength = getTotalDistance(xyzSurface);	// actual length on the spiral on the surface
     if (totLength <= 0.0) {         // so we don't divide by zero further down
-      list.add((IndexPoint) beginPt);
-      return list;
+      return new SpiralSteps(new double[]{beginPt.getX()}, new double[]{beginPt.getZ()},
+          new double[]{beginPt.getDepth()}, new double[]{((IndexPoint) beginPt).getPhase()});
     }
     
     double startDepth = beginPt.getDepth();
@@ -259,28 +257,36 @@ public class SpiralIndex extends SpiralCut {
     double beginPhase = ((IndexPoint) beginPt).getPhase();
     double repeat = ((IndexPoint) beginPt).getRepeat();
     
+    int n = rzcSurface.length;
+    double[] x = new double[n];
+    double[] z = new double[n];
+    double[] depth = new double[n];
+    double[] phase = new double[n];
     double cumLength = 0.0;
     for (int i = 0; i < rzcSurface.length; i++) { 
       if (i > 0) {
         // This uses the same calculation as within getTotalDistance()
         cumLength += xyzSurface.get(i).distance(xyzSurface.get(i - 1));
       }
-    // newPt starts out as a copy of the beginPt then is modified along the length of the spiral
-      IndexPoint newPt = new IndexPoint(beginPt.getPos2D(), (IndexPoint) beginPt);
-      newPt.setDepth(startDepth + deltaDepth * cumLength / totLength);
-      newPt.setPhase(beginPhase + rzcSurface[i].getZ() * repeat);
-      newPt.move(rzcCutter[i].getX(), rzcCutter[i].getY());
-      list.add(newPt);
-//      System.out.println("x:" + F3.format(rzcSurface[i].getX())  + " -> " + F3.format(newPt.getX())
-//        + " z:" + F3.format(rzcSurface[i].getY()) + " -> " + F3.format(newPt.getZ())
-//        + " depth:" + F3.format(newPt.getDepth()));
+      // each step starts out as the beginPt then is modified along the length of the spiral
+      x[i] = rzcCutter[i].getX();
+      z[i] = rzcCutter[i].getY();
+      depth[i] = startDepth + deltaDepth * cumLength / totLength;
+      phase[i] = beginPhase + rzcSurface[i].getZ() * repeat;
     }
-    return list;
+    return new SpiralSteps(x, z, depth, phase);
+  }
+
+  @Override
+  protected CutPoint makeStepPoint() {
+    IndexPoint stepPt = new IndexPoint(beginPt.getPos2D(), (IndexPoint) beginPt);
+    stepPt.clear();
+    return stepPt;
   }
 
   /**
    * Make instructions for this CutPoint.
-   * Note: This doesn't use makeListOfPoints() because we want to cut long
+   * Note: This doesn't use makeSteps() because we want to cut long
    * lines rather than lots of individual IndexPoints
    *
    * @param controls control panel data
@@ -305,8 +311,7 @@ public class SpiralIndex extends SpiralCut {
     double startDepth = ((IndexPoint) beginPt).getDepth();
     double deltaDepth = endCutDepth - startDepth;
     // use finer resolution for smoothness
-    Curve fineCut = outline.getCutterPathCurve(cutter);
-    fineCut.reSample(outline.getResolution() / 10.0);
+    Curve fineCut = getFineCutterPath();
     double cumLength = 0.0;
     for (int i = 0; i < rzc.length; i++) {
       if (i > 0) {
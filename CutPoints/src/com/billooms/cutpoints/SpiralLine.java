@@ -1,9 +1,7 @@
 package com.billooms.cutpoints;
 
 import com.billooms.clclass.CLUtilities;
-import static com.billooms.clclass.CLclass.indent;
-import static com.billooms.clclass.CLclass.indentLess;
-import static com.billooms.clclass.CLclass.indentMore;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.controls.CoarseFine;
 import static com.billooms.cutlist.Speed.FAST;
 import static com.billooms.cutlist.Speed.VELOCITY;
@@ -21,7 +19,6 @@ import com.billooms.patternbar.PatternBar;
 import com.billooms.patterns.Patterns;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import java.util.ArrayList;
 import javafx.geometry.Point3D;
 import org.netbeans.spi.palette.PaletteItemRegistration;
@@ -256,17 +253,17 @@ public class SpiralLine extends SpiralCut {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
-    out.println(indent + "<SpiralLine"
+  public void writeXML(XMLWriter out) {
+    out.println(out.indent() + "<SpiralLine"
         + xmlCutPointInfo2()     // don't write depth
         + " scaleDepth='" + scaleDepth + "'"
         + " scaleAmplitude='" + scaleAmplitude + "'"
-        + " endDepth='" + F4.format(endCutDepth) + "'"
+        + " endDepth='" + out.f4(endCutDepth) + "'"
         + ">");
-    indentMore();
+    out.indentMore();
     super.writeXML(out);    // for beginPt, Pt, Spiral
-    indentLess();
-    out.println(indent + "</SpiralLine>");
+    out.indentLess();
+    out.println(out.indent() + "</SpiralLine>");
   }
 
   /**
@@ -409,9 +406,7 @@ public class SpiralLine extends SpiralCut {
   }
   
   @Override
-  protected ArrayList<CutPoint> makeListOfPoints() { 
-    ArrayList<CutPoint> list = new ArrayList<>();
-    
+  protected SpiralSteps makeSteps() { 
     Point3D[] rzcCutter = getCutterTwist();     // This is on the cutter curve
     Point3D[] rzcSurface = getSurfaceTwist();   // This is on the surface curve
     ArrayList<Point3D> xyzSurface = toXYZ(rzcSurface);
@@ -419,7 +414,7 @@ public class SpiralLine extends SpiralCut {
     double totLength = getTotalDistance(xyzSurface);	// actual length on the spiral
     if (totLength <= 0.0) {         // so we don't divide by zero further down
 //      beginPt.cutSurface(surface);	// no movement, so just cut this one place
-      return list;
+      return SpiralSteps.NONE;
     }
 
     double[] addTwist = makePatternTwist(getSurfaceTwist());
@@ -429,29 +424,40 @@ public class SpiralLine extends SpiralCut {
     double beginPhase = ((LinePoint) beginPt).getPhase();
     double repeat = ((LinePoint) beginPt).getRepeat();
     
+    int n = rzcSurface.length;
+    double[] x = new double[n];
+    double[] z = new double[n];
+    double[] depth = new double[n];
+    double[] phase = new double[n];
     double cumLength = 0.0;
     for (int i = 0; i < rzcSurface.length; i++) {  // xyz is the same length as tw
       if (i > 0) {
         // This uses the same calculation as within getTotalDistance()
         cumLength += xyzSurface.get(i).distance(xyzSurface.get(i - 1));
       }
-      // newPt starts out as a copy of the beginPt then is modified along the length of the spiral
-      LinePoint newPt = new LinePoint(beginPt.getPos2D(), (LinePoint) beginPt);	// this is modified along the length of the spiral
-      newPt.setPhase(beginPhase + (rzcSurface[i].getZ() + addTwist[i]) * repeat);
-      newPt.move(rzcCutter[i].getX(), rzcCutter[i].getY());
+      // each step starts out as the beginPt then is modified along the length of the spiral
+      phase[i] = beginPhase + (rzcSurface[i].getZ() + addTwist[i]) * repeat;
+      x[i] = rzcCutter[i].getX();
+      z[i] = rzcCutter[i].getY();
       if (scaleDepth) {
-        newPt.setDepth(startDepth * newPt.getX() / getBeginPoint().getX());
+        depth[i] = startDepth * x[i] / getBeginPoint().getX();
       } else {
-        newPt.setDepth(startDepth + cumLength / totLength * deltaDepth);
+        depth[i] = startDepth + cumLength / totLength * deltaDepth;
       }
-      list.add(newPt);
     }
-    return list;
+    return new SpiralSteps(x, z, depth, phase);
+  }
+
+  @Override
+  protected CutPoint makeStepPoint() {
+    LinePoint stepPt = new LinePoint(beginPt.getPos2D(), (LinePoint) beginPt);
+    stepPt.clear();
+    return stepPt;
   }
   
   /**
    * Make instructions for this CutPoint.
-   * Note: This doesn't use makeListOfPoints() because we want to cut long
+   * Note: This doesn't use makeSteps() because we want to cut long
    * lines rather than lots of individual IndexPoints
    *
    * @param controls control panel data
@@ -477,8 +483,7 @@ public class SpiralLine extends SpiralCut {
     double startDepth = ((LinePoint) beginPt).getDepth();
     double deltaDepth = endCutDepth - startDepth;
     // use finer resolution for smoothness
-    Curve fineCut = outline.getCutterPathCurve(cutter);
-    fineCut.reSample(outline.getResolution() / 10.0);
+    Curve fineCut = getFineCutterPath();
     double cumLength = 0.0, depth;
     for (int i = 0; i < rzc.length; i++) {
       if (i > 0) {
@@ -1,8 +1,6 @@
 package com.billooms.cutpoints;
 
-import static com.billooms.clclass.CLclass.indent;
-import static com.billooms.clclass.CLclass.indentLess;
-import static com.billooms.clclass.CLclass.indentMore;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.controls.CoarseFine;
 import com.billooms.cutpoints.RosettePoint.Motion;
 import static com.billooms.cutpoints.RosettePoint.ROSETTE_COLOR;
@@ -21,7 +19,6 @@ import com.billooms.patterns.Patterns;
 import com.billooms.rosette.Rosette;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import java.util.ArrayList;
 import javafx.geometry.Point3D;
 import org.netbeans.spi.palette.PaletteItemRegistration;
@@ -118,15 +115,15 @@ public class SpiralRosette extends SpiralCut {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
-    out.println(indent + "<SpiralRosette"
+  public void writeXML(XMLWriter out) {
+    out.println(out.indent() + "<SpiralRosette"
         + xmlCutPointInfo2()     // don't write depth
-        + " endDepth='" + F4.format(endCutDepth) + "'"
+        + " endDepth='" + out.f4(endCutDepth) + "'"
         + ">");
-    indentMore();
+    out.indentMore();
     super.writeXML(out);    // for beginPt, Pt, Spiral
-    indentLess();
-    out.println(indent + "</SpiralRosette>");
+    out.indentLess();
+    out.println(out.indent() + "</SpiralRosette>");
   }
   
   /** 
@@ -396,32 +393,42 @@ public class SpiralRosette extends SpiralCut {
   }
   
   @Override
-  protected ArrayList<CutPoint> makeListOfPoints() { 
-    ArrayList<CutPoint> list = new ArrayList<>();
-    
+  protected SpiralSteps makeSteps() { 
+    RosettePoint begin = (RosettePoint) beginPt;
     Point3D[] rzcCutter = getCutterTwist();     // This is on the cutter curve
     Point3D[] rzcSurface = getSurfaceTwist();   // This is on the surface curve
     ArrayList<Point3D> xyzSurface = toXYZ(rzcSurface);
 
+    boolean both = begin.getMotion().usesBoth();
     double totLength = getTotalDistance(xyzSurface);	// actual length on the spiral on the surface
     if (totLength <= 0.0) {         // so we don't divide by zero further down
-      list.add((RosettePoint) beginPt);
-      return list;
+      return new SpiralSteps(new double[]{begin.getX()}, new double[]{begin.getZ()},
+          new double[]{begin.getDepth()}, new double[]{begin.getRosette().getPhase()},
+          null, both ? new double[]{begin.getRosette2().getPhase()} : null, null);
     }
 
-    double startDepth = beginPt.getDepth();
-    double rosStartAmp = ((RosettePoint)beginPt).getRosette().getPToP();
-    double rosStartPhase = ((RosettePoint)beginPt).getRosette().getPhase();
-    int repeat = ((RosettePoint)beginPt).getRosette().getRepeat();
+    double startDepth = begin.getDepth();
+    double rosStartAmp = begin.getRosette().getPToP();
+    double rosStartPhase = begin.getRosette().getPhase();
+    int repeat = begin.getRosette().getRepeat();
 
     double ros2StartAmp = 0.0, ros2StartPhase = 0.0;
     int repeat2 = 0;
-    if (((RosettePoint)beginPt).getMotion().usesBoth()) {
-      ros2StartAmp = ((RosettePoint)beginPt).getRosette2().getPToP();
-      ros2StartPhase = ((RosettePoint)beginPt).getRosette2().getPhase();
-      repeat2 = ((RosettePoint)beginPt).getRosette2().getRepeat();
+    if (both) {
+      ros2StartAmp = begin.getRosette2().getPToP();
+      ros2StartPhase = begin.getRosette2().getPhase();
+      repeat2 = begin.getRosette2().getRepeat();
     }
     
+    int n = rzcSurface.length;
+    double[] x = new double[n];
+    double[] z = new double[n];
+    double[] depth = new double[n];
+    double[] phase = new double[n];
+    double[] amp = (rosStartAmp == startDepth) ? new double[n] : null;    // scale rosette amplitude if it's the same as the start depth
+    double[] phase2 = both ? new double[n] : null;
+    double[] amp2 = (both && (ros2StartAmp == startDepth)) ? new double[n] : null;
+    
     double cumLength = 0.0;
     double rStart = rzcSurface[0].getX();
     double rEnd = rzcSurface[rzcSurface.length-1].getX();
@@ -449,26 +456,29 @@ public class SpiralRosette extends SpiralCut {
       
       // If this changes, be sure to change Cutpoints.spiralToPoints too!!!
       
-    // newPt starts out as a copy of the beginPt then is modified along the length of the spiral
-      RosettePoint newPt = new RosettePoint(beginPt.getPos2D(), (RosettePoint) beginPt);
-      newPt.setDepth(scaledDepth);
-      if (rosStartAmp == startDepth) {    // scale rosette amplitude if it's the same as the start depth
-        newPt.getRosette().setPToP(scaledDepth);
+      // each step starts out as the beginPt then is modified along the length of the spiral
+      x[i] = rzcCutter[i].getX();
+      z[i] = rzcCutter[i].getY();
+      depth[i] = scaledDepth;
+      if (amp != null) {
+        amp[i] = scaledDepth;
       }
-      newPt.getRosette().setPhase(rosStartPhase + rzcSurface[i].getZ() * (double)repeat);
-      if (newPt.getMotion().usesBoth()) {
-        if (ros2StartAmp == startDepth) {   // scale rosette amplitude if it's the same as the start depth
-          newPt.getRosette2().setPToP(scaledDepth);
+      phase[i] = rosStartPhase + rzcSurface[i].getZ() * (double)repeat;
+      if (both) {
+        if (amp2 != null) {
+          amp2[i] = scaledDepth;
         }
-        newPt.getRosette2().setPhase(ros2StartPhase + rzcSurface[i].getZ() * (double)repeat2);
+        phase2[i] = ros2StartPhase + rzcSurface[i].getZ() * (double)repeat2;
       }
-      newPt.move(rzcCutter[i].getX(), rzcCutter[i].getY());
-      list.add(newPt);
-//      System.out.println("x:" + F3.format(rzcSurface[i].getX())  + " -> " + F3.format(newPt.getX())
-//        + " z:" + F3.format(rzcSurface[i].getY()) + " -> " + F3.format(newPt.getZ())
-//        + " depth:" + F3.format(newPt.getDepth()) + " amp:" + F3.format(newPt.getRosette().getPToP()));
     }
-    return list;
+    return new SpiralSteps(x, z, depth, phase, amp, phase2, amp2);
+  }
+
+  @Override
+  protected CutPoint makeStepPoint() {
+    RosettePoint stepPt = new RosettePoint(beginPt.getPos2D(), (RosettePoint) beginPt);
+    stepPt.clear();
+    return stepPt;
   }
 
   @Override
@@ -476,8 +486,11 @@ public class SpiralRosette extends SpiralCut {
     cutList.comment("SpiralRosette " + num);
     cutList.comment("Cutter: " + cutter);
 
-    for (CutPoint cPt : makeListOfPoints()) {
-      cPt.makeInstructions(controls, stepsPerRot);
+    SpiralSteps steps = makeSteps();
+    CutPoint stepPt = makeStepPoint();
+    for (int i = 0; i < steps.size(); i++) {
+      stepPt.setStep(steps, i);
+      stepPt.makeInstructions(controls, stepsPerRot);
     }
   }
 
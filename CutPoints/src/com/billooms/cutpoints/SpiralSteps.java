@@ -0,0 +1,191 @@
+package com.billooms.cutpoints;
+
+/**
+ * The steps along a SpiralCut: the position, depth and phase (and rosette
+ * amplitudes where they are scaled) at each step, kept in arrays of numbers
+ * rather than as a CutPoint for each step.
+ *
+ * A SpiralCut cuts the steps by setting them one at a time into a single
+ * working copy of its begin point (see CutPoint.setStep), so a long spiral
+ * doesn't make a CutPoint with its listeners and rosettes for every step.
+ *
+ * The steps can't be changed once they are made.
+ *
+ * @author Bill Ooms. Copyright 2015 Studio of Bill Ooms. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class SpiralSteps {
+
+  /** No steps. */
+  public final static SpiralSteps NONE = new SpiralSteps(new double[0], new double[0], new double[0], new double[0]);
+
+  /** x-coordinate of each step. */
+  private final double[] x;
+  /** z-coordinate of each step. */
+  private final double[] z;
+  /** Cut depth at each step. */
+  private final double[] depth;
+  /** Phase at each step (phase of the rosette for a RosettePoint). */
+  private final double[] phase;
+  /** Rosette peak-to-peak at each step (null if it isn't scaled). */
+  private final double[] amp;
+  /** Phase of rosette2 at each step (null if there is no rosette2). */
+  private final double[] phase2;
+  /** Rosette2 peak-to-peak at each step (null if it isn't scaled). */
+  private final double[] amp2;
+
+  /**
+   * Construct the steps for a spiral that only changes position, depth and
+   * phase. The arrays must all be the same length and are not copied, so don't
+   * change them afterwards.
+   *
+   * @param x x-coordinate of each step
+   * @param z z-coordinate of each step
+   * @param depth cut depth at each step
+   * @param phase phase at each step
+   */
+  public SpiralSteps(double[] x, double[] z, double[] depth, double[] phase) {
+    this(x, z, depth, phase, null, null, null);
+  }
+
+  /**
+   * Construct the steps for a spiral of RosettePoints. The arrays must all be
+   * the same length and are not copied, so don't change them afterwards.
+   *
+   * @param x x-coordinate of each step
+   * @param z z-coordinate of each step
+   * @param depth cut depth at each step
+   * @param phase rosette phase at each step
+   * @param amp rosette peak-to-peak at each step (null if it isn't scaled)
+   * @param phase2 rosette2 phase at each step (null if there is no rosette2)
+   * @param amp2 rosette2 peak-to-peak at each step (null if it isn't scaled)
+   */
+  public SpiralSteps(double[] x, double[] z, double[] depth, double[] phase,
+      double[] amp, double[] phase2, double[] amp2) {
+    this.x = x;
+    this.z = z;
+    this.depth = depth;
+    this.phase = phase;
+    this.amp = amp;
+    this.phase2 = phase2;
+    this.amp2 = amp2;
+  }
+
+  /**
+   * Get the number of steps.
+   *
+   * @return number of steps
+   */
+  public int size() {
+    return x.length;
+  }
+
+  /**
+   * Get the x-coordinate of a step.
+   *
+   * @param i index of the step
+   * @return x-coordinate
+   */
+  public double getX(int i) {
+    return x[i];
+  }
+
+  /**
+   * Get the z-coordinate of a step.
+   *
+   * @param i index of the step
+   * @return z-coordinate
+   */
+  public double getZ(int i) {
+    return z[i];
+  }
+
+  /**
+   * Get the cut depth at a step.
+   *
+   * @param i index of the step
+   * @return cut depth
+   */
+  public double getDepth(int i) {
+    return depth[i];
+  }
+
+  /**
+   * Get the phase at a step.
+   *
+   * @param i index of the step
+   * @return phase in degrees
+   */
+  public double getPhase(int i) {
+    return phase[i];
+  }
+
+  /**
+   * Determine if the rosette peak-to-peak changes along the spiral.
+   *
+   * @return true: use getAmp
+   */
+  public boolean hasAmp() {
+    return amp != null;
+  }
+
+  /**
+   * Get the rosette peak-to-peak at a step.
+   *
+   * @param i index of the step
+   * @return peak-to-peak
+   */
+  public double getAmp(int i) {
+    return amp[i];
+  }
+
+  /**
+   * Determine if there is a phase for rosette2.
+   *
+   * @return true: use getPhase2
+   */
+  public boolean hasPhase2() {
+    return phase2 != null;
+  }
+
+  /**
+   * Get the rosette2 phase at a step.
+   *
+   * @param i index of the step
+   * @return phase in degrees
+   */
+  public double getPhase2(int i) {
+    return phase2[i];
+  }
+
+  /**
+   * Determine if the rosette2 peak-to-peak changes along the spiral.
+   *
+   * @return true: use getAmp2
+   */
+  public boolean hasAmp2() {
+    return amp2 != null;
+  }
+
+  /**
+   * Get the rosette2 peak-to-peak at a step.
+   *
+   * @param i index of the step
+   * @return peak-to-peak
+   */
+  public double getAmp2(int i) {
+    return amp2[i];
+  }
+}
@@ -0,0 +1,139 @@
+package com.billooms.cutpoints.surface;
+
+import com.billooms.cutpoints.surface.RotMatrix.Axis;
+import javafx.geometry.Point3D;
+
+/**
+ * A combination of rotations and offsets of the surface.
+ *
+ * This does the same as a sequence of Surface.rotateZ, rotateY and offset
+ * calls, but as one transform that can be applied to a single point and
+ * undone again. So a cut can be made with the surface in a new pose without
+ * moving every point of the surface there and back.
+ *
+ * A Pose can't be changed. rotateZ, rotateY and offset return a new Pose.
+ *
+ * @author Bill Ooms. Copyright 2015 Studio of Bill Ooms. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class Pose {
+
+  /** No rotation and no offset. */
+  public final static Pose IDENTITY = new Pose(new double[][]{{1.0, 0.0, 0.0}, {0.0, 1.0, 0.0}, {0.0, 0.0, 1.0}},
+      new double[]{0.0, 0.0, 0.0});
+
+  /** Rotation (a point is rotated first). */
+  private final double[][] m;
+  /** Offset (added after the rotation). */
+  private final double[] t;
+
+  /**
+   * Construct a new Pose.
+   *
+   * @param m rotation
+   * @param t offset
+   */
+  private Pose(double[][] m, double[] t) {
+    this.m = m;
+    this.t = t;
+  }
+
+  /**
+   * Get the pose after a further rotation around the z-axis (like
+   * Surface.rotateZ).
+   *
+   * @param deg incremental angle in degrees
+   * @return new Pose
+   */
+  public Pose rotateZ(double deg) {
+    return rotate(Axis.Z, deg);
+  }
+
+  /**
+   * Get the pose after a further rotation around the y-axis (like
+   * Surface.rotateY).
+   *
+   * @param deg incremental angle in degrees
+   * @return new Pose
+   */
+  public Pose rotateY(double deg) {
+    return rotate(Axis.Y, deg);
+  }
+
+  /**
+   * Get the pose after a further rotation.
+   *
+   * @param axis axis of rotation
+   * @param deg incremental angle in degrees
+   * @return new Pose
+   */
+  private Pose rotate(Axis axis, double deg) {
+    if (deg == 0.0) {
+      return this;
+    }
+    RotMatrix rot = new RotMatrix(axis, deg);
+    double[][] newM = new double[3][3];
+    for (int j = 0; j < 3; j++) {     // rotate each column of m
+      Point3D col = rot.apply(new Point3D(m[0][j], m[1][j], m[2][j]));
+      newM[0][j] = col.getX();
+      newM[1][j] = col.getY();
+      newM[2][j] = col.getZ();
+    }
+    Point3D newT = rot.apply(new Point3D(t[0], t[1], t[2]));
+    return new Pose(newM, new double[]{newT.getX(), newT.getY(), newT.getZ()});
+  }
+
+  /**
+   * Get the pose after a further offset (like Surface.offset).
+   *
+   * @param x incremental x-axis offset
+   * @param y incremental y-axis offset
+   * @param z incremental z-axis offset
+   * @return new Pose
+   */
+  public Pose offset(double x, double y, double z) {
+    return new Pose(m, new double[]{t[0] + x, t[1] + y, t[2] + z});
+  }
+
+  /**
+   * Move a point of the surface from its original position to this pose.
+   *
+   * @param p point
+   * @return moved point
+   */
+  public Point3D apply(Point3D p) {
+    final double x = p.getX();
+    final double y = p.getY();
+    final double z = p.getZ();
+    return new Point3D(x * m[0][0] + y * m[0][1] + z * m[0][2] + t[0],
+                       x * m[1][0] + y * m[1][1] + z * m[1][2] + t[1],
+                       x * m[2][0] + y * m[2][1] + z * m[2][2] + t[2]);
+  }
+
+  /**
+   * Move a point of the surface from this pose back to its original position.
+   *
+   * @param p point
+   * @return moved point
+   */
+  public Point3D applyInverse(Point3D p) {
+    final double x = p.getX() - t[0];
+    final double y = p.getY() - t[1];
+    final double z = p.getZ() - t[2];
+    return new Point3D(x * m[0][0] + y * m[1][0] + z * m[2][0],     // inverse of a rotation is its transpose
+                       x * m[0][1] + y * m[1][1] + z * m[2][1],
+                       x * m[0][2] + y * m[1][2] + z * m[2][2]);
+  }
+}
@@ -0,0 +1,241 @@
+package com.billooms.cutpoints.surface;
+
+import com.billooms.clclass.CLclass;
+import com.billooms.cutpoints.CutPoint;
+import com.billooms.cutpoints.CutPoints;
+import com.billooms.cutters.Cutter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javafx.geometry.Point3D;
+import org.openide.util.Exceptions;
+
+/**
+ * On-disk cache of rendered Surface grids.
+ *
+ * An entry is keyed by the content hashes of everything that affects the
+ * rendering: the outline, the cutters and their custom profiles, the custom
+ * patterns, all the CutPoints (including whether they are visible) and
+ * whether the surface is inside or outside. So if nothing has changed since a
+ * design was last rendered, even in an earlier session, the rendered grid can
+ * be read back instead of cutting the surface again.
+ *
+ * The grid is stored as floats (plenty for display) and compressed. Entries
+ * are written to a temporary file and renamed, and only the most recently
+ * used MAX_ENTRIES are kept.
+ *
+ * @author Bill Ooms. Copyright 2015 Studio of Bill Ooms. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class RenderCache {
+
+  /** First 4 bytes of every entry ("SRFC"). */
+  private final static int MAGIC = 0x53524643;
+  /** Change this if the format of an entry or the rendering changes. */
+  private final static int FORMAT = 1;
+  /** Extension of a cache entry. */
+  private final static String EXT = ".srf";
+  /** Maximum number of entries kept in the cache. */
+  public final static int MAX_ENTRIES = 100;
+
+  /** Shared cache used by Surfaces unless they are given another one. */
+  private static RenderCache defaultCache = null;
+
+  /** Directory holding the cache entries. */
+  private final File dir;
+
+  /**
+   * Construct a new RenderCache using the given directory.
+   *
+   * @param dir directory for the cache entries (created if necessary)
+   */
+  public RenderCache(File dir) {
+    this.dir = dir;
+  }
+
+  /**
+   * Get the shared RenderCache in the user's home directory.
+   *
+   * @return shared RenderCache
+   */
+  public static synchronized RenderCache getDefault() {
+    if (defaultCache == null) {
+      defaultCache = new RenderCache(new File(new File(System.getProperty("user.home"), ".cornlathe"), "render"));
+    }
+    return defaultCache;
+  }
+
+  /**
+   * Make the key for the rendering of the given surface from the content
+   * hashes of the model, so this is cheap when nothing has changed.
+   *
+   * @param surface Surface
+   * @return key
+   */
+  public String makeKey(Surface surface) {
+    CutPoints cutPtMgr = surface.getCutPoints();
+    StringBuilder str = new StringBuilder();
+    str.append(FORMAT).append(surface.isInside() ? 'i' : 'o').append(Surface.DEFAULT_SECTORS);
+    str.append('-').append(Long.toHexString(surface.getOutline().getContentHash()));
+    str.append('-').append(Long.toHexString(cutPtMgr.getCutterMgr().getContentHash()));
+    Set<Cutter> used = new HashSet<>();
+    for (CutPoint cp : cutPtMgr.getAll()) {
+      used.add(cp.getCutter());
+    }
+    long profiles = 0;
+    Set<Object> hashed = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Cutter cutter : cutPtMgr.getCutterMgr().getAllCutters()) {    // in a fixed order
+      Object profile = cutter.getProfile();
+      if (used.contains(cutter) && (profile instanceof CLclass) && hashed.add(profile)) {
+        profiles = CLclass.combineHash(profiles, ((CLclass) profile).getContentHash());  // custom profiles aren't in the cutter xml
+      }
+    }
+    str.append('-').append(Long.toHexString(profiles));
+    str.append('-').append(Long.toHexString(cutPtMgr.getPatternMgr().getContentHash()));
+    str.append('-').append(Long.toHexString(cutPtMgr.getContentHash()));
+    return str.toString();
+  }
+
+  /**
+   * Read a rendered grid from the cache.
+   *
+   * @param key key from makeKey()
+   * @param length number of points per sector
+   * @param sectors number of sectors
+   * @return grid, or null if there is no matching entry
+   */
+  public Point3D[][] read(String key, int length, int sectors) {
+    File entry = new File(dir, key + EXT);
+    if (!entry.exists()) {
+      return null;
+    }
+    MappedByteBuffer buf;
+    try (FileChannel channel = FileChannel.open(entry.toPath(), StandardOpenOption.READ)) {
+      buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } catch (IOException ex) {
+      return null;
+    }
+    try {
+      if ((buf.getInt() != MAGIC) || (buf.getInt() != FORMAT)
+          || (buf.getInt() != length) || (buf.getInt() != sectors)) {
+        return null;
+      }
+      byte[] compressed = new byte[buf.remaining()];
+      buf.get(compressed);
+      byte[] raw = new byte[length * sectors * 3 * Float.BYTES];
+      Inflater inflater = new Inflater();
+      inflater.setInput(compressed);
+      int n = inflater.inflate(raw);
+      boolean complete = inflater.finished();
+      inflater.end();
+      if ((n != raw.length) || !complete) {
+        return null;
+      }
+      FloatBuffer floats = ByteBuffer.wrap(raw).asFloatBuffer();
+      Point3D[][] pts = new Point3D[length][sectors];
+      for (Point3D[] row : pts) {
+        for (int j = 0; j < sectors; j++) {
+          row[j] = new Point3D(floats.get(), floats.get(), floats.get());
+        }
+      }
+      entry.setLastModified(System.currentTimeMillis());   // recently used
+      return pts;
+    } catch (BufferUnderflowException | DataFormatException ex) {
+      return null;    // damaged entry -- render again
+    }
+  }
+
+  /**
+   * Write a rendered grid to the cache.
+   *
+   * @param key key from makeKey()
+   * @param pts grid
+   */
+  public void write(String key, Point3D[][] pts) {
+    int length = pts.length;
+    int sectors = pts[0].length;
+    ByteBuffer raw = ByteBuffer.allocate(length * sectors * 3 * Float.BYTES);
+    for (Point3D[] row : pts) {
+      for (Point3D pt : row) {
+        raw.putFloat((float) pt.getX()).putFloat((float) pt.getY()).putFloat((float) pt.getZ());
+      }
+    }
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    deflater.setInput(raw.array());
+    deflater.finish();
+    byte[] chunk = new byte[64 * 1024];
+
+    File entry = new File(dir, key + EXT);
+    Path temp = new File(entry.getPath() + ".tmp").toPath();
+    try {
+      if (!dir.exists() && !dir.mkdirs()) {
+        return;     // the cache is only an optimization
+      }
+      try (FileChannel channel = FileChannel.open(temp,
+          StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+        ByteBuffer header = ByteBuffer.allocate(4 * Integer.BYTES);
+        header.putInt(MAGIC).putInt(FORMAT).putInt(length).putInt(sectors).flip();
+        channel.write(header);
+        while (!deflater.finished()) {
+          int n = deflater.deflate(chunk);
+          channel.write(ByteBuffer.wrap(chunk, 0, n));
+        }
+      }
+      try {
+        Files.move(temp, entry.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException ex) {
+        Files.move(temp, entry.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      prune();
+    } catch (IOException ex) {
+      Exceptions.printStackTrace(ex);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Delete the least recently used entries so that there are no more than
+   * MAX_ENTRIES.
+   */
+  private void prune() {
+    File[] entries = dir.listFiles((d, name) -> name.endsWith(EXT));
+    if ((entries == null) || (entries.length <= MAX_ENTRIES)) {
+      return;
+    }
+    Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+    for (int i = 0; i < entries.length - MAX_ENTRIES; i++) {
+      entries[i].delete();
+    }
+  }
+}
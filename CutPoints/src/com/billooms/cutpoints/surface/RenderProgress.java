@@ -0,0 +1,72 @@
+package com.billooms.cutpoints.surface;
+
+/**
+ * Progress and cancellation token passed to CutPoints while they cut a
+ * Surface.
+ *
+ * This has no dependence on any user interface. SwingRenderProgress adapts a
+ * Swing ProgressMonitor to this interface, and NONE can be used when nobody is
+ * watching (headless rendering, benchmarks).
+ *
+ * @author Bill Ooms. Copyright 2015 Studio of Bill Ooms. All rights reserved.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public interface RenderProgress {
+
+  /** A token that ignores progress and is never canceled. */
+  RenderProgress NONE = new RenderProgress() {
+    @Override
+    public void setProgress(int progress) {
+    }
+
+    @Override
+    public void setNote(String note) {
+    }
+
+    @Override
+    public boolean isCanceled() {
+      return false;
+    }
+  };
+
+  /**
+   * Report progress. The progress is the CutPoint number +1.
+   *
+   * @param progress progress
+   */
+  void setProgress(int progress);
+
+  /**
+   * Report a note describing the current progress.
+   *
+   * @param note note
+   */
+  void setNote(String note);
+
+  /**
+   * Has the rendering been canceled? CutPoints should check this regularly and
+   * stop cutting as soon as possible when it returns true.
+   *
+   * @return true: canceled
+   */
+  boolean isCanceled();
+
+  /**
+   * Called once when the rendering is finished (whether or not it was
+   * canceled).
+   */
+  default void done() {
+  }
+}
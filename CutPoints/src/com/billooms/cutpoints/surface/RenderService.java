@@ -0,0 +1,203 @@
+package com.billooms.cutpoints.surface;
+
+import com.billooms.clclass.CLUtilities;
+import com.billooms.cutpoints.CutPoint;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import org.openide.util.Exceptions;
+
+/**
+ * Service for cutting a Surface with all of its visible CutPoints.
+ *
+ * The work is run on a pluggable Executor and reports to a RenderProgress
+ * token, so there is no dependence on Swing or the window system. Use
+ * render() to cut a surface in the calling thread, or submit() to cut it in
+ * the background.
+ *
+ * If everything that is cut repeats exactly around the spindle (see
+ * CutPoint.getSymmetry), only the first repeat of the surface is cut and
+ * the rest is copied from it.
+ *
+ * @author Bill Ooms. Copyright 2015 Studio of Bill Ooms. All rights reserved.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class RenderService {
+
+  /** Shared service used by Surfaces unless they are given another one. */
+  private static RenderService defaultService = null;
+
+  /** Executor that runs the background rendering. */
+  private final Executor executor;
+
+  /**
+   * Construct a new RenderService. Use Runnable::run as the executor to
+   * render synchronously in the thread that calls submit().
+   *
+   * @param executor Executor that runs the background rendering
+   */
+  public RenderService(Executor executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Get the shared RenderService which renders one surface at a time on a
+   * background daemon thread.
+   *
+   * @return shared RenderService
+   */
+  public static synchronized RenderService getDefault() {
+    if (defaultService == null) {
+      defaultService = new RenderService(Executors.newSingleThreadExecutor((r) -> {
+        Thread t = new Thread(r, "Surface render");
+        t.setDaemon(true);
+        return t;
+      }));
+    }
+    return defaultService;
+  }
+
+  /**
+   * Cut the given surface with all of its visible CutPoints in the calling
+   * thread.
+   *
+   * @param surface Surface to cut
+   * @param progress progress and cancellation token
+   */
+  public void render(Surface surface, RenderProgress progress) {
+    int symmetry = surface.numSectors();
+    for (CutPoint cp : surface.getCutPoints().getAll()) {
+      if (cp.isVisible()) {
+        symmetry = CLUtilities.gcd(symmetry, cp.getSymmetry());
+      }
+    }
+    surface.setSymmetry(symmetry);    // only cut the first repeat if everything repeats
+    try {
+      for (CutPoint cp : surface.getCutPoints().getAll()) {
+        progress.setProgress(cp.getNum() + 1);   // progress is CutPoint number +1 (don't start with 0)
+        progress.setNote("Rendering CutPoint " + cp.getNum() + "\n");
+        if (cp.isVisible()) {
+          cp.cutSurface(surface, progress);
+        }
+        if (progress.isCanceled()) {
+          break;
+        }
+      }
+    } finally {
+      surface.finishSymmetry();   // copy the first repeat the rest of the way around
+      progress.done();
+    }
+  }
+
+  /**
+   * Cut the given surface on this service's Executor.
+   *
+   * @param surface Surface to cut
+   * @param progress progress and cancellation token
+   * @param onDone called (on the executor) when the job is finished, or null
+   * @return the job, which can be canceled
+   */
+  public Job submit(Surface surface, RenderProgress progress, Consumer<Job> onDone) {
+    Job job = new Job(progress);
+    executor.execute(() -> {
+      try {
+        render(surface, job);
+      } catch (Exception e) {
+        job.failed = true;
+        Exceptions.printStackTrace(e);
+      } finally {
+        job.finished = true;
+        if (onDone != null) {
+          onDone.accept(job);
+        }
+      }
+    });
+    return job;
+  }
+
+  /**
+   * A rendering job submitted to a RenderService. The job is canceled if
+   * either cancel() is called or the given RenderProgress is canceled.
+   */
+  public static class Job implements RenderProgress {
+
+    /** Progress and cancellation token given by the caller. */
+    private final RenderProgress progress;
+    /** True: the job was canceled with cancel(). */
+    private volatile boolean abandoned = false;
+    /** True: the job is finished. */
+    private volatile boolean finished = false;
+    /** True: the job stopped because of an exception. */
+    private volatile boolean failed = false;
+
+    private Job(RenderProgress progress) {
+      this.progress = progress;
+    }
+
+    /**
+     * Cancel the job because its result is no longer wanted.
+     */
+    public void cancel() {
+      abandoned = true;
+    }
+
+    /**
+     * Was the job canceled with cancel()?
+     *
+     * @return true: canceled with cancel()
+     */
+    public boolean isAbandoned() {
+      return abandoned;
+    }
+
+    /**
+     * Did the job stop because of an exception?
+     *
+     * @return true: failed
+     */
+    public boolean isFailed() {
+      return failed;
+    }
+
+    /**
+     * Is the job finished?
+     *
+     * @return true: finished
+     */
+    public boolean isDone() {
+      return finished;
+    }
+
+    @Override
+    public void setProgress(int n) {
+      progress.setProgress(n);
+    }
+
+    @Override
+    public void setNote(String note) {
+      progress.setNote(note);
+    }
+
+    @Override
+    public boolean isCanceled() {
+      return abandoned || progress.isCanceled();
+    }
+
+    @Override
+    public void done() {
+      progress.done();
+    }
+  }
+}
@@ -1,22 +1,20 @@
 package com.billooms.cutpoints.surface;
 
-import com.billooms.cutpoints.CutPoint;
+import com.billooms.clclass.CoalescingListener;
 import com.billooms.cutpoints.CutPoints;
 import com.billooms.cutters.Cutter;
 import com.billooms.outline.Outline;
 import com.billooms.profiles.Profile;
 import com.billooms.cutpoints.surface.RotMatrix.Axis;
-import java.awt.Toolkit;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
 import javafx.geometry.Point3D;
-import javax.swing.ProgressMonitor;
-import javax.swing.SwingWorker;
-import org.openide.util.Exceptions;
-import org.openide.windows.TopComponent;
-import org.openide.windows.WindowManager;
+import javax.swing.SwingUtilities;
 
 /**
  * A surface is a two-dimensional array of 3D points (in lathe coordinates) and
@@ -26,9 +24,14 @@ import org.openide.windows.WindowManager;
  * second index is 0 to (DEFAULT_SECTORS - 1).
  *
  * The Surface will listen for non-drag outline changes and then rebuild from
- * the new outline points. You can listen to the Surface for a
+ * the new outline points. A burst of changes causes only one rebuild. You can listen to the Surface for a
  * propertyChangeEvent when the Surface has been rebuilt.
  *
+ * Rendering is done by a RenderService (on its Executor) and reports to a
+ * RenderProgress token made by the progress factory, so the Surface has no
+ * dependence on Swing or the window system. Rendered grids are kept in a
+ * RenderCache so that a design that hasn't changed is not rendered again.
+ *
  * @author Bill Ooms. Copyright 2015 Studio of Bill Ooms. All rights reserved.
  * 
  * This program is free software: you can redistribute it and/or modify
@@ -48,13 +51,15 @@ public class Surface implements PropertyChangeListener {
 
   /** All Surface property change names start with this prefix. */
   public final static String PROP_PREFIX = "Surface" + "_";
-  /** Property name used when rebuilding after an outline change. */
+  /** Property name used when rebuilding after an outline change (always fired on the event dispatch thread). */
   public final static String PROP_REBUILD = PROP_PREFIX + "Rebuild";
 
   /** For convenience. */
   private final static double TWOPI = 2.0 * Math.PI;
   /** The number of sectors around the shape. */
   public final static int DEFAULT_SECTORS = 360;
+  /** Milliseconds to wait for more outline or CutPoint changes before rebuilding. */
+  private final static int REBUILD_DELAY = 100;
 
   /**
    * First index is 0 to the (number of points on outline curve - 1), and the
@@ -69,41 +74,23 @@ public class Surface implements PropertyChangeListener {
   private final CutPoints cutPtMgr;
   /** Render CutPoint (true) or not (false). */
   private boolean render;
-  /** Background task for building the Surface. */
-  private BuildTask buildTask = null;
-  /** Progress monitor for background task. */
-  private ProgressMonitor progressMonitor = null;
+  /** Service that cuts the surface with the CutPoints. */
+  private RenderService renderService = RenderService.getDefault();
+  /** Cache of rendered grids (or null for no caching). */
+  private RenderCache renderCache = RenderCache.getDefault();
+  /** Makes a progress token given the maximum progress. */
+  private IntFunction<RenderProgress> progressFactory = (max) -> RenderProgress.NONE;
+  /** Background job for building the Surface. */
+  private RenderService.Job buildJob = null;
+  /** Number of sectors (starting at 0) that are cut. The rest are copied afterwards. */
+  private int cutSectors = DEFAULT_SECTORS;
+
+  /** Listens to the outline and CutPoint manager and coalesces changes. */
+  private final CoalescingListener modelListener = new CoalescingListener(this, REBUILD_DELAY, true);
 
   /** The Surface can fire propertyChanges. */
   private final PropertyChangeSupport pcs = new PropertyChangeSupport(this);
   
-  /**
-   * Creates a new background task for building the Surface.
-   */
-  class BuildTask extends SwingWorker<Void, Void> {
-    @Override
-    protected Void doInBackground() throws Exception {
-      try {
-        for(CutPoint cp : cutPtMgr.getAll()) {
-          setProgress(cp.getNum() + 1);   // progress is CutPoint number +1 (don't start with 0)
-          if (cp.isVisible()) {
-            cp.cutSurface(Surface.this, progressMonitor);
-          }
-          if (progressMonitor.isCanceled()) {   // Check to see if the ProgressMonitor has been cancelled
-            Toolkit.getDefaultToolkit().beep();
-            cancel(true);   // cancel the BuildTask
-          }
-          if (isCancelled() || isDone()) {    // break out of the loop if task is cancelled externally
-            break;
-          }
-        }
-      } catch (Exception e) {
-        Exceptions.printStackTrace(e);
-      }
-      return null;
-    }
-  }
-
   /**
    * Construct a new Surface from the given outline points.
    *
@@ -116,16 +103,17 @@ public class Surface implements PropertyChangeListener {
     this.inOut = inOut;
     this.cutPtMgr = cutPtMgr;
     rebuild();
-    outline.addPropertyChangeListener(this);
-    cutPtMgr.addPropertyChangeListener(this);
+    outline.addPropertyChangeListener(modelListener);
+    cutPtMgr.addPropertyChangeListener(modelListener);
   }
 
   /**
    * Clear -- mainly remove any PropertyChangeListeners.
    */
   public void clear() {
-    outline.removePropertyChangeListener(this);
-    cutPtMgr.removePropertyChangeListener(this);
+    outline.removePropertyChangeListener(modelListener);
+    cutPtMgr.removePropertyChangeListener(modelListener);
+    modelListener.cancel();
   }
 
   /**
@@ -137,6 +125,42 @@ public class Surface implements PropertyChangeListener {
     return pts[0].length;
   }
 
+  /**
+   * Cut only the first 1/symmetry of the sectors until finishSymmetry is
+   * called. This is only valid if everything that is cut repeats exactly
+   * symmetry times around the spindle. Each point of the surface is cut
+   * independently of the others, so no overlap is needed.
+   *
+   * @param symmetry number of exact repeats (must divide the number of sectors)
+   */
+  public synchronized void setSymmetry(int symmetry) {
+    if ((symmetry > 1) && (numSectors() % symmetry == 0)) {
+      cutSectors = numSectors() / symmetry;
+    } else {
+      cutSectors = numSectors();
+    }
+  }
+
+  /**
+   * Fill in the sectors that weren't cut by rotating copies of the ones that
+   * were, and go back to cutting all sectors.
+   */
+  public synchronized void finishSymmetry() {
+    int sectors = numSectors();
+    if (cutSectors < sectors) {
+      double degPerSector = 360.0 / sectors;
+      for (int start = cutSectors; start < sectors; start += cutSectors) {
+        RotMatrix rotZ = new RotMatrix(Axis.Z, -start * degPerSector);   // minus to match rotation of lathe
+        for (Point3D[] pt : pts) {
+          for (int a = 0; a < cutSectors; a++) {
+            pt[start + a] = rotZ.apply(pt[a]);
+          }
+        }
+      }
+    }
+    cutSectors = sectors;
+  }
+
   /**
    * Get the number of points per sector.
    *
@@ -155,6 +179,46 @@ public class Surface implements PropertyChangeListener {
     return outline;
   }
 
+  /**
+   * Get the CutPoint manager for this surface.
+   *
+   * @return CutPoint manager
+   */
+  public CutPoints getCutPoints() {
+    return cutPtMgr;
+  }
+
+  /**
+   * Set the service used to render this surface. The default is
+   * RenderService.getDefault().
+   *
+   * @param service RenderService
+   */
+  public void setRenderService(RenderService service) {
+    this.renderService = service;
+  }
+
+  /**
+   * Set the cache used for rendered grids. The default is
+   * RenderCache.getDefault().
+   *
+   * @param cache RenderCache (or null for no caching)
+   */
+  public void setRenderCache(RenderCache cache) {
+    this.renderCache = cache;
+  }
+
+  /**
+   * Set the factory that makes a progress token for each rendering. The
+   * factory is given the maximum progress. The default factory returns
+   * RenderProgress.NONE.
+   *
+   * @param factory progress factory
+   */
+  public void setProgressFactory(IntFunction<RenderProgress> factory) {
+    this.progressFactory = factory;
+  }
+
   /**
    * Set the surface to inside or outside curve.
    *
@@ -203,14 +267,40 @@ public class Surface implements PropertyChangeListener {
   public synchronized final void rebuild() {
     pts = makeCleanSurface();
     if (render) {
-      TopComponent window = WindowManager.getDefault().findTopComponent("View3DTopComponent");
-      // progressMonitor closes with progress >= max, so use size()+1
-      progressMonitor = new ProgressMonitor(window, "Rendering the surface", "", 0, cutPtMgr.size()+1);
-      buildTask = new BuildTask();
-      buildTask.addPropertyChangeListener(this);
-      buildTask.execute();
+      final String key = (renderCache == null) ? null : renderCache.makeKey(this);
+      if (key != null) {
+        Point3D[][] cached = renderCache.read(key, pts.length, pts[0].length);
+        if (cached != null) {
+          pts = cached;
+          fireRebuilt();  // let listeners know we're done
+          return;
+        }
+      }
+      final Point3D[][] building = pts;
+      // a ProgressMonitor closes with progress >= max, so use size()+1
+      buildJob = renderService.submit(this, progressFactory.apply(cutPtMgr.size() + 1), (job) -> {
+        if ((key != null) && !job.isCanceled() && !job.isFailed()) {
+          renderCache.write(key, building);   // only a complete rendering is saved
+        }
+        if (!job.isAbandoned()) {
+          fireRebuilt();    // the job finishes on the render thread
+        }
+      });
     } else {      // not rendering
-      pcs.firePropertyChange(PROP_REBUILD, null, outline);  // let listeners know we're done
+      fireRebuilt();  // let listeners know we're done
+    }
+  }
+
+  /**
+   * Let listeners know that the rebuild is done. This is always fired on the
+   * event dispatch thread, because listeners generally update Swing
+   * components.
+   */
+  private void fireRebuilt() {
+    if (SwingUtilities.isEventDispatchThread()) {
+      pcs.firePropertyChange(PROP_REBUILD, null, outline);
+    } else {
+      SwingUtilities.invokeLater(() -> pcs.firePropertyChange(PROP_REBUILD, null, outline));
     }
   }
 
@@ -242,6 +332,30 @@ public class Surface implements PropertyChangeListener {
     return newPts;
   }
 
+  /**
+   * Find the layer of every point on the surface by measuring the distance
+   * from an uncut surface: 0 for the bowl, 1 for layer1, 2 for layer2.
+   *
+   * @return layer number for every surface point
+   */
+  public synchronized byte[][] findLayers() {
+    Point3D[][] uncutSurface = makeCleanSurface();
+    double dist1 = outline.getLayer1();        // depth of first color boundary
+    double dist2 = outline.getLayer1plus2();   // depth of second color boundary
+    byte[][] layer = new byte[getLength()][numSectors()];
+    for (int j = 0; j < layer.length; j++) {
+      for (int i = 0; i < layer[j].length; i++) {
+        double d = pts[j][i].distance(uncutSurface[j][i]);
+        if (d > dist2) {
+          layer[j][i] = 2;
+        } else if (d > dist1) {
+          layer[j][i] = 1;
+        }
+      }
+    }
+    return layer;
+  }
+
   /**
    * Add the given listener to this object.
    *
@@ -264,31 +378,15 @@ public class Surface implements PropertyChangeListener {
   public void propertyChange(PropertyChangeEvent evt) {
 //    System.out.println("Surface.propertyChange: " + evt.getSource().getClass().getSimpleName()+ " " + evt.getPropertyName() + " " + evt.getOldValue() + " " + evt.getNewValue());
 
-    switch (evt.getPropertyName()) {
-      case "progress":      // "progress" is from BuildTask -- update the ProgressMonitor
-        int progress = (Integer) evt.getNewValue();
-        progressMonitor.setProgress(progress);
-        progressMonitor.setNote("Rendering CutPoint " + (progress-1) + "\n");
-        break;
-      case "state":         // "state" is from BuildTask -- Are we done yet?
-        if (evt.getNewValue().equals(SwingWorker.StateValue.DONE)) {
-          progressMonitor.close();
-          buildTask.removePropertyChangeListener(this);
-          pcs.firePropertyChange(PROP_REBUILD, null, outline);  // let listeners know we're done
-        } break;
-      default:    // this listens to the Outline and to the CutPoint manager
-        if (!evt.getPropertyName().contains("Drag")) {  // don't keep updating when dragging a point
-          if ((buildTask != null) && (buildTask.getState() != SwingWorker.StateValue.DONE)) {
-            // There is already a buildTask running!!
-            // so shut it down and turn off rendering
-            progressMonitor.close();
-            buildTask.removePropertyChangeListener(this);   // don't listen when state goes to DONE
-            buildTask.cancel(true);     // cancel any current buildTask
-            Toolkit.getDefaultToolkit().beep();
-            render = false;             // TODO: Render button in View3DTopComponent is not reset!
-          }
-          rebuild();      // rebuild will fire a propertyChangeEvent
-      } break;
+    // this listens to the Outline and to the CutPoint manager
+    if (!evt.getPropertyName().contains("Drag")) {  // don't keep updating when dragging a point
+      if ((buildJob != null) && !buildJob.isDone()) {
+        // There is already a buildJob running!!
+        // so shut it down and turn off rendering
+        buildJob.cancel();      // the job won't fire PROP_REBUILD when it finishes
+        render = false;         // TODO: Render button in View3DTopComponent is not reset!
+      }
+      rebuild();      // rebuild will fire a propertyChangeEvent
     }
   }
 
@@ -302,7 +400,7 @@ public class Surface implements PropertyChangeListener {
       return;
     }
     RotMatrix rotZ = new RotMatrix(Axis.Z, deg);
-    for (int a = 0; a < pts[0].length; a++) {
+    for (int a = 0; a < cutSectors; a++) {
       for (Point3D[] pt : pts) {
         pt[a] = rotZ.apply(pt[a]);
       }
@@ -319,7 +417,7 @@ public class Surface implements PropertyChangeListener {
       return;
     }
     RotMatrix rotY = new RotMatrix(Axis.Y, deg);
-    for (int a = 0; a < pts[0].length; a++) {
+    for (int a = 0; a < cutSectors; a++) {
       for (Point3D[] pt : pts) {
         pt[a] = rotY.apply(pt[a]);
       }
@@ -334,7 +432,7 @@ public class Surface implements PropertyChangeListener {
    * @param z incremental z-axis offset
    */
   public void offset(double x, double y, double z) {
-    for (int a = 0; a < pts[0].length; a++) {
+    for (int a = 0; a < cutSectors; a++) {
       for (Point3D[] pt : pts) {
         pt[a] = new Point3D(x + pt[a].getX(), y + pt[a].getY(), z + pt[a].getZ());
       }
@@ -361,95 +459,38 @@ public class Surface implements PropertyChangeListener {
    * @param cutZ cutter z-coordinate
    */
   public synchronized void cutSurface(Cutter cutter, double cutX, double cutZ) {
-    int sectors = this.numSectors();			// number of sectors around shape
-    double rodR = cutter.getTipWidth() / 2.0;
-    double radius = cutter.getRadius();
-    Profile profile = cutter.getProfile();
-
-    RotMatrix angleMat = new RotMatrix(Axis.Z, -cutter.getUCFAngle());
-    RotMatrix angleMatI = new RotMatrix(Axis.Z, cutter.getUCFAngle());
-    RotMatrix rotateMat = new RotMatrix(Axis.Y, cutter.getUCFRotate());
-    RotMatrix rotateMatI = new RotMatrix(Axis.Y, -cutter.getUCFRotate());
+    SurfaceCut cut = new SurfaceCut(cutter, cutX, cutZ);
+    for (Point3D[] pt1 : pts) {
+      for (int a = 0; a < cutSectors; a++) {
+        pt1[a] = cut.apply(pt1[a]);
+      }
+    }
+  }
 
-    switch (cutter.getFrame()) {
-      case HCF:
-        for (Point3D[] pt1 : pts) {
-          for (int a = 0; a < sectors; a++) {
-            final double prof = profile.profileAt(pt1[a].getY(), rodR);
-            if (prof >= 0.0) {
-              final double radiusAtYOffset = radius - prof;
-              if (radiusAtYOffset >= 0.0) {
-                final double dx = pt1[a].getX() - cutX;		// distance from surface point to center of cutter
-                final double dz = pt1[a].getZ() - cutZ;
-                final double h = Math.hypot(dx, dz);
-                if (h < radiusAtYOffset) {
-                  pt1[a] = new Point3D(cutX + dx * radiusAtYOffset / h, pt1[a].getY(), cutZ + dz * radiusAtYOffset / h);   // cutter y --> lathe z
-                }
-              }
-            }
-          }
-        }
-        break;
-      case UCF:
-        for (Point3D[] pt1 : pts) {
-          for (int a = 0; a < sectors; a++) {
-            final Point3D p = new Point3D(pt1[a].getX() - cutX, pt1[a].getZ() - cutZ, -pt1[a].getY());	// actual xyz relative to cutter
-            final Point3D p1 = rotateMatI.apply(angleMatI.apply(p));			// convert actual xyz to cutter xyz
-            final double prof = profile.profileAt(p1.getZ(), rodR);
-            if (prof >= 0.0) {
-              final double radiusAtYOffset = radius - prof;
-              if (radiusAtYOffset >= 0.0) {
-                final double h = Math.hypot(p1.getX(), p1.getY());
-                if (h < radiusAtYOffset) {
-                  final Point3D p2 = new Point3D(p1.getX() * radiusAtYOffset / h, p1.getY() * radiusAtYOffset / h, p1.getZ());	// push out the points
-                  final Point3D p3 = angleMat.apply(rotateMat.apply(p2));	// convert cutter xyz to actual xyz
-                  pt1[a] = new Point3D(p3.getX() + cutX, pt1[a].getY(), p3.getY() + cutZ);   // cutter y --> lathe z
-                }
-              }
-            }
-          }
-        }
-        break;
-      case Drill:
-      case Fixed:
-        for (Point3D[] pt1 : pts) {
-          for (int a = 0; a < sectors; a++) {
-            final Point3D p = new Point3D(pt1[a].getX() - cutX, pt1[a].getZ() - cutZ, -pt1[a].getY());	// actual xyz relative to cutter
-            final Point3D p1 = angleMatI.apply(p);	// convert actual xyz to cutter xyz
-            if (p1.getY() > 0.0) {
-              final double h = Math.hypot(p1.getX(), p1.getZ());
-              final double prof = profile.profileAt(h, rodR);
-              if (prof >= 0.0) {
-                if (prof <= p1.getY()) {
-                  final Point3D p2 = new Point3D(p1.getX(), prof, p1.getZ());		// push out the points
-                  final Point3D p3 = angleMat.apply(p2);	// convert cutter xyz to actual xyz
-                  pt1[a] = new Point3D(p3.getX() + cutX, pt1[a].getY(), p3.getY() + cutZ);   // cutter y --> lathe z
-                }
-              }
-            }
-          }
-        }
-        break;
-      case ECF:
-        for (Point3D[] pt1 : pts) {
-          for (int a = 0; a < sectors; a++) {
-            final Point3D p = new Point3D(pt1[a].getX() - cutX, pt1[a].getZ() - cutZ, -pt1[a].getY());	// actual xyz relative to cutter
-            final Point3D p1 = angleMatI.apply(p);	// convert actual xyz to cutter xyz
-            if (p1.getY() > 0.0) {
-              final double h = Math.hypot(p1.getX(), p1.getZ());
-              if ((h <= (radius + rodR)) && (h >= (radius - rodR))) {
-                final double prof = profile.profileAt(h - radius, rodR);
-                if ((prof >= 0.0) && (prof <= p1.getY())) {
-                  final Point3D p2 = new Point3D(p1.getX(), prof, p1.getZ());		// push out the points
-                  final Point3D p3 = angleMat.apply(p2);	// convert cutter xyz to actual xyz
-                  pt1[a] = new Point3D(p3.getX() + cutX, pt1[a].getY(), p3.getY() + cutZ);   // cutter y --> lathe z
-                }
-              }
-            }
-          }
+  /**
+   * Make a list of cuts on the given surface, in order. Each cut has its own
+   * pose of the surface, so the surface itself is never moved.
+   *
+   * Each point of the surface is cut independently of the others, so separate
+   * rows of the surface are cut at the same time.
+   *
+   * @param cuts cuts in the order that they would be made
+   * @param monitor checked for cancellation
+   */
+  public synchronized void cutSurface(List<SurfaceCut> cuts, RenderProgress monitor) {
+    IntStream.range(0, pts.length).parallel().forEach((i) -> {
+      if (monitor.isCanceled()) {
+        return;
+      }
+      Point3D[] row = pts[i];
+      for (int a = 0; a < cutSectors; a++) {
+        Point3D pt = row[a];
+        for (SurfaceCut cut : cuts) {
+          pt = cut.apply(pt);
         }
-        break;
-    }
+        row[a] = pt;
+      }
+    });
   }
 
   /**
@@ -476,6 +517,9 @@ public class Surface implements PropertyChangeListener {
       cDeg += 360.0;		// no negative angle
     }
     int a = ((int) Math.round(cDeg / (360.0 / (double) sectors))) % sectors;	// index for surface[][] -- must be in range 0 to sectors
+    if (a >= cutSectors) {
+      return;     // this sector will be copied from one that is cut
+    }
     switch (cutter.getFrame()) {
       case HCF:
       case UCF:     // this should only happen if udfRotate==0.0
@@ -0,0 +1,174 @@
+package com.billooms.cutpoints.surface;
+
+import com.billooms.cutpoints.surface.RotMatrix.Axis;
+import com.billooms.cutters.Cutter;
+import com.billooms.cutters.Frame;
+import com.billooms.profiles.Profile;
+import javafx.geometry.Point3D;
+
+/**
+ * One cut with a cutter at a given x,z coordinate, with the surface in a given
+ * Pose.
+ *
+ * A cut only depends on where each point of the surface is, so it is applied
+ * one point at a time. That lets a list of cuts be made on separate parts of
+ * the surface at the same time (see Surface.cutSurface(List, RenderProgress)).
+ *
+ * @author Bill Ooms. Copyright 2015 Studio of Bill Ooms. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class SurfaceCut {
+
+  /** Pose of the surface for the cut. */
+  private final Pose pose;
+  /** Cutter frame. */
+  private final Frame frame;
+  /** Cutter x-coordinate. */
+  private final double cutX;
+  /** Cutter z-coordinate. */
+  private final double cutZ;
+  /** Half the tip width. */
+  private final double rodR;
+  /** Cutter radius. */
+  private final double radius;
+  /** Cutter profile. */
+  private final Profile profile;
+  private final RotMatrix angleMat, angleMatI, rotateMat, rotateMatI;
+
+  /**
+   * Construct a cut with the surface in its original position.
+   *
+   * @param cutter Cutter
+   * @param cutX cutter x-coordinate
+   * @param cutZ cutter z-coordinate
+   */
+  public SurfaceCut(Cutter cutter, double cutX, double cutZ) {
+    this(cutter, cutX, cutZ, Pose.IDENTITY);
+  }
+
+  /**
+   * Construct a cut with the surface in the given pose.
+   *
+   * @param cutter Cutter
+   * @param cutX cutter x-coordinate
+   * @param cutZ cutter z-coordinate
+   * @param pose pose of the surface
+   */
+  public SurfaceCut(Cutter cutter, double cutX, double cutZ, Pose pose) {
+    this.pose = pose;
+    this.frame = cutter.getFrame();
+    this.cutX = cutX;
+    this.cutZ = cutZ;
+    this.rodR = cutter.getTipWidth() / 2.0;
+    this.radius = cutter.getRadius();
+    this.profile = cutter.getProfile();
+    this.angleMat = new RotMatrix(Axis.Z, -cutter.getUCFAngle());
+    this.angleMatI = new RotMatrix(Axis.Z, cutter.getUCFAngle());
+    this.rotateMat = new RotMatrix(Axis.Y, cutter.getUCFRotate());
+    this.rotateMatI = new RotMatrix(Axis.Y, -cutter.getUCFRotate());
+  }
+
+  /**
+   * Make the cut at one point of the surface.
+   *
+   * @param pt point of the surface in its original position
+   * @return the cut point, or the same point if the cutter doesn't reach it
+   */
+  public Point3D apply(Point3D pt) {
+    if (pose == Pose.IDENTITY) {
+      return cut(pt);
+    }
+    Point3D moved = pose.apply(pt);
+    Point3D cut = cut(moved);
+    return (cut == moved) ? pt : pose.applyInverse(cut);
+  }
+
+  /**
+   * Make the cut at one point of the surface in the pose.
+   *
+   * @param pt point of the surface
+   * @return the cut point, or the same point if the cutter doesn't reach it
+   */
+  private Point3D cut(Point3D pt) {
+    switch (frame) {
+      case HCF: {
+        final double prof = profile.profileAt(pt.getY(), rodR);
+        if (prof >= 0.0) {
+          final double radiusAtYOffset = radius - prof;
+          if (radiusAtYOffset >= 0.0) {
+            final double dx = pt.getX() - cutX;		// distance from surface point to center of cutter
+            final double dz = pt.getZ() - cutZ;
+            final double h = Math.hypot(dx, dz);
+            if (h < radiusAtYOffset) {
+              return new Point3D(cutX + dx * radiusAtYOffset / h, pt.getY(), cutZ + dz * radiusAtYOffset / h);   // cutter y --> lathe z
+            }
+          }
+        }
+        break;
+      }
+      case UCF: {
+        final Point3D p = new Point3D(pt.getX() - cutX, pt.getZ() - cutZ, -pt.getY());	// actual xyz relative to cutter
+        final Point3D p1 = rotateMatI.apply(angleMatI.apply(p));			// convert actual xyz to cutter xyz
+        final double prof = profile.profileAt(p1.getZ(), rodR);
+        if (prof >= 0.0) {
+          final double radiusAtYOffset = radius - prof;
+          if (radiusAtYOffset >= 0.0) {
+            final double h = Math.hypot(p1.getX(), p1.getY());
+            if (h < radiusAtYOffset) {
+              final Point3D p2 = new Point3D(p1.getX() * radiusAtYOffset / h, p1.getY() * radiusAtYOffset / h, p1.getZ());	// push out the points
+              final Point3D p3 = angleMat.apply(rotateMat.apply(p2));	// convert cutter xyz to actual xyz
+              return new Point3D(p3.getX() + cutX, pt.getY(), p3.getY() + cutZ);   // cutter y --> lathe z
+            }
+          }
+        }
+        break;
+      }
+      case Drill:
+      case Fixed: {
+        final Point3D p = new Point3D(pt.getX() - cutX, pt.getZ() - cutZ, -pt.getY());	// actual xyz relative to cutter
+        final Point3D p1 = angleMatI.apply(p);	// convert actual xyz to cutter xyz
+        if (p1.getY() > 0.0) {
+          final double h = Math.hypot(p1.getX(), p1.getZ());
+          final double prof = profile.profileAt(h, rodR);
+          if (prof >= 0.0) {
+            if (prof <= p1.getY()) {
+              final Point3D p2 = new Point3D(p1.getX(), prof, p1.getZ());		// push out the points
+              final Point3D p3 = angleMat.apply(p2);	// convert cutter xyz to actual xyz
+              return new Point3D(p3.getX() + cutX, pt.getY(), p3.getY() + cutZ);   // cutter y --> lathe z
+            }
+          }
+        }
+        break;
+      }
+      case ECF: {
+        final Point3D p = new Point3D(pt.getX() - cutX, pt.getZ() - cutZ, -pt.getY());	// actual xyz relative to cutter
+        final Point3D p1 = angleMatI.apply(p);	// convert actual xyz to cutter xyz
+        if (p1.getY() > 0.0) {
+          final double h = Math.hypot(p1.getX(), p1.getZ());
+          if ((h <= (radius + rodR)) && (h >= (radius - rodR))) {
+            final double prof = profile.profileAt(h - radius, rodR);
+            if ((prof >= 0.0) && (prof <= p1.getY())) {
+              final Point3D p2 = new Point3D(p1.getX(), prof, p1.getZ());		// push out the points
+              final Point3D p3 = angleMat.apply(p2);	// convert cutter xyz to actual xyz
+              return new Point3D(p3.getX() + cutX, pt.getY(), p3.getY() + cutZ);   // cutter y --> lathe z
+            }
+          }
+        }
+        break;
+      }
+    }
+    return pt;
+  }
+}
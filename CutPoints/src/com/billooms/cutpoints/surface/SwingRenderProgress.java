@@ -0,0 +1,70 @@
+package com.billooms.cutpoints.surface;
+
+import java.awt.Component;
+import java.awt.Toolkit;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
+
+/**
+ * Adapter that shows rendering progress in a Swing ProgressMonitor.
+ *
+ * Progress and notes can be reported from any thread; the ProgressMonitor is
+ * only updated on the event dispatch thread.
+ *
+ * @author Bill Ooms. Copyright 2015 Studio of Bill Ooms. All rights reserved.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class SwingRenderProgress implements RenderProgress {
+
+  /** The Swing progress monitor. */
+  private final ProgressMonitor progressMonitor;
+  /** Set once the user has canceled (so that we only beep once). */
+  private volatile boolean canceled = false;
+
+  /**
+   * Construct a new SwingRenderProgress.
+   *
+   * @param parent parent component of the progress dialog
+   * @param message message shown in the progress dialog
+   * @param max maximum progress
+   */
+  public SwingRenderProgress(Component parent, String message, int max) {
+    progressMonitor = new ProgressMonitor(parent, message, "", 0, max);
+  }
+
+  @Override
+  public void setProgress(int progress) {
+    SwingUtilities.invokeLater(() -> progressMonitor.setProgress(progress));
+  }
+
+  @Override
+  public void setNote(String note) {
+    SwingUtilities.invokeLater(() -> progressMonitor.setNote(note));
+  }
+
+  @Override
+  public boolean isCanceled() {
+    if (!canceled && progressMonitor.isCanceled()) {
+      canceled = true;
+      Toolkit.getDefaultToolkit().beep();
+    }
+    return canceled;
+  }
+
+  @Override
+  public void done() {
+    SwingUtilities.invokeLater(() -> progressMonitor.close());
+  }
+}
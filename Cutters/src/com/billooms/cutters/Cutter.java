@@ -2,6 +2,7 @@ package com.billooms.cutters;
 
 import com.billooms.clclass.CLUtilities;
 import com.billooms.clclass.CLclass;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.drawables.Drawable;
 import static com.billooms.drawables.Drawable.LIGHT_DOT;
 import com.billooms.drawables.simple.Circle;
@@ -11,7 +12,6 @@ import com.billooms.profiles.Profiles;
 import java.awt.Color;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import org.w3c.dom.Element;
 
 /**
@@ -496,33 +496,33 @@ public class Cutter extends CLclass {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
+  public void writeXML(XMLWriter out) {
     String opt = "";
     switch (frame) {
       case HCF:
-        opt = opt + " radius='" + F3.format(radius) + "'";
+        opt = opt + " radius='" + out.f3(radius) + "'";
         break;
       case UCF:
-        opt = opt + " radius='" + F3.format(radius) + "'"
-            + " ucfAngle='" + F1.format(ucfAngle) + "'"
-            + " ucfRotate='" + F1.format(ucfRotate) + "'";
+        opt = opt + " radius='" + out.f3(radius) + "'"
+            + " ucfAngle='" + out.f1(ucfAngle) + "'"
+            + " ucfRotate='" + out.f1(ucfRotate) + "'";
         break;
       case Drill:
       case Fixed:
-        opt = opt + " ucfAngle='" + F1.format(ucfAngle) + "'";
+        opt = opt + " ucfAngle='" + out.f1(ucfAngle) + "'";
         break;
       case ECF:
-        opt = opt + " radius='" + F3.format(radius) + "'"
-            + " ucfAngle='" + F1.format(ucfAngle) + "'";
+        opt = opt + " radius='" + out.f3(radius) + "'"
+            + " ucfAngle='" + out.f1(ucfAngle) + "'";
         break;
     }
-    out.println(indent + "<Cutter"
+    out.println(out.indent() + "<Cutter"
         + " name='" + getName() + "'"
         + " displayName='" + getDisplayName() + "'"
         + " frame='" + frame.toString() + "'"
         + " location='" + location.toString() + "'"
         + " profile='" + profile.getName() + "'"
-        + " tipWidth='" + F4.format(tipWidth) + "'"
+        + " tipWidth='" + out.f4(tipWidth) + "'"
         + opt
         + "/>");
   }
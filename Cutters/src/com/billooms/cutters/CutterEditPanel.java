@@ -254,7 +254,7 @@ public class CutterEditPanel extends JPanel implements PropertyChangeListener {
       super.paintComponent(g);
       if (profMgr != null) {
         Profile pro = profMgr.get(profileCombo.getSelectedIndex());
-        g.drawImage(pro.getImage(), MARGIN, MARGIN, null);
+        pro.paintImage(g, MARGIN, MARGIN, this::repaint);
       }
     }
   }
@@ -1,9 +1,9 @@
 package com.billooms.cutters;
 
 import com.billooms.clclass.CLclass;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.profiles.Profiles;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import java.util.ArrayList;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
@@ -197,14 +197,14 @@ public class Cutters extends CLclass {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
-    out.println(indent + "<Cutters>");
-    indentMore();
+  public void writeXML(XMLWriter out) {
+    out.println(out.indent() + "<Cutters>");
+    out.indentMore();
     cutters.stream().forEach((pat) -> {
       pat.writeXML(out);    // Cutters can write out their own xml
     });
-    indentLess();
-    out.println(indent + "</Cutters>");
+    out.indentLess();
+    out.println(out.indent() + "</Cutters>");
   }
 
   @Override
@@ -3,6 +3,7 @@ package com.billooms.drawables;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 
 /**
  * Abstract interface defining things that are drawable.
@@ -70,4 +71,15 @@ public interface Drawable {
    * @param g2d Graphics2D g
    */
   void paint(Graphics2D g2d);
+
+  /**
+   * Get the area that paint(g2d) would cover, in the pixels of the given
+   * Graphics2D. This is for repainting only what has changed.
+   *
+   * @param g2d Graphics2D as it would be painted
+   * @return area in pixels (or null if it isn't known)
+   */
+  default Rectangle getPaintBounds(Graphics2D g2d) {
+    return null;
+  }
 }
@@ -2,10 +2,10 @@ package com.billooms.drawables;
 
 import com.billooms.clclass.CLUtilities;
 import com.billooms.clclass.CLclass;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.drawables.vecmath.Vector2d;
 import java.awt.Color;
 import java.awt.geom.Point2D;
-import java.io.PrintWriter;
 import javafx.geometry.Point3D;
 import org.w3c.dom.Element;
 
@@ -368,19 +368,19 @@ public abstract class Pt extends CLclass implements Drawable {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
+  public void writeXML(XMLWriter out) {
     String yz = "";
     if (style == Style.XY || style == Style.XYZ || style == Style.XYY) {
-      yz += " y='" + F4.format(y) + "'";
+      yz += " y='" + out.f4(y) + "'";
     }
     if (style == Style.XZ || style == Style.XYZ) {
-      yz += " z='" + F4.format(z) + "'";
+      yz += " z='" + out.f4(z) + "'";
     }
     if (style == Style.XYY) {
-      yz += " y2='" + F4.format(z) + "'";
+      yz += " y2='" + out.f4(z) + "'";
     }
-    out.println(indent + "<Pt"
-        + " x='" + F4.format(x) + "'"
+    out.println(out.indent() + "<Pt"
+        + " x='" + out.f4(x) + "'"
         + yz
         + "/>");
   }
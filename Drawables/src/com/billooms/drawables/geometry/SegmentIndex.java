@@ -0,0 +1,153 @@
+package com.billooms.drawables.geometry;
+
+import java.awt.geom.Point2D;
+
+/**
+ * An index of the line segments between an array of points, for quickly
+ * finding where a circle crosses them.
+ *
+ * The segments are grouped in blocks with a bounding box for each block, so
+ * only the segments near the circle are checked. Each of those is solved in
+ * closed form without making any new objects.
+ *
+ * The index keeps its own copy of the coordinates, so it doesn't change if the
+ * points change afterwards.
+ *
+ * @author Bill Ooms. Copyright 2015 Studio of Bill Ooms. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class SegmentIndex {
+
+  /** Number of segments in each block. */
+  private final static int BLOCK = 16;
+
+  /** x-coordinates of the points. */
+  private final double[] x;
+  /** y-coordinates of the points. */
+  private final double[] y;
+  /** Bounding box of each block of segments. */
+  private final double[] minX, maxX, minY, maxY;
+
+  /**
+   * Build an index of the segments between the given points.
+   *
+   * @param pts points in order
+   */
+  public SegmentIndex(Point2D.Double[] pts) {
+    x = new double[pts.length];
+    y = new double[pts.length];
+    for (int i = 0; i < pts.length; i++) {
+      x[i] = pts[i].x;
+      y[i] = pts[i].y;
+    }
+    int nSegs = Math.max(pts.length - 1, 0);
+    int nBlocks = (nSegs + BLOCK - 1) / BLOCK;
+    minX = new double[nBlocks];
+    maxX = new double[nBlocks];
+    minY = new double[nBlocks];
+    maxY = new double[nBlocks];
+    for (int b = 0; b < nBlocks; b++) {
+      int first = b * BLOCK;
+      int last = Math.min(first + BLOCK, nSegs);   // last point of the block
+      minX[b] = maxX[b] = x[first];
+      minY[b] = maxY[b] = y[first];
+      for (int i = first + 1; i <= last; i++) {
+        minX[b] = Math.min(minX[b], x[i]);
+        maxX[b] = Math.max(maxX[b], x[i]);
+        minY[b] = Math.min(minY[b], y[i]);
+        maxY[b] = Math.max(maxY[b], y[i]);
+      }
+    }
+  }
+
+  /**
+   * Get the number of points.
+   *
+   * @return number of points
+   */
+  public int size() {
+    return x.length;
+  }
+
+  /**
+   * Find the first and last points (in order along the segments) where the
+   * given circle crosses the segments. If the circle only crosses once, the
+   * end of the segments inside the circle is used for the other point.
+   *
+   * @param circle circle
+   * @return two points (or null if they don't intersect)
+   */
+  public Point2D.Double[] intersect(CircleGeom circle) {
+    final double cx = circle.p.x;
+    final double cy = circle.p.y;
+    final double r = circle.r;
+    int count = 0;
+    double firstX = 0.0, firstY = 0.0, lastX = 0.0, lastY = 0.0;
+    for (int b = 0; b < minX.length; b++) {
+      if ((maxX[b] < cx - r) || (minX[b] > cx + r) || (maxY[b] < cy - r) || (minY[b] > cy + r)) {
+        continue;   // nothing in this block is near the circle
+      }
+      int end = Math.min((b + 1) * BLOCK, x.length - 1);
+      for (int i = b * BLOCK; i < end; i++) {
+        // solve |p0 + t*(p1 - p0) - c| = r for 0 <= t <= 1
+        final double dx = x[i + 1] - x[i];
+        final double dy = y[i + 1] - y[i];
+        final double fx = x[i] - cx;
+        final double fy = y[i] - cy;
+        final double a = dx * dx + dy * dy;
+        if (a == 0.0) {
+          continue;   // zero length segment
+        }
+        final double bb = 2.0 * (fx * dx + fy * dy);
+        final double c = fx * fx + fy * fy - r * r;
+        final double disc = bb * bb - 4.0 * a * c;
+        if (disc < 0.0) {
+          continue;   // no intersection
+        }
+        final double sq = Math.sqrt(disc);
+        final double t0 = (-bb - sq) / (2.0 * a);
+        final double t1 = (-bb + sq) / (2.0 * a);
+        for (int k = 0; k < ((sq == 0.0) ? 1 : 2); k++) {   // single point intersection if tangent
+          final double t = (k == 0) ? t0 : t1;
+          if ((t >= 0.0) && (t <= 1.0)) {
+            lastX = x[i] + t * dx;
+            lastY = y[i] + t * dy;
+            if (count == 0) {
+              firstX = lastX;
+              firstY = lastY;
+            }
+            count++;
+          }
+        }
+      }
+    }
+    if (count == 0) {
+      return null;
+    }
+    if (count == 1) {
+      int n = x.length - 1;
+      if (Math.hypot(cx - x[0], cy - y[0]) < r) {
+        firstX = x[0];			// use the first point on the curve
+        firstY = y[0];
+      } else if (Math.hypot(cx - x[n], cy - y[n]) < r) {
+        lastX = x[n];			// use the last point on the curve
+        lastY = y[n];
+      } else {
+        return null;
+      }
+    }
+    return new Point2D.Double[]{new Point2D.Double(firstX, firstY), new Point2D.Double(lastX, lastY)};
+  }
+}
@@ -5,6 +5,8 @@ import static com.billooms.drawables.Drawable.SOLID_LINE;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
 import java.awt.geom.Point2D;
 
 /**
@@ -239,4 +241,31 @@ public abstract class AbstractDrawable implements Drawable {
   public double getYPixSizeInch(Graphics2D g2d) {
     return (double) ptSize / g2d.getTransform().getScaleY();
   }
+
+  /**
+   * Get the area in pixels covered by a point of ptSize pixels at x, y.
+   *
+   * @param g2d Graphics2D
+   * @return area in pixels
+   */
+  protected Rectangle getPtBounds(Graphics2D g2d) {
+    Point2D pix = g2d.getTransform().transform(new Point2D.Double(x, y), null);
+    Rectangle r = new Rectangle((int) Math.floor(pix.getX()), (int) Math.floor(pix.getY()), 1, 1);
+    r.grow(ptSize / 2 + 2, ptSize / 2 + 2);    // extra for the line width and anti-aliasing
+    return r;
+  }
+
+  /**
+   * Get the area in pixels covered by drawing the given shape with a one pixel
+   * line.
+   *
+   * @param g2d Graphics2D
+   * @param s shape in inches
+   * @return area in pixels
+   */
+  protected static Rectangle getShapeBounds(Graphics2D g2d, Shape s) {
+    Rectangle r = g2d.getTransform().createTransformedShape(s).getBounds();
+    r.grow(2, 2);   // extra for the line width and anti-aliasing
+    return r;
+  }
 }
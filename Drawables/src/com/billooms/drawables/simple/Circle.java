@@ -3,6 +3,7 @@ package com.billooms.drawables.simple;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Point2D;
@@ -137,4 +138,13 @@ public class Circle extends AbstractDrawable {
       g2d.setTransform(saveXform);	// Restore transform
     }
   }
+
+  @Override
+  public Rectangle getPaintBounds(Graphics2D g2d) {
+    AffineTransform at = new AffineTransform();
+    at.translate(x, y);
+    at.rotate(Math.toRadians(-angle));
+    double rCos = Math.abs(radius * Math.cos(Math.toRadians(rotate)));
+    return getShapeBounds(g2d, at.createTransformedShape(new Ellipse2D.Double(-rCos, -radius, 2.0 * rCos, 2.0 * radius)));
+  }
 }
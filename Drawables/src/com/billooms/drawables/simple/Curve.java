@@ -1,6 +1,7 @@
 package com.billooms.drawables.simple;
 
 import com.billooms.drawables.BoundingBox;
+import com.billooms.drawables.geometry.SegmentIndex;
 import com.billooms.drawables.vecmath.Vector2d;
 import java.awt.BasicStroke;
 import java.awt.Color;
@@ -39,6 +40,11 @@ public class Curve extends AbstractDrawable {
 
   /** Array of points defining the curve. */
   private Point2D.Double[] points;
+  /** Index of the segments (made when first needed, null when the points change). */
+  private SegmentIndex index = null;
+  /** Stroke used for the last paint, and the stroke and scale it was made from. */
+  private BasicStroke scaledStroke = null, scaledFrom = null;
+  private float strokeScale = 0.0f;
 
   /**
    * A drawable curve defined by an array of points.
@@ -91,15 +97,20 @@ public class Curve extends AbstractDrawable {
       if (scale < 0.0) {
         return;		// not sure why this happens sometimes
       }
-      float array[] = getStroke().getDashArray();
-      if ((array == null) || (array.length == 0)) {
-        g2d.setStroke(new BasicStroke(1.0f / scale));
-      } else {
-        for (int i = 0; i < array.length; i++) {
-          array[i] = array[i] / scale;
+      if ((scaledStroke == null) || (scaledFrom != getStroke()) || (strokeScale != scale)) {
+        float array[] = getStroke().getDashArray();
+        if ((array == null) || (array.length == 0)) {
+          scaledStroke = new BasicStroke(1.0f / scale);
+        } else {
+          for (int i = 0; i < array.length; i++) {
+            array[i] = array[i] / scale;
+          }
+          scaledStroke = new BasicStroke(1.0f / scale, getStroke().getEndCap(), getStroke().getLineJoin(), 1.0f, array, getStroke().getDashPhase() / scale);
         }
-        g2d.setStroke(new BasicStroke(1.0f / scale, getStroke().getEndCap(), getStroke().getLineJoin(), 1.0f, array, getStroke().getDashPhase() / scale));
+        scaledFrom = getStroke();     // keep it until the stroke or scale changes
+        strokeScale = scale;
       }
+      g2d.setStroke(scaledStroke);
       GeneralPath polyline = new GeneralPath(GeneralPath.WIND_EVEN_ODD, points.length);
       polyline.moveTo(points[0].x, points[0].y);
       for (Point2D.Double pt : points) {
@@ -114,6 +125,7 @@ public class Curve extends AbstractDrawable {
    */
   public void clear() {
     this.points = new Point2D.Double[0];
+    this.index = null;
   }
 
   /**
@@ -132,6 +144,21 @@ public class Curve extends AbstractDrawable {
    */
   public void setPoints(Point2D.Double[] pts) {
     this.points = pts;
+    this.index = null;
+  }
+
+  /**
+   * Get an index of the segments of the curve for finding intersections. It is
+   * made the first time it is needed and kept until the points change (call
+   * setPoints after changing the points returned by getPoints).
+   *
+   * @return index of the segments
+   */
+  public synchronized SegmentIndex getSegmentIndex() {
+    if (index == null) {
+      index = new SegmentIndex(points);
+    }
+    return index;
   }
 
   /**
@@ -347,6 +374,7 @@ public class Curve extends AbstractDrawable {
     for (Point2D.Double point : points) {
       point.x = -point.x;   // change sign of x
     }
+    index = null;
   }
 
   /**
@@ -533,5 +561,6 @@ public class Curve extends AbstractDrawable {
     }
     newPts[newPts.length - 1] = points[points.length - 1];    // last point should be the same too 
     this.points = newPts;
+    this.index = null;
   }
 }
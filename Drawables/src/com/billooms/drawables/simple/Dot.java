@@ -3,6 +3,7 @@ package com.billooms.drawables.simple;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Point2D;
 
@@ -70,4 +71,9 @@ public class Dot extends AbstractDrawable {
       }
     }
   }
+
+  @Override
+  public Rectangle getPaintBounds(Graphics2D g2d) {
+    return getPtBounds(g2d);
+  }
 }
@@ -3,6 +3,7 @@ package com.billooms.drawables.simple;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 
@@ -104,4 +105,9 @@ public class Line extends AbstractDrawable {
       g2d.draw(new Line2D.Double(x, y, x + w, y + h));
     }
   }
+
+  @Override
+  public Rectangle getPaintBounds(Graphics2D g2d) {
+    return getShapeBounds(g2d, new Line2D.Double(x, y, x + w, y + h));
+  }
 }
@@ -3,6 +3,7 @@ package com.billooms.drawables.simple;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 
@@ -65,4 +66,9 @@ public class Plus extends AbstractDrawable {
       g2d.draw(new Line2D.Double(x + sizeX / 2.0, y, x - sizeX / 2.0, y));
     }
   }
+
+  @Override
+  public Rectangle getPaintBounds(Graphics2D g2d) {
+    return getPtBounds(g2d);
+  }
 }
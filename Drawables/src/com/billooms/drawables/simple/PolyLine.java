@@ -4,6 +4,7 @@ import com.billooms.drawables.vecmath.Vector2d;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
@@ -160,4 +161,15 @@ public class PolyLine extends AbstractDrawable {
     ptList = newList;
   }
 
+  @Override
+  public Rectangle getPaintBounds(Graphics2D g2d) {
+    Rectangle r = null;
+    for (int i = 1; i < ptList.size(); i++) {
+      Point2D.Double p = ptList.get(i - 1);
+      Point2D.Double pm1 = ptList.get(i);
+      Rectangle seg = getShapeBounds(g2d, new Line2D.Double(pm1.x, pm1.y, p.x, p.y));
+      r = (r == null) ? seg : r.union(seg);
+    }
+    return (r == null) ? new Rectangle() : r;    // nothing is painted for less than 2 points
+  }
 }
@@ -3,6 +3,7 @@ package com.billooms.drawables.simple;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 
@@ -70,4 +71,9 @@ public class Square extends AbstractDrawable {
       }
     }
   }
+
+  @Override
+  public Rectangle getPaintBounds(Graphics2D g2d) {
+    return getPtBounds(g2d);
+  }
 }
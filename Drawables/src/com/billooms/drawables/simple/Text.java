@@ -5,6 +5,7 @@ import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 
@@ -170,4 +171,39 @@ public class Text extends AbstractDrawable {
     double zeroY = xform.getTranslateY();
     return new Point((int) zeroX + (int) (getX() * dpi), (int) zeroY - (int) (getY() * dpi));
   }
+
+  @Override
+  public Rectangle getPaintBounds(Graphics2D g2d) {
+    Point pix = scaleInchToPix(g2d.getTransform());		// location of text in pixels
+    FontMetrics fm = g2d.getFontMetrics(font);
+    int width = fm.stringWidth(str);
+    int left = pix.x, base = pix.y;
+    switch (justify) {
+      case BOT_CENTER:
+      case CENTER:
+      case TOP_CENTER:
+        left = pix.x - width / 2;
+        break;
+      case BOT_RIGHT:
+      case RIGHT:
+      case TOP_RIGHT:
+        left = pix.x - width;
+        break;
+    }
+    switch (justify) {
+      case LEFT:
+      case CENTER:
+      case RIGHT:
+        base = pix.y + fm.getAscent() / 2;
+        break;
+      case TOP_LEFT:
+      case TOP_CENTER:
+      case TOP_RIGHT:
+        base = pix.y + fm.getAscent();
+        break;
+    }
+    Rectangle r = new Rectangle(left, base - fm.getAscent(), width, fm.getAscent() + fm.getDescent());
+    r.grow(2, 2);   // extra for anti-aliasing
+    return r;
+  }
 }
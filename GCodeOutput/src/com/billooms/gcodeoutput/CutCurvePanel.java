@@ -228,7 +228,7 @@ public class CutCurvePanel extends JPanel implements PropertyChangeListener {
    * @param outline the outline
    */
   public void makeInstructions(CutList cutList, Cutter cutter, Outline outline) {
-    Curve followCurve = outline.getCutterPathCurve(cutter);
+    Curve followCurve = new Curve(outline.getCutterPathCurve(cutter));   // don't change the Outline's curve
     followCurve.reSample(getStep());
 
     double depth = -getBackoff();
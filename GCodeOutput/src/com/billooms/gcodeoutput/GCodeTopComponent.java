@@ -1,9 +1,7 @@
 package com.billooms.gcodeoutput;
 
 import com.billooms.controls.Controls;
-import com.billooms.controls.FeedRate;
 import com.billooms.cutlist.CutList;
-import com.billooms.cutlist.Inst;
 import com.billooms.cutpoints.CutPoints;
 import com.billooms.cutpoints.OffsetCut;
 import com.billooms.cutters.Cutter;
@@ -15,9 +13,6 @@ import java.awt.BorderLayout;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.PrintWriter;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
-import java.util.Locale;
 import org.netbeans.api.settings.ConvertAsProperties;
 import org.openide.DialogDisplayer;
 import org.openide.NotifyDescriptor;
@@ -69,10 +64,6 @@ import org.openide.windows.WindowManager;
 })
 public final class GCodeTopComponent extends TopComponent implements PropertyChangeListener {
 
-  /** G-code always uses a period decimal separator, even in locales that would otherwise use a comma. */
-  private final static DecimalFormat F2 = new DecimalFormat("0.00", DecimalFormatSymbols.getInstance(Locale.US));
-  private final static DecimalFormat F5 = new DecimalFormat("0.00000", DecimalFormatSymbols.getInstance(Locale.US));
-  
   private final HardwarePrefs prefs = Lookup.getDefault().lookup(HardwarePrefs.class);
   private static ExplorerManager em = null;   // all instances share one ExplorerManager
 
@@ -168,170 +159,9 @@ public final class GCodeTopComponent extends TopComponent implements PropertyCha
   }
 
   private void convertToG(PrintWriter out, CutList cutList) {
-    out.println("; g-code generated by COrnLathe3 from file: " + rootNode.getDisplayName());
-    out.println("g20 (units are inches)");
-    out.println("g90 (absolute distance mode)");
-
-//    int maxInvF = 60 * prefs.getMaxGPerSec();       // Max inverse time speed based on max instructions per second
-    int stepsPerRot = prefs.getStepsPerRotation();
-    double stepsPerInch = prefs.getStepsPerInch();
-    double rpm = controlPanel.feedPanel.getRpm();	// rotations per minute
-    double vel = controlPanel.feedPanel.getVelocity();	// inches per minute
-
-    long lastX = 0;		// Assume the stage is currently at 0,0,0
-    long lastZ = 0;		// This might not be true, but there is no way of knowing.
-    long lastC = 0;		// *** TODO Find some way around this! ***
-    boolean firstPt = true;	// flag so that we always go to first point even if 0,0,0
-    double x, z, c, xx, zz, cc, dx, dz, dc, time;
-    long lx, lz, lc;
-    for (Inst i : cutList.getAll()) {
-      x = i.getX();
-      z = i.getZ();
-      c = i.getC();	// reminder: degrees (not rotation)
-      lx = Math.round((x * stepsPerInch));
-      lz = Math.round((z * stepsPerInch));
-      lc = Math.round(c / 360.0 * (double) stepsPerRot);	// reminder: steps
-      xx = lx / stepsPerInch;
-      zz = lz / stepsPerInch;
-      cc = lc * 360.0 / (double) stepsPerRot;
-      dx = Math.abs((double) (lx - lastX) / stepsPerInch);
-      dz = Math.abs((double) (lz - lastZ) / stepsPerInch);
-      dc = Math.abs((double) (lc - lastC) / stepsPerRot);	// reminder: rotation (not degrees)
-      switch (i.getType()) {
-        case COMMENT:
-          out.println("; " + i.getText());
-          break;
-        case GO_XZ_FAST:	// Proportional X & Z movement scaled with one stage at max velocity
-          if ((lx == lastX) && (lz == lastZ) && !firstPt) {
-            break;		// no movement
-          }
-          // Inches per minute mode
-          out.println("g94 g1"
-              + " x" + F5.format(x)
-              + " z" + F5.format(z)
-              + " f" + F2.format(FeedRate.MAX_VEL));
-          lastX = lx;
-          lastZ = lz;
-          firstPt = false;
-          break;
-        case GO_XZ_VEL:			// Proportional X & Z movement scaled with one stage at set velocity
-          if ((lx == lastX) && (lz == lastZ) && !firstPt) {
-            break;		// no movement
-          }
-          // Inches per minute mode
-          out.println("g94 g1"
-              + " x" + F5.format(x)
-              + " z" + F5.format(z)
-              + " f" + F2.format(vel));
-          lastX = lx;
-          lastZ = lz;
-          firstPt = false;
-          break;
-        case GO_XZC_FAST:	// Proportional X & Z movement scaled with one stage at max velocity, maximum spindle
-          if ((lx == lastX) && (lz == lastZ) && (lc == lastC)) {
-            if (firstPt) {
-              out.println("g0"
-                  + " x" + F5.format(x)
-                  + " z" + F5.format(z)
-                  + " c" + F2.format(c));
-              firstPt = false;
-              break;
-            } else {
-              break;		// no movement
-            }
-          }
-          time = Math.max(Math.max(dx / FeedRate.MAX_VEL, dz / FeedRate.MAX_VEL), dc / FeedRate.MAX_RPM);
-          // Inverse Time mode using both velocity and rpm 
-          // (whichever is the limit for the distance traveled)
-          out.println("g93 g1"
-              + " x" + F5.format(x)
-              + " z" + F5.format(z)
-              + " c" + F2.format(c)
-              + " f" + F2.format(1.0 / time));
-          lastX = lx;
-          lastZ = lz;
-          lastC = lc;
-          firstPt = false;
-          break;
-        case GO_XZC_VEL:	// Proportional X, Z, and C, scaled for set velocity
-          if ((lx == lastX) && (lz == lastZ) && (lc == lastC) && !firstPt) {
-            break;		// no movement
-          }
-          if ((lx != lastX) || (lz != lastZ)) {	// either x or z is moving
-            // Inches per minute mode limited by velocity
-            out.println("g94 g1"
-                + " x" + F5.format(x)
-                + " z" + F5.format(z)
-                + " c" + F2.format(c)
-                + " f" + F2.format(vel));
-          } else {								// only c is moving
-            // Inverse Time mode using rpm as the limit
-            out.println("g93 g1"
-                + " c" + F2.format(c)
-                + " f" + F2.format(rpm / dc));
-          }
-          lastX = lx;
-          lastZ = lz;
-          lastC = lc;
-          firstPt = false;
-          break;
-        case GO_XZC_RPM:	// Proportional X, Z, and C, scaled for set RPM
-          if ((lx == lastX) && (lz == lastZ) && (lc == lastC) && !firstPt) {
-            break;		// no movement
-          }
-          // Don't go faster than MAX_VEL 
-          // This is mainly used when following rosettes
-          // Note we aren't using the panel feed rate, but the MAX
-          time = Math.max(Math.max(dx / FeedRate.MAX_VEL, dz / FeedRate.MAX_VEL), dc / rpm);
-          if (lc != lastC) {		// c is moving
-            // Inverse Time mode using rpm as the limit
-            // but don't exceed max instructions per second
-            out.println("g93 g1"
-                + " x" + F5.format(xx)
-                + " z" + F5.format(zz)
-                + " c" + F2.format(cc)
-//                + " f" + F2.format(Math.min(1.0 / time, maxInvF)));
-                + " f" + F2.format(1.0 / time));
-          } else {				// c isn't moving, so x or z must be moving
-            // Inches per minute mode limited by velocity
-            out.println("g94 g1"
-                + " x" + F5.format(x)
-                + " z" + F5.format(z)
-                + " f" + F2.format(vel));
-          }
-          lastX = lx;
-          lastZ = lz;
-          lastC = lc;
-          firstPt = false;
-          break;
-        case TURN:			// Turn to C degrees at set RPM, no wrap check	
-          if (lc == lastC) {
-            break;		// no movement
-          }
-          // Inverse Time mode using rpm as the limit
-          out.println("g93 g1"
-              + " c" + F2.format(c)
-              + " f" + F2.format(rpm / dc));
-          lastC = lc;
-          break;
-        case SPINDLE_WRAP_CHECK:	// Wrap-around check : set spindle between -180 and +180 degrees
-          long newC = lastC;
-          while (newC > stepsPerRot / 2) {
-            newC = newC - stepsPerRot;
-          }
-          while (newC < -stepsPerRot / 2) {
-            newC = newC + stepsPerRot;
-          }
-          if (newC != lastC) {
-            // Offset the c axis back to +/- 180 degrees
-            out.println("g92 c" + ((double) newC * 360.0 / (double) stepsPerRot));
-            lastC = newC;
-          }
-          break;
-      }
-    }
-    out.println("g92.1 (clear offsets)");
-    out.println("m2 (end of program)");
+    GCodeWriter writer = new GCodeWriter(prefs.getStepsPerRotation(), prefs.getStepsPerInch(),
+        controlPanel.feedPanel.getRpm(), controlPanel.feedPanel.getVelocity());
+    writer.write(out, cutList.getAll(), rootNode.getDisplayName());
   }
 
   @Override
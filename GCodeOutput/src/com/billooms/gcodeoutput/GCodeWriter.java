@@ -0,0 +1,257 @@
+package com.billooms.gcodeoutput;
+
+import com.billooms.controls.FeedRate;
+import com.billooms.cutlist.Inst;
+import java.io.PrintWriter;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Converts a list of pseudo-instructions into g-code.
+ * 
+ * This has no dependence on the GUI so that it can be used both by the
+ * GCodeTopComponent and by headless batch processing.
+ *
+ * @author Bill Ooms. Copyright 2015 Studio of Bill Ooms. All rights reserved.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class GCodeWriter {
+
+  /** G-code always uses a period decimal separator, even in locales that would otherwise use a comma.
+   * These are per writer (not static) because DecimalFormat is not thread-safe. */
+  private final DecimalFormat F2 = new DecimalFormat("0.00", DecimalFormatSymbols.getInstance(Locale.US));
+  private final DecimalFormat F5 = new DecimalFormat("0.00000", DecimalFormatSymbols.getInstance(Locale.US));
+
+  /** Spindle steps per rotation. */
+  private final int stepsPerRot;
+  /** X and Z stage steps per inch. */
+  private final double stepsPerInch;
+  /** Rotations per minute. */
+  private final double rpm;
+  /** Inches per minute. */
+  private final double vel;
+
+  /** Output for the g-code. */
+  private PrintWriter out;
+  /** Number of g-code lines written by the last call to write(). */
+  private int lineCount = 0;
+
+  /**
+   * Construct a new GCodeWriter.
+   *
+   * @param stepsPerRot spindle steps per rotation
+   * @param stepsPerInch X and Z stage steps per inch
+   * @param rpm rotations per minute
+   * @param vel inches per minute
+   */
+  public GCodeWriter(int stepsPerRot, double stepsPerInch, double rpm, double vel) {
+    this.stepsPerRot = stepsPerRot;
+    this.stepsPerInch = stepsPerInch;
+    this.rpm = rpm;
+    this.vel = vel;
+  }
+
+  /**
+   * Get the number of g-code lines written by the last call to write().
+   *
+   * @return number of lines
+   */
+  public int getLineCount() {
+    return lineCount;
+  }
+
+  /**
+   * Convert the given instructions to g-code.
+   *
+   * @param out output
+   * @param insts list of pseudo-instructions
+   * @param fileName name of the file the instructions came from
+   */
+  public synchronized void write(PrintWriter out, List<Inst> insts, String fileName) {
+    this.out = out;
+    lineCount = 0;
+    println("; g-code generated by COrnLathe3 from file: " + fileName);
+    println("g20 (units are inches)");
+    println("g90 (absolute distance mode)");
+
+    long lastX = 0;		// Assume the stage is currently at 0,0,0
+    long lastZ = 0;		// This might not be true, but there is no way of knowing.
+    long lastC = 0;		// *** TODO Find some way around this! ***
+    boolean firstPt = true;	// flag so that we always go to first point even if 0,0,0
+    double x, z, c, xx, zz, cc, dx, dz, dc, time;
+    long lx, lz, lc;
+    for (Inst i : insts) {
+      x = i.getX();
+      z = i.getZ();
+      c = i.getC();	// reminder: degrees (not rotation)
+      lx = Math.round((x * stepsPerInch));
+      lz = Math.round((z * stepsPerInch));
+      lc = Math.round(c / 360.0 * (double) stepsPerRot);	// reminder: steps
+      xx = lx / stepsPerInch;
+      zz = lz / stepsPerInch;
+      cc = lc * 360.0 / (double) stepsPerRot;
+      dx = Math.abs((double) (lx - lastX) / stepsPerInch);
+      dz = Math.abs((double) (lz - lastZ) / stepsPerInch);
+      dc = Math.abs((double) (lc - lastC) / stepsPerRot);	// reminder: rotation (not degrees)
+      switch (i.getType()) {
+        case COMMENT:
+          println("; " + i.getText());
+          break;
+        case GO_XZ_FAST:	// Proportional X & Z movement scaled with one stage at max velocity
+          if ((lx == lastX) && (lz == lastZ) && !firstPt) {
+            break;		// no movement
+          }
+          // Inches per minute mode
+          println("g94 g1"
+              + " x" + F5.format(x)
+              + " z" + F5.format(z)
+              + " f" + F2.format(FeedRate.MAX_VEL));
+          lastX = lx;
+          lastZ = lz;
+          firstPt = false;
+          break;
+        case GO_XZ_VEL:			// Proportional X & Z movement scaled with one stage at set velocity
+          if ((lx == lastX) && (lz == lastZ) && !firstPt) {
+            break;		// no movement
+          }
+          // Inches per minute mode
+          println("g94 g1"
+              + " x" + F5.format(x)
+              + " z" + F5.format(z)
+              + " f" + F2.format(vel));
+          lastX = lx;
+          lastZ = lz;
+          firstPt = false;
+          break;
+        case GO_XZC_FAST:	// Proportional X & Z movement scaled with one stage at max velocity, maximum spindle
+          if ((lx == lastX) && (lz == lastZ) && (lc == lastC)) {
+            if (firstPt) {
+              println("g0"
+                  + " x" + F5.format(x)
+                  + " z" + F5.format(z)
+                  + " c" + F2.format(c));
+              firstPt = false;
+              break;
+            } else {
+              break;		// no movement
+            }
+          }
+          time = Math.max(Math.max(dx / FeedRate.MAX_VEL, dz / FeedRate.MAX_VEL), dc / FeedRate.MAX_RPM);
+          // Inverse Time mode using both velocity and rpm 
+          // (whichever is the limit for the distance traveled)
+          println("g93 g1"
+              + " x" + F5.format(x)
+              + " z" + F5.format(z)
+              + " c" + F2.format(c)
+              + " f" + F2.format(1.0 / time));
+          lastX = lx;
+          lastZ = lz;
+          lastC = lc;
+          firstPt = false;
+          break;
+        case GO_XZC_VEL:	// Proportional X, Z, and C, scaled for set velocity
+          if ((lx == lastX) && (lz == lastZ) && (lc == lastC) && !firstPt) {
+            break;		// no movement
+          }
+          if ((lx != lastX) || (lz != lastZ)) {	// either x or z is moving
+            // Inches per minute mode limited by velocity
+            println("g94 g1"
+                + " x" + F5.format(x)
+                + " z" + F5.format(z)
+                + " c" + F2.format(c)
+                + " f" + F2.format(vel));
+          } else {								// only c is moving
+            // Inverse Time mode using rpm as the limit
+            println("g93 g1"
+                + " c" + F2.format(c)
+                + " f" + F2.format(rpm / dc));
+          }
+          lastX = lx;
+          lastZ = lz;
+          lastC = lc;
+          firstPt = false;
+          break;
+        case GO_XZC_RPM:	// Proportional X, Z, and C, scaled for set RPM
+          if ((lx == lastX) && (lz == lastZ) && (lc == lastC) && !firstPt) {
+            break;		// no movement
+          }
+          // Don't go faster than MAX_VEL 
+          // This is mainly used when following rosettes
+          // Note we aren't using the panel feed rate, but the MAX
+          time = Math.max(Math.max(dx / FeedRate.MAX_VEL, dz / FeedRate.MAX_VEL), dc / rpm);
+          if (lc != lastC) {		// c is moving
+            // Inverse Time mode using rpm as the limit
+            // but don't exceed max instructions per second
+            println("g93 g1"
+                + " x" + F5.format(xx)
+                + " z" + F5.format(zz)
+                + " c" + F2.format(cc)
+//                + " f" + F2.format(Math.min(1.0 / time, maxInvF)));
+                + " f" + F2.format(1.0 / time));
+          } else {				// c isn't moving, so x or z must be moving
+            // Inches per minute mode limited by velocity
+            println("g94 g1"
+                + " x" + F5.format(x)
+                + " z" + F5.format(z)
+                + " f" + F2.format(vel));
+          }
+          lastX = lx;
+          lastZ = lz;
+          lastC = lc;
+          firstPt = false;
+          break;
+        case TURN:			// Turn to C degrees at set RPM, no wrap check	
+          if (lc == lastC) {
+            break;		// no movement
+          }
+          // Inverse Time mode using rpm as the limit
+          println("g93 g1"
+              + " c" + F2.format(c)
+              + " f" + F2.format(rpm / dc));
+          lastC = lc;
+          break;
+        case SPINDLE_WRAP_CHECK:	// Wrap-around check : set spindle between -180 and +180 degrees
+          long newC = lastC;
+          while (newC > stepsPerRot / 2) {
+            newC = newC - stepsPerRot;
+          }
+          while (newC < -stepsPerRot / 2) {
+            newC = newC + stepsPerRot;
+          }
+          if (newC != lastC) {
+            // Offset the c axis back to +/- 180 degrees
+            println("g92 c" + ((double) newC * 360.0 / (double) stepsPerRot));
+            lastC = newC;
+          }
+          break;
+      }
+    }
+    println("g92.1 (clear offsets)");
+    println("m2 (end of program)");
+    this.out = null;
+  }
+
+  /**
+   * Write one line of g-code.
+   *
+   * @param line g-code line
+   */
+  private void println(String line) {
+    out.println(line);
+    lineCount++;
+  }
+}
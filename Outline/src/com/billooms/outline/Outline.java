@@ -2,7 +2,7 @@ package com.billooms.outline;
 
 import com.billooms.clclass.CLUtilities;
 import com.billooms.clclass.CLclass;
-import static com.billooms.clclass.CLclass.indent;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.cutters.Cutter;
 import com.billooms.cutters.CutterEditPanel;
 import com.billooms.cutters.Cutters;
@@ -16,8 +16,13 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import javax.swing.SwingUtilities;
 import org.openide.DialogDisplayer;
 import org.openide.NotifyDescriptor;
 import org.w3c.dom.Element;
@@ -27,6 +32,13 @@ import org.w3c.dom.NodeList;
  * Outline of the shape defined by a series of points which can represent either
  * the inner surface or the outer surface.
  *
+ * The inside, outside and cutter path curves are generated from the points
+ * into an OutlineCurves snapshot which is replaced (never changed) whenever
+ * the outline changes, so readers always see a consistent set of curves. While
+ * points are being dragged, the curves are generated on a background thread
+ * from a copy of the points and only the latest request is built; the new
+ * snapshot is published on the event dispatch thread with PROP_DRAG_CURVES.
+ *
  * @author Bill Ooms. Copyright 2015 Studio of Bill Ooms. All rights reserved.
  * 
  * This program is free software: you can redistribute it and/or modify
@@ -60,6 +72,12 @@ public class Outline extends CLclass {
   public final static String PROP_SAFEPATH = PROP_PREFIX + "SafePath";
   /** Property name used when changing multiple points. */
   public final static String PROP_MULTI = PROP_PREFIX + "Multi";
+  /**
+   * Property name used when new curves have been built while dragging. This is
+   * a "Drag" so the cut points and surface don't update, and is ignored at the
+   * top level because the file has already changed.
+   */
+  public final static String PROP_DRAG_CURVES = PROP_PREFIX + "DragCurves_Ignore";
 
   /** Default thickness of the shape (currently set to 0.100) */
   public final static double DEFAULT_THICKNESS = 0.100;
@@ -75,9 +93,13 @@ public class Outline extends CLclass {
   public final static Color DEFAULT_COLOR = new Color(186, 99, 18);
 
   private final static Color DOT_CURVE_COLOR = Color.LIGHT_GRAY;
-  private final static Color INSIDE_CURVE_COLOR = Color.MAGENTA;
-  private final static Color OUTSIDE_CURVE_COLOR = Color.ORANGE;
-  private final static Color CUT_CURVE_COLOR = Color.WHITE;
+
+  /** All Outlines share one background thread for building curves while dragging. */
+  private final static ExecutorService CURVE_BUILDER = Executors.newSingleThreadExecutor((r) -> {
+    Thread t = new Thread(r, "COrnLathe outline curves");
+    t.setDaemon(true);
+    return t;
+  });
 
   /** Location of the points defining the shape. */
   private Location dotLocation = DEFAULT_LOCATION;
@@ -99,12 +121,12 @@ public class Outline extends CLclass {
   private FittedCurve dotCurve = null;
   /** Optional curve holding SafePath points from end to beginning. */
   private SafePath safePath = null;
-  /** Inside curve. */
-  private Curve insideCurve = null;
-  /** Outside curve. */
-  private Curve outsideCurve = null;
-  /** List of curves representing the centerline of the various cutters. */
-  private final ArrayList<Curve> cutterPaths = new ArrayList<>();
+  /** Version of the most recently requested curves. */
+  private final AtomicLong curveVersion = new AtomicLong(0);
+  /** Inside, outside and cutter path curves (replaced, never changed). */
+  private volatile OutlineCurves curves = new OutlineCurves(0);
+  /** Curves waiting to be built in the background (only the latest is built). */
+  private final AtomicReference<Supplier<OutlineCurves>> nextCurves = new AtomicReference<>(null);
   /** Cutter manager. */
   private Cutters cutterMgr = null;
   /** Cutter that is currently selected in the CutterEditPanel. */
@@ -119,8 +141,6 @@ public class Outline extends CLclass {
   public Outline(Element element, Cutters cutMgr) {
     this.cutterMgr = cutMgr;
     dotCurve = new FittedCurve(DOT_CURVE_COLOR, LIGHT_DOT);
-    insideCurve = new Curve(INSIDE_CURVE_COLOR, SOLID_LINE);
-    outsideCurve = new Curve(OUTSIDE_CURVE_COLOR, SOLID_LINE);
     this.dotLocation = CLUtilities.getEnum(element, "dotLocation", Location.class, DEFAULT_LOCATION);
     this.thickness = CLUtilities.getDouble(element, "thickness", DEFAULT_THICKNESS);
     this.resolution = CLUtilities.getDouble(element, "resolution", DEFAULT_RESOLUTION);
@@ -152,79 +172,75 @@ public class Outline extends CLclass {
   }
 
   /**
-   * Update all of the curves.
+   * Update all of the curves now.
    */
   private void updateCurves() {
     if (dotCurve == null) {
       return;
     }
-    if (dotLocation.isInside()) {
-      insideCurve.setPoints(dotCurve.buildCurvePoints(resolution));
-      outsideCurve.setPoints(insideCurve.ptsOffset(dotLocation.isFront() ? thickness : -thickness));
-    } else {
-      outsideCurve.setPoints(dotCurve.buildCurvePoints(resolution));
-      insideCurve.setPoints(outsideCurve.ptsOffset(dotLocation.isFront() ? -thickness : thickness));
-    }
-    if (cutter != null) {
-      if (dotLocation.isFront() != cutter.getLocation().isFront()) {
-        insideCurve.flipX();
-        outsideCurve.flipX();
-      }
+    publishCurves(captureCurves().get());
+  }
+
+  /**
+   * Update all of the curves on the background thread. If this is called again
+   * before the build has started, only the latest request is built. The new
+   * curves are published on the event dispatch thread with PROP_DRAG_CURVES
+   * unless a newer version has been published in the meantime.
+   */
+  private void updateCurvesLater() {
+    if (nextCurves.getAndSet(captureCurves()) == null) {
+      CURVE_BUILDER.execute(() -> {
+        OutlineCurves newCurves = nextCurves.getAndSet(null).get();
+        SwingUtilities.invokeLater(() -> {
+          if (publishCurves(newCurves)) {
+            pcs.firePropertyChange(PROP_DRAG_CURVES, null, null);
+          }
+        });
+      });
     }
-    insideCurve.reSample(resolution);		// uniform point spacing on all curves
-    outsideCurve.reSample(resolution);
-
-    // Build curves for all available cutters
-    cutterPaths.clear();
-    for (Cutter c : cutterMgr.getAllCutters()) {
-      Curve cPath = new Curve(CUT_CURVE_COLOR, SOLID_LINE);
-      cPath.setPoints(dotCurve.buildCurvePoints(resolution));
-      cPath.offsetPts(dotToCutter(c));
-      if (cutter != null) {
-        if (dotLocation.isFront() != cutter.getLocation().isFront()) {
-          cPath.flipX();
-        }
-      }
-      cPath.reSample(resolution);		// uniform point spacing on all curves
-      cutterPaths.add(cPath);
+  }
+
+  /**
+   * Capture everything needed to build the curves so that they can be built on
+   * any thread while the points keep changing.
+   *
+   * @return builder for the next version of the curves
+   */
+  private synchronized Supplier<OutlineCurves> captureCurves() {
+    final long version = curveVersion.incrementAndGet();
+    final Point2D.Double[] dots = new Point2D.Double[dotCurve.getSize()];
+    for (int i = 0; i < dots.length; i++) {
+      dots[i] = dotCurve.getPt(i).getPoint2D();
     }
+    final Location loc = dotLocation;
+    final double thick = thickness;
+    final double res = resolution;
+    final boolean flip = isFlipped();
+    return () -> new OutlineCurves(version, dots, loc, thick, res, flip);
   }
 
   /**
-   * Calculate the offset from dotCurve to cutterPath curve when the curve
-   * surface is digitized.
+   * Determine if the curves should be flipped to the other side because the
+   * selected cutter is on the other side from the dots.
    *
-   * @param ct cutter
-   * @return offset
+   * @return true: flip the curves
    */
-  private double dotToCutter(Cutter ct) {
-    double offset = 0.0;
-    switch (ct.getFrame()) {	// offset for HCF & UCF
-      case HCF:
-      case UCF:
-        if (dotLocation.isInside() == ct.getLocation().isInside()) {
-          offset = ct.getRadius();
-        } else {
-          offset = ct.getRadius() + thickness;
-        }
-        if ((dotLocation.isFront() && ct.getLocation().isInside())
-            || (dotLocation.isBack() && ct.getLocation().isOutside())) {
-          offset = -offset;
-        }
-        break;
-      case Drill:
-      case ECF:
-      case Fixed:
-        if (dotLocation.isInside() != ct.getLocation().isInside()) {
-          offset = thickness;
-        }
-        if ((dotLocation.isFront() && ct.getLocation().isInside())
-            || (dotLocation.isBack() && ct.getLocation().isOutside())) {
-          offset = -offset;
-        }
-        break;
+  private boolean isFlipped() {
+    return (cutter != null) && (dotLocation.isFront() != cutter.getLocation().isFront());
+  }
+
+  /**
+   * Publish new curves unless newer ones have already been published.
+   *
+   * @param newCurves new curves
+   * @return true: published
+   */
+  private synchronized boolean publishCurves(OutlineCurves newCurves) {
+    if (newCurves.getVersion() < curves.getVersion()) {
+      return false;
     }
-    return offset;
+    curves = newCurves;
+    return true;
   }
 
   @Override
@@ -244,15 +260,13 @@ public class Outline extends CLclass {
     if (safePath != null) {
       safePath.getCurve().paint(g2d);
     }
-    if (insideCurve != null) {
-      insideCurve.paint(g2d);
-    }
-    if (outsideCurve != null) {
-      outsideCurve.paint(g2d);
-    }
+    OutlineCurves c = curves;    // paint a consistent set
+    c.getInsideCurve().paint(g2d);
+    c.getOutsideCurve().paint(g2d);
     if (cutter != null) {
-      if (getCutterPathCurve(cutter) != null) {
-        getCutterPathCurve(cutter).paint(g2d);
+      Curve path = c.getCutterPathCurve(cutter);
+      if (path != null) {
+        path.paint(g2d);
       }
     }
   }
@@ -486,13 +500,23 @@ public class Outline extends CLclass {
     return dotCurve;
   }
 
+  /**
+   * Get the current set of curves. Use this to get several curves that must be
+   * consistent with each other while the outline might be changing.
+   *
+   * @return current curves
+   */
+  public OutlineCurves getCurves() {
+    return curves;
+  }
+
   /**
    * Get the inside curve.
    *
    * @return inside curve
    */
   public Curve getInsideCurve() {
-    return insideCurve;
+    return curves.getInsideCurve();
   }
 
   /**
@@ -501,7 +525,7 @@ public class Outline extends CLclass {
    * @return outside curve
    */
   public Curve getOutsideCurve() {
-    return outsideCurve;
+    return curves.getOutsideCurve();
   }
 
   /**
@@ -511,13 +535,14 @@ public class Outline extends CLclass {
    * @return curve to cut (or null if cutter has not been set)
    */
   public Curve getCutSurfaceCurve() {
+    OutlineCurves c = curves;
     if (cutter == null) {
-      return insideCurve;   // arbitrary
+      return c.getInsideCurve();   // arbitrary
     }
     if (cutter.getLocation().isInside()) {
-      return insideCurve;
+      return c.getInsideCurve();
     } else {
-      return outsideCurve;
+      return c.getOutsideCurve();
     }
   }
 
@@ -528,10 +553,7 @@ public class Outline extends CLclass {
    * @return curve
    */
   public Curve getCutterPathCurve(Cutter c) {
-    if (c == null || cutterPaths.isEmpty()) {
-      return null;
-    }
-    return cutterPaths.get(cutterMgr.indexOf(c.getName()));
+    return curves.getCutterPathCurve(c);
   }
 
   /**
@@ -553,9 +575,7 @@ public class Outline extends CLclass {
     }
     // However, this Outline still listens to changes in the empty curve
     // so that as points are added this can respond.
-    insideCurve.clear();
-    outsideCurve.clear();
-    cutterPaths.clear();
+    curves = new OutlineCurves(curveVersion.incrementAndGet());
   }
 
   /**
@@ -569,17 +589,14 @@ public class Outline extends CLclass {
       return bb;
     }
     bb = dotCurve.getBoundingBox();
-    if (insideCurve != null) {
-      bb = new BoundingBox(bb, insideCurve.getBoundingBox());
-    }
-    if (outsideCurve != null) {
-      bb = new BoundingBox(bb, outsideCurve.getBoundingBox());
-    }
+    OutlineCurves c = curves;
+    bb = new BoundingBox(bb, c.getInsideCurve().getBoundingBox());
+    bb = new BoundingBox(bb, c.getOutsideCurve().getBoundingBox());
     if (dotCurve != null) {
       bb = new BoundingBox(bb, dotCurve.getBoundingBox());
     }
     if (cutter != null) {
-      bb = new BoundingBox(bb, getCutterPathCurve(cutter).getBoundingBox());
+      bb = new BoundingBox(bb, c.getCutterPathCurve(cutter).getBoundingBox());
     }
     return bb;
   }
@@ -672,7 +689,7 @@ public class Outline extends CLclass {
   }
 
   /**
-   * Set a new cutter and update all curves.
+   * Set a new cutter and update the curves if they flip to the other side.
    *
    * @param newCutter new cutter
    */
@@ -684,7 +701,18 @@ public class Outline extends CLclass {
     if (newCutter != null) {
       cutter.addPropertyChangeListener(this);	  // listen to the new one
     }
-    updateCurves();
+    updateCutterCurves();
+  }
+
+  /**
+   * Update the curves after a change of cutter. The cutter paths are built when
+   * they are needed (and built again if their cutter has changed), so the
+   * curves only have to be updated if they flip to the other side.
+   */
+  private void updateCutterCurves() {
+    if (isFlipped() != curves.isFlipped()) {
+      updateCurves();
+    }
   }
 
   /**
@@ -804,14 +832,24 @@ public class Outline extends CLclass {
       setCutter((Cutter) evt.getNewValue());	    // grab any newly selected cutter
     }
     if (evt.getPropertyName().contains("Drag")) {
-      return; // don't keep updating when dragging a point, and don't pass the propChange on
+      invalidateHash();   // the points have still moved
+      if (evt.getSource() == dotCurve) {
+        updateCurvesLater();    // so the curves follow the drag without holding up the editor
+      }
+      return; // don't pass the propChange on
     }
     if (evt.getPropertyName().equals(SafePath.PROP_REQ_DELETE)) {
       if (evt.getSource() instanceof SafePath) {
         deleteSafePath();
       }
     }
-    updateCurves();	  // update the curves for everything but a "Drag"
+    if (evt.getPropertyName().startsWith(CutterEditPanel.PROP_PREFIX)
+        || evt.getPropertyName().startsWith(Cutter.PROP_PREFIX)
+        || evt.getPropertyName().startsWith(Cutters.PROP_PREFIX)) {
+      updateCutterCurves();
+    } else {
+      updateCurves();	  // update the curves for everything but a "Drag"
+    }
     if (evt.getPropertyName().startsWith(CutterEditPanel.PROP_PREFIX)
         || evt.getPropertyName().startsWith(Cutter.PROP_PREFIX)) {
     // Use this instead to note a change in selected cutter so that the "WRITE G-Code" button gets flagged
@@ -824,32 +862,32 @@ public class Outline extends CLclass {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
+  public void writeXML(XMLWriter out) {
     String opt = "";
     if (layer1 != 0.0) {
-      opt += " layer1='" + F3.format(layer1) + "'";
+      opt += " layer1='" + out.f3(layer1) + "'";
       opt += " color1='rgb(" + color1.getRed() + ", " + color1.getGreen() + ", " + color1.getBlue() + ")'";
     }
     if (layer2 != 0.0) {
-      opt += " layer2='" + F3.format(layer2) + "'";
+      opt += " layer2='" + out.f3(layer2) + "'";
       opt += " color2='rgb(" + color2.getRed() + ", " + color2.getGreen() + ", " + color2.getBlue() + ")'";
     }
-    out.println(indent + "<Outline"
+    out.println(out.indent() + "<Outline"
         + " dotLocation='" + dotLocation.toString() + "'"
-        + " thickness='" + F3.format(thickness) + "'"
-        + " resolution='" + F3.format(resolution) + "'"
+        + " thickness='" + out.f3(thickness) + "'"
+        + " resolution='" + out.f3(resolution) + "'"
         + " color='rgb(" + color.getRed() + ", " + color.getGreen() + ", " + color.getBlue() + ")'"
         + opt
         + ">");
-    indentMore();
+    out.indentMore();
     dotCurve.getAllPoints().stream().forEach((p) -> {
       p.writeXML(out);
     });
     if (safePath != null) {
       safePath.writeXML(out);
     }
-    indentLess();
-    out.println(indent + "</Outline>");
+    out.indentLess();
+    out.println(out.indent() + "</Outline>");
   }
 
 }
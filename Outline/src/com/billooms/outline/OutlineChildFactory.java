@@ -66,6 +66,9 @@ class OutlineChildFactory extends ChildFactory.Detachable<CLclass> implements Pr
   @Override
   public void propertyChange(PropertyChangeEvent evt) {
 //    System.out.println("OutlineChildFactory.propertyChange: " + evt.getPropertyName() + " " + evt.getOldValue() + " " + evt.getNewValue());
+    if (evt.getPropertyName().equals(Outline.PROP_DRAG_CURVES)) {
+      return;   // only the generated curves changed, not the points
+    }
     // When Outline changes, refresh the child nodes
     refresh(true);
   }
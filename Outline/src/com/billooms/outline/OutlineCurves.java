@@ -0,0 +1,256 @@
+package com.billooms.outline;
+
+import com.billooms.cutters.Cutter;
+import static com.billooms.drawables.Drawable.LIGHT_DOT;
+import static com.billooms.drawables.Drawable.SOLID_LINE;
+import com.billooms.drawables.FittedCurve;
+import com.billooms.drawables.simple.Curve;
+import java.awt.Color;
+import java.awt.geom.Point2D;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * One consistent set of the curves generated from an Outline: the inside
+ * curve, the outside curve and the path of the center of each cutter.
+ *
+ * The Outline never changes a set once it has been published; it makes a new
+ * set with a higher version instead. So a reader that gets the set once can
+ * use all of its curves together even while the outline is being changed
+ * (copy a curve before changing it).
+ *
+ * The inside and outside curves are built with the set. A cutter path is only
+ * built the first time it is asked for, and is then kept for that cutter
+ * along with the offset it was built with. If the cutter is changed so that
+ * its offset is different, only that cutter's path is built again.
+ *
+ * @author Bill Ooms. Copyright 2015 Studio of Bill Ooms. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class OutlineCurves {
+
+  private final static Color INSIDE_CURVE_COLOR = Color.MAGENTA;
+  private final static Color OUTSIDE_CURVE_COLOR = Color.ORANGE;
+  private final static Color CUT_CURVE_COLOR = Color.WHITE;
+
+  /** Version of this set (higher is newer). */
+  private final long version;
+  /** Points fitted to the outline points (null for an empty set). */
+  private final Point2D.Double[] fitPts;
+  /** Location of the outline points. */
+  private final Location dotLocation;
+  /** Thickness of the shape. */
+  private final double thickness;
+  /** Resolution of the curves. */
+  private final double resolution;
+  /** True: the curves are flipped to the other side for the selected cutter. */
+  private final boolean flip;
+  /** Inside curve. */
+  private final Curve insideCurve;
+  /** Outside curve. */
+  private final Curve outsideCurve;
+  /** Cutter paths that have been built so far, by cutter. */
+  private final Map<Cutter, CutterPath> cutterPaths = new WeakHashMap<>();
+
+  /**
+   * Build a new set of curves from a copy of the outline points.
+   *
+   * @param version version of this set
+   * @param dots copy of the points defining the shape
+   * @param dotLocation location of the points
+   * @param thickness thickness of the shape
+   * @param resolution resolution of the curves
+   * @param flip true: flip the curves to the other side
+   */
+  OutlineCurves(long version, Point2D.Double[] dots, Location dotLocation,
+      double thickness, double resolution, boolean flip) {
+    this.version = version;
+    this.dotLocation = dotLocation;
+    this.thickness = thickness;
+    this.resolution = resolution;
+    this.flip = flip;
+
+    FittedCurve fit = new FittedCurve(INSIDE_CURVE_COLOR, LIGHT_DOT);
+    for (Point2D.Double dot : dots) {
+      fit.addPt(new OutlinePt(dot));
+    }
+    this.fitPts = fit.buildCurvePoints(resolution);    // fit once and copy for each curve
+
+    insideCurve = new Curve(INSIDE_CURVE_COLOR, SOLID_LINE);
+    outsideCurve = new Curve(OUTSIDE_CURVE_COLOR, SOLID_LINE);
+    if (dotLocation.isInside()) {
+      insideCurve.setPoints(copyPoints(fitPts));
+      outsideCurve.setPoints(copyPoints(insideCurve.ptsOffset(dotLocation.isFront() ? thickness : -thickness)));
+    } else {
+      outsideCurve.setPoints(copyPoints(fitPts));
+      insideCurve.setPoints(copyPoints(outsideCurve.ptsOffset(dotLocation.isFront() ? -thickness : thickness)));
+    }
+    if (flip) {
+      insideCurve.flipX();
+      outsideCurve.flipX();
+    }
+    insideCurve.reSample(resolution);		// uniform point spacing on all curves
+    outsideCurve.reSample(resolution);
+  }
+
+  /**
+   * Construct an empty set of curves.
+   *
+   * @param version version of this set
+   */
+  OutlineCurves(long version) {
+    this.version = version;
+    this.fitPts = null;
+    this.dotLocation = Outline.DEFAULT_LOCATION;
+    this.thickness = Outline.DEFAULT_THICKNESS;
+    this.resolution = Outline.DEFAULT_RESOLUTION;
+    this.flip = false;
+    this.insideCurve = new Curve(INSIDE_CURVE_COLOR, SOLID_LINE);
+    this.outsideCurve = new Curve(OUTSIDE_CURVE_COLOR, SOLID_LINE);
+  }
+
+  /**
+   * Get the version of this set of curves. A set with a higher version was
+   * made from a later state of the Outline.
+   *
+   * @return version
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Determine if the curves were flipped to the other side because the
+   * selected cutter is on the other side from the outline points.
+   *
+   * @return true: flipped
+   */
+  public boolean isFlipped() {
+    return flip;
+  }
+
+  /**
+   * Get the inside curve.
+   *
+   * @return inside curve
+   */
+  public Curve getInsideCurve() {
+    return insideCurve;
+  }
+
+  /**
+   * Get the outside curve.
+   *
+   * @return outside curve
+   */
+  public Curve getOutsideCurve() {
+    return outsideCurve;
+  }
+
+  /**
+   * Get the path of the center of the given cutter, building it if it hasn't
+   * been built yet or if the cutter has changed since it was built.
+   *
+   * @param ct cutter
+   * @return curve (or null if no cutter or this is an empty set)
+   */
+  public Curve getCutterPathCurve(Cutter ct) {
+    if ((ct == null) || (fitPts == null)) {
+      return null;
+    }
+    double offset = dotToCutter(ct);
+    synchronized (cutterPaths) {
+      CutterPath path = cutterPaths.get(ct);
+      if ((path == null) || (path.offset != offset)) {
+        Curve cPath = new Curve(copyPoints(fitPts), CUT_CURVE_COLOR, SOLID_LINE);
+        cPath.offsetPts(offset);
+        if (flip) {
+          cPath.flipX();
+        }
+        cPath.reSample(resolution);		// uniform point spacing on all curves
+        path = new CutterPath(offset, cPath);
+        cutterPaths.put(ct, path);
+      }
+      return path.curve;
+    }
+  }
+
+  /**
+   * Calculate the offset from dotCurve to cutterPath curve when the curve
+   * surface is digitized.
+   *
+   * @param ct cutter
+   * @return offset
+   */
+  private double dotToCutter(Cutter ct) {
+    double offset = 0.0;
+    switch (ct.getFrame()) {	// offset for HCF & UCF
+      case HCF:
+      case UCF:
+        if (dotLocation.isInside() == ct.getLocation().isInside()) {
+          offset = ct.getRadius();
+        } else {
+          offset = ct.getRadius() + thickness;
+        }
+        if ((dotLocation.isFront() && ct.getLocation().isInside())
+            || (dotLocation.isBack() && ct.getLocation().isOutside())) {
+          offset = -offset;
+        }
+        break;
+      case Drill:
+      case ECF:
+      case Fixed:
+        if (dotLocation.isInside() != ct.getLocation().isInside()) {
+          offset = thickness;
+        }
+        if ((dotLocation.isFront() && ct.getLocation().isInside())
+            || (dotLocation.isBack() && ct.getLocation().isOutside())) {
+          offset = -offset;
+        }
+        break;
+    }
+    return offset;
+  }
+
+  /**
+   * Copy an array of points (flipX changes the points themselves).
+   *
+   * @param pts points
+   * @return new array of new points
+   */
+  private static Point2D.Double[] copyPoints(Point2D.Double[] pts) {
+    Point2D.Double[] copy = new Point2D.Double[pts.length];
+    for (int i = 0; i < pts.length; i++) {
+      copy[i] = new Point2D.Double(pts[i].x, pts[i].y);
+    }
+    return copy;
+  }
+
+  /**
+   * A cutter path and the offset it was built with.
+   */
+  private static class CutterPath {
+
+    /** Offset from the outline points. */
+    private final double offset;
+    /** Path of the center of the cutter. */
+    private final Curve curve;
+
+    CutterPath(double offset, Curve curve) {
+      this.offset = offset;
+      this.curve = curve;
+    }
+  }
+}
@@ -1,16 +1,13 @@
 package com.billooms.outline;
 
 import com.billooms.clclass.CLclass;
-import static com.billooms.clclass.CLclass.indent;
-import static com.billooms.clclass.CLclass.indentLess;
-import static com.billooms.clclass.CLclass.indentMore;
 import static com.billooms.drawables.Drawable.SOLID_LINE;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.drawables.PiecedLine;
 import com.billooms.drawables.Pt;
 import com.billooms.drawables.PtDefinedLine;
 import java.awt.Color;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import java.util.ArrayList;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
@@ -140,16 +137,16 @@ public class SafePath extends CLclass {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
+  public void writeXML(XMLWriter out) {
     if (!safeCurve.isempty()) {	  // Don't write anything if there are no points
-      out.println(indent + "<SafePath"
+      out.println(out.indent() + "<SafePath"
           + ">");
-      indentMore();
+      out.indentMore();
       safeCurve.getAllPoints().stream().forEach((p) -> {
         p.writeXML(out);
       });
-      indentLess();
-      out.println(indent + "</SafePath>");
+      out.indentLess();
+      out.println(out.indent() + "</SafePath>");
     }
   }
 
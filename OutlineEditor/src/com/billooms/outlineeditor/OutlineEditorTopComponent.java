@@ -1,5 +1,6 @@
 package com.billooms.outlineeditor;
 
+import com.billooms.clclass.CoalescingListener;
 import com.billooms.cutpoints.CutPoint;
 import com.billooms.cutpoints.CutPoints;
 import com.billooms.cutpoints.GoToPoint;
@@ -23,6 +24,7 @@ import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.dnd.DnDConstants;
 import java.awt.dnd.DropTarget;
 import java.awt.dnd.DropTargetDragEvent;
@@ -34,7 +36,9 @@ import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
@@ -42,6 +46,8 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.PrintWriter;
 import java.text.DecimalFormat;
+import java.util.Arrays;
+import java.util.List;
 import javax.swing.JPanel;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import org.netbeans.api.settings.ConvertAsProperties;
@@ -109,6 +115,8 @@ public final class OutlineEditorTopComponent extends TopComponent implements Pro
   private final static String EXTENSION = "txt";
   private final static DecimalFormat F4 = new DecimalFormat("0.0000");
   private final static DecimalFormat F3 = new DecimalFormat("0.000");
+  /** Milliseconds to wait for more model changes before updating. */
+  private final static int UPDATE_DELAY = 20;
 
   private static ExplorerManager em = null;   // all instances share one ExplorerManager
   private final InstanceContent ic = new InstanceContent();   // will contain outline and cutMgr
@@ -124,6 +132,8 @@ public final class OutlineEditorTopComponent extends TopComponent implements Pro
   private Outline outline = null;
   /** CutPoint manager. */
   private CutPoints cutPtMgr = null;
+  /** Listens to the outline and CutPoint manager so that a burst of changes is one update. */
+  private final CoalescingListener modelListener = new CoalescingListener(this, UPDATE_DELAY, true);
 
   public OutlineEditorTopComponent() {
     initComponents();
@@ -157,7 +167,7 @@ public final class OutlineEditorTopComponent extends TopComponent implements Pro
   private synchronized void updateRootNode() {
     if (outline != null) {
       cutEditPanel.removePropertyChangeListener(outline);   // old outline quit listening to cutter
-      outline.removePropertyChangeListener(this);	    // this quits listening to old outline
+      outline.removePropertyChangeListener(modelListener);	    // this quits listening to old outline
       ic.remove(outline);
     }
     Node rootNode = em.getRootContext();
@@ -172,7 +182,7 @@ public final class OutlineEditorTopComponent extends TopComponent implements Pro
       setName(Bundle.CTL_OutlineEditorTopComponent() + ": " + rootNode.getDisplayName());
       outline = rootNode.getLookup().lookup(Outline.class);
       if (outline != null) {
-        outline.addPropertyChangeListener(this);	  // this listens to outline
+        outline.addPropertyChangeListener(modelListener);	  // this listens to outline
         cutEditPanel.addPropertyChangeListener(outline);  // Outline listens when cutter changed
         dropT.setActive(true);
         ic.add(outline);	    // make the outline availble to actions via lookup
@@ -191,18 +201,18 @@ public final class OutlineEditorTopComponent extends TopComponent implements Pro
    */
   protected synchronized void setCutPointMgr(CutPoints newMgr) {
     if (cutPtMgr != null) {
-      cutPtMgr.removePropertyChangeListener(this);  // quit listening to the old CutPoint manager
+      cutPtMgr.removePropertyChangeListener(modelListener);  // quit listening to the old CutPoint manager
       ic.remove(cutPtMgr);
     }
     this.cutPtMgr = newMgr;
-    drawPanel.repaint();
+    drawPanel.modelChanged();
     if (cutPtMgr != null) {
       if (cutPtMgr.isEmpty()) {
         editOutlineButton.setSelected(true);
       } else {
         editCutPointsButton.setSelected(true);
       }
-      cutPtMgr.addPropertyChangeListener(this);	// listen for CutPoint changes
+      cutPtMgr.addPropertyChangeListener(modelListener);	// listen for CutPoint changes
       ic.add(cutPtMgr);
     }
   }
@@ -246,7 +256,7 @@ public final class OutlineEditorTopComponent extends TopComponent implements Pro
       }
     }
 
-    drawPanel.repaint();
+    drawPanel.modelChanged();
   }
 
   public Cutter getSelectedCutter() {
@@ -277,6 +287,8 @@ public final class OutlineEditorTopComponent extends TopComponent implements Pro
     // Refresh the outline when rootContext changes on the ExplorerManager
     if (evt.getPropertyName().equals(ExplorerManager.PROP_ROOT_CONTEXT)) {
       updateRootNode();
+    } else if (drawPanel.isDraggingCut() && evt.getPropertyName().contains("Drag")) {
+      // the dragged CutPoint is repainted by itself (see DrawPanel.mouseDragged)
     } else {
       // This listens to the Outline and the CutPoint manager
       // update everything and repaint
@@ -636,6 +648,8 @@ public final class OutlineEditorTopComponent extends TopComponent implements Pro
     private final Font MESSAGE_FONT = new Font("SansSerif", Font.BOLD, 16);
     private final Color MESSAGE_COLOR = Color.GREEN;
     private final static String OPEN_MSG = "Load a file by double clicking in Favorites window";
+    /** Only used for its Graphics, to find where things would be painted. */
+    private final BufferedImage MEASURE_IMAGE = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
 
     private final Cursor EDIT_CURSOR = new Cursor(Cursor.CROSSHAIR_CURSOR);
     private final Cursor MOVE_CURSOR = new Cursor(Cursor.MOVE_CURSOR);
@@ -660,6 +674,13 @@ public final class OutlineEditorTopComponent extends TopComponent implements Pro
     /** Original position of a point before dragging. */
     private Point2D.Double savedPos;
 
+    /** Grid, outline and CutPoints (except one being dragged), kept until something changes. */
+    private BufferedImage background = null;
+    /** What the background was painted for (size, scale, view, cutter and the dragged CutPoint). */
+    private List<Object> backgroundKey = null;
+    /** Area in pixels covered by the dragged CutPoint when it was last painted (null if not known). */
+    private Rectangle grabbedBounds = null;
+
     /**
      * Create a new drawing panel
      */
@@ -678,18 +699,105 @@ public final class OutlineEditorTopComponent extends TopComponent implements Pro
         FontMetrics fm = g2d.getFontMetrics(MESSAGE_FONT);
         g2d.setFont(MESSAGE_FONT);
         g2d.drawString(OPEN_MSG, getWidth() / 2 - fm.stringWidth(OPEN_MSG) / 2, getHeight() / 2);
+      } else if (isPaintingForPrint()) {
+        paintModel(g2d, null);    // full resolution for printing
       } else {
-        g2d.translate(zeroPix.x, zeroPix.y);
-        g2d.scale(dpi, -dpi);	// positive y is up
+        // the background is only painted again when something changes
+        AffineTransform device = g2d.getTransform();
+        int w = (int) Math.ceil(getWidth() * device.getScaleX());     // full resolution on scaled displays
+        int h = (int) Math.ceil(getHeight() * device.getScaleY());
+        Cutter cutter = allCutsCheckBox.isSelected() ? null : cutEditPanel.getCutter();
+        List<Object> key = Arrays.asList(w, h, dpi, zeroPix, cutter, grabbedCut);
+        if ((background == null) || !key.equals(backgroundKey)) {
+          if ((w <= 0) || (h <= 0)) {
+            return;
+          }
+          if ((background == null) || (background.getWidth() != w) || (background.getHeight() != h)) {
+            background = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+          }   // else paint over the old one (like when panning)
+          Graphics2D bg = background.createGraphics();
+          bg.setRenderingHints(g2d.getRenderingHints());
+          bg.setColor(getBackground());
+          bg.fillRect(0, 0, w, h);
+          bg.scale(device.getScaleX(), device.getScaleY());
+          paintModel(bg, grabbedCut);
+          bg.dispose();
+          backgroundKey = key;
+        }
+        g2d.drawImage(background, 0, 0, getWidth(), getHeight(), null);
+        if (grabbedCut != null) {
+          g2d.translate(zeroPix.x, zeroPix.y);
+          g2d.scale(dpi, -dpi);	// positive y is up
+          grabbedCut.paint(g2d);
+        }
+      }
+    }
+
+    /**
+     * Paint the grid, the outline and the CutPoints.
+     *
+     * @param g2d Graphics2D in pixels
+     * @param except CutPoint not to paint (or null to paint them all)
+     */
+    private void paintModel(Graphics2D g2d, CutPoint except) {
+      g2d.translate(zeroPix.x, zeroPix.y);
+      g2d.scale(dpi, -dpi);	// positive y is up
 
-        new Grid(-(double) zeroPix.x / dpi, -(double) (getHeight() - zeroPix.y) / dpi,
-            (double) getWidth() / dpi, (double) getHeight() / dpi).paint(g2d);
+      new Grid(-(double) zeroPix.x / dpi, -(double) (getHeight() - zeroPix.y) / dpi,
+          (double) getWidth() / dpi, (double) getHeight() / dpi).paint(g2d);
 
-        if (outline != null) {
-          outline.paint(g2d);	// paint the curves
-        }
-        cutPtMgr.paint(g2d, (allCutsCheckBox.isSelected() ? null : cutEditPanel.getCutter()));	// paint the CutPoints
+      if (outline != null) {
+        outline.paint(g2d);	// paint the curves
       }
+      cutPtMgr.paint(g2d, (allCutsCheckBox.isSelected() ? null : cutEditPanel.getCutter()), except);	// paint the CutPoints
+    }
+
+    /**
+     * The outline or CutPoints have changed, so paint everything again.
+     */
+    void modelChanged() {
+      background = null;
+      repaint();
+    }
+
+    /**
+     * Determine if a CutPoint is being dragged.
+     *
+     * @return true: dragging a CutPoint
+     */
+    boolean isDraggingCut() {
+      return grabbedCut != null;
+    }
+
+    /**
+     * Find the area (in pixels) that the given CutPoint covers when it is
+     * painted.
+     *
+     * @param cut CutPoint
+     * @return area in pixels (or null if it isn't known)
+     */
+    private Rectangle paintBounds(CutPoint cut) {
+      Graphics2D g2d = MEASURE_IMAGE.createGraphics();
+      g2d.translate(zeroPix.x, zeroPix.y);
+      g2d.scale(dpi, -dpi);	// positive y is up
+      Rectangle bounds = cut.getPaintBounds(g2d);
+      g2d.dispose();
+      return bounds;
+    }
+
+    /**
+     * Repaint only where the dragged CutPoint was painted and where it is
+     * painted now. Parts of some CutPoints (like the GoToPoints of a SpiralCut)
+     * don't move with the drag, so this covers everything it paints.
+     */
+    private void repaintGrabbed() {
+      Rectangle bounds = paintBounds(grabbedCut);
+      if ((bounds == null) || (grabbedBounds == null)) {
+        repaint();    // don't know what it covers, so paint everything
+      } else {
+        repaint(bounds.union(grabbedBounds));
+      }
+      grabbedBounds = bounds;
     }
 
     /**
@@ -783,6 +891,7 @@ public final class OutlineEditorTopComponent extends TopComponent implements Pro
             grabbedCut = cutPtMgr.closestCutPt(pt, (double) CLOSEST / dpi, cutEditPanel.getCutter());	// left click: drag the cutpoint
             if (grabbedCut != null) {	// dragging a cutpoint
               savedPos = grabbedCut.getPos2D();
+              grabbedBounds = paintBounds(grabbedCut);
             }
           }
         } else {				  // Editing curve points
@@ -822,10 +931,16 @@ public final class OutlineEditorTopComponent extends TopComponent implements Pro
         zeroPix = new Point(p.x - dzX, p.y - dzY);
       } else if (grabbedPoint != null) {
         grabbedPoint.drag(pt);
+        modelChanged();     // the outline doesn't announce drags
+        return;
       } else if (grabbedSafePt != null) {
         grabbedSafePt.drag(pt);
+        modelChanged();
+        return;
       } else if (grabbedCut != null) {
         grabbedCut.drag(onCutCurve(pt));	// dragging should not render detail
+        repaintGrabbed();     // everything else stays the same
+        return;
       }
       repaint();
     }
@@ -870,7 +985,7 @@ public final class OutlineEditorTopComponent extends TopComponent implements Pro
         moveGrabbed(grabbedCut, pt);
         grabbedCut = null;
       }
-      repaint();
+      modelChanged();
     }
 
     @Override
@@ -890,6 +1005,7 @@ public final class OutlineEditorTopComponent extends TopComponent implements Pro
         outline.deleteSafePt(grabbedSafePt);
       } else if (grabbedCut != null) {
         cutPtMgr.removeCut(grabbedCut);
+        grabbedCut = null;    // so that it isn't painted on top any more
       }
     }
 
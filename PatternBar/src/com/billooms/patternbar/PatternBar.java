@@ -2,12 +2,12 @@ package com.billooms.patternbar;
 
 import com.billooms.clclass.CLUtilities;
 import com.billooms.clclass.CLclass;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.cornlatheprefs.COrnLathePrefs;
 import com.billooms.patterns.CustomPattern;
 import com.billooms.patterns.Pattern;
 import com.billooms.patterns.Patterns;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import org.openide.util.Lookup;
 import org.w3c.dom.Element;
 
@@ -443,7 +443,7 @@ public class PatternBar extends CLclass {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
+  public void writeXML(XMLWriter out) {
     String opt = "";
     if (invert) {
       opt = opt + " invert='" + invert + "'";
@@ -452,13 +452,13 @@ public class PatternBar extends CLclass {
       opt = opt + " n2='" + n2 + "'";
     }
     if (pattern.needsAmp2()) {
-      opt = opt + " amp2='" + F4.format(amp2) + "'";
+      opt = opt + " amp2='" + out.f4(amp2) + "'";
     }
-    out.println(indent + "<PatternBar"
+    out.println(out.indent() + "<PatternBar"
         + " pattern='" + pattern.getName() + "'"
-        + " amp='" + F4.format(pToP) + "'"
-        + " period='" + F4.format(period) + "'"
-        + " phase='" + F1.format(phase) + "'"
+        + " amp='" + out.f4(pToP) + "'"
+        + " period='" + out.f4(period) + "'"
+        + " phase='" + out.f1(phase) + "'"
         + opt
         + "/>");
   }
@@ -1,5 +1,6 @@
 package com.billooms.patterneditor;
 
+import com.billooms.clclass.ThumbnailCache;
 import com.billooms.drawables.Grid;
 import com.billooms.drawables.Pt;
 import com.billooms.patterns.BasicPattern;
@@ -103,6 +104,11 @@ public final class PatternEditorTopComponent extends TopComponent implements Pro
     } else {
       setName(Bundle.CTL_PatternEditorTopComponent() + ": " + rootNode.getDisplayName());
       patternMgr = rootNode.getLookup().lookup(Patterns.class);
+      double scale = ThumbnailCache.getScale(getGraphicsConfiguration());
+      int nPatterns = patternMgr.getAllNames().size();
+      for (int i = 0; i < nPatterns; i++) {   // get the pattern pictures ready in the background
+        patternMgr.get(i).prepareImage(5, 4, 0.2, scale);
+      }
       if (patternMgr.getAllCustom().size() > 0) {
         setSelected(patternMgr.getAllCustom().get(0));    // set to first custom pattern
       } else {
@@ -511,13 +517,7 @@ public final class PatternEditorTopComponent extends TopComponent implements Pro
       if (selected == null) {
         return;
       }
-      if (selected.needsOptions()) {
-        g.drawImage(selected.getImage(5, 4, 0.2), 0, 0, null);	// Use dummy values for a representative picture
-      } else if (selected.needsRepeat()) {
-        g.drawImage(selected.getImage(5), 0, 0, null);	// just use 5 for repeat
-      } else {
-        g.drawImage(selected.getImage(), 0, 0, null);
-      }
+      selected.paintImage(g, 0, 0, 5, 4, 0.2, this::repaint);	// Use dummy values for a representative picture
     }
   }
 
@@ -2,17 +2,23 @@ package com.billooms.patterns;
 
 import com.billooms.clclass.CLclass;
 import static com.billooms.drawables.Drawable.SOLID_LINE;
+import com.billooms.clclass.ThumbnailCache;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.drawables.PiecedLine;
 import com.billooms.drawables.PtDefinedLine;
 import com.billooms.drawables.SquarePt;
 import java.awt.Color;
+import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.DoubleUnaryOperator;
 
 /**
  * Basic pattern that can be extended without having to implement all the
@@ -39,8 +45,10 @@ public abstract class BasicPattern extends CLclass implements Pattern {
   protected String name = "";
   /** The display name of this pattern. */
   protected String displayName = "";
-  /** A small icon-like image of the pattern. */
-  protected BufferedImage image = null;
+  /** Version of the pattern's images (changed when the images need to be made again). */
+  private volatile int imageVersion = 0;
+  /** The image last painted by paintImage (null if none). */
+  private volatile BufferedImage lastImage = null;
   /** The minimum allowable repeat for this pattern (generally 1). */
   protected int minRepeat = 1;
   /** Indicates if the pattern is a built-in pattern (cannot be deleted). */
@@ -65,6 +73,8 @@ public abstract class BasicPattern extends CLclass implements Pattern {
   public final static Color IMAGE_COLOR = new Color(255, 120, 0);	// dark orange
   /** Number of points in the plot. */
   private final int NUM_PTS = 48;
+  /** Small icon-like images of all patterns (by pattern, version and parameters). */
+  private final static ThumbnailCache IMAGES = new ThumbnailCache(256);
 
   /**
    * Create a new pattern with a style of the given display name.
@@ -219,27 +229,7 @@ public abstract class BasicPattern extends CLclass implements Pattern {
    */
   @Override
   public BufferedImage getImage() {	  // TODO: Icon doesn't draw first time on ARCs and TRIGs
-    if (image == null) {	// make the image
-      image = new BufferedImage(DEFAULT_WIDTH, DEFAULT_HEIGHT, BufferedImage.TYPE_INT_ARGB);
-      Graphics2D g2d = image.createGraphics();
-      g2d.setColor(IMAGE_COLOR);
-      g2d.setStroke(SOLID_LINE);
-      Point[] pts = new Point[NUM_PTS + 1];
-      double x, y;
-      for (int i = 0; i <= NUM_PTS; i++) {
-        x = (double) i / (double) NUM_PTS;
-        y = getValue(x);
-        pts[i] = new Point((int) (x * DEFAULT_WIDTH), DEFAULT_HEIGHT - (int) (y * DEFAULT_HEIGHT));
-      }
-
-      GeneralPath polyline = new GeneralPath(GeneralPath.WIND_EVEN_ODD, pts.length);
-      polyline.moveTo(pts[0].x, pts[0].y);
-      for (Point pt : pts) {
-        polyline.lineTo(pt.x, pt.y);
-      }
-      g2d.draw(polyline);
-    }
-    return image;
+    return IMAGES.get(imageKey(), DEFAULT_WIDTH, DEFAULT_HEIGHT, 1.0, () -> imagePainter());
   }
 
   /**
@@ -252,28 +242,8 @@ public abstract class BasicPattern extends CLclass implements Pattern {
    */
   @Override
   public BufferedImage getImage(int r) {
-    if ((image == null) || (r != repeat)) {		// make the image again if repeat changes
-      this.repeat = r;						// save if for comparison next time
-      image = new BufferedImage(DEFAULT_WIDTH, DEFAULT_HEIGHT, BufferedImage.TYPE_INT_ARGB);
-      Graphics2D g2d = image.createGraphics();
-      g2d.setColor(IMAGE_COLOR);
-      g2d.setStroke(SOLID_LINE);
-      Point[] pts = new Point[NUM_PTS + 1];
-      double x, y;
-      for (int i = 0; i <= NUM_PTS; i++) {
-        x = (double) i / (double) NUM_PTS;
-        y = getValue(x, repeat);
-        pts[i] = new Point((int) (x * DEFAULT_WIDTH), DEFAULT_HEIGHT - (int) (y * DEFAULT_HEIGHT));
-      }
-
-      GeneralPath polyline = new GeneralPath(GeneralPath.WIND_EVEN_ODD, pts.length);
-      polyline.moveTo(pts[0].x, pts[0].y);
-      for (Point pt : pts) {
-        polyline.lineTo(pt.x, pt.y);
-      }
-      g2d.draw(polyline);
-    }
-    return image;
+    this.repeat = r;					// save it for making the line
+    return IMAGES.get(imageKey(r), DEFAULT_WIDTH, DEFAULT_HEIGHT, 1.0, () -> imagePainter(r));
   }
 
   /**
@@ -289,31 +259,182 @@ public abstract class BasicPattern extends CLclass implements Pattern {
    */
   @Override
   public BufferedImage getImage(int r, int n, double a2) {
-    if ((image == null) || (r != repeat)
-        || (this.n2 != n) || (amp2 != a2)) {	// make the image again if something changes
-      this.repeat = r;					// save if for comparison next time
-      this.n2 = n;
-      this.amp2 = a2;
-      image = new BufferedImage(DEFAULT_WIDTH, DEFAULT_HEIGHT, BufferedImage.TYPE_INT_ARGB);
-      Graphics2D g2d = image.createGraphics();
-      g2d.setColor(IMAGE_COLOR);
-      g2d.setStroke(SOLID_LINE);
-      Point[] pts = new Point[NUM_PTS + 1];
-      double x, y;
-      for (int i = 0; i <= NUM_PTS; i++) {
-        x = (double) i / (double) NUM_PTS;
-        y = getValue(x, repeat, n2, amp2);
-        pts[i] = new Point((int) (x * DEFAULT_WIDTH), DEFAULT_HEIGHT - (int) (y * DEFAULT_HEIGHT));
-      }
+    this.repeat = r;					// save them for making the line
+    this.n2 = n;
+    this.amp2 = a2;
+    return IMAGES.get(imageKey(r, n, a2), DEFAULT_WIDTH, DEFAULT_HEIGHT, 1.0, () -> imagePainter(r, n, a2));
+  }
 
-      GeneralPath polyline = new GeneralPath(GeneralPath.WIND_EVEN_ODD, pts.length);
-      polyline.moveTo(pts[0].x, pts[0].y);
-      for (Point pt : pts) {
-        polyline.lineTo(pt.x, pt.y);
-      }
-      g2d.draw(polyline);
+  /**
+   * Paint a small plot of the pattern at the resolution of the screen.
+   *
+   * The plot uses whichever of the parameters the pattern needs. If it hasn't
+   * been made yet, it is made in the background and the previous plot of this
+   * pattern is painted in the meantime.
+   *
+   * @param g Graphics
+   * @param x x-coordinate of the upper left corner
+   * @param y y-coordinate of the upper left corner
+   * @param r pattern repeat
+   * @param n optional 2nd integer parameter
+   * @param a2 optional 2nd amplitude parameter
+   * @param whenReady run on the event dispatch thread when a plot that was
+   * being made is ready (generally to repaint)
+   */
+  @Override
+  public void paintImage(Graphics g, int x, int y, int r, int n, double a2, Runnable whenReady) {
+    this.repeat = r;					// save them for making the line
+    this.n2 = n;
+    this.amp2 = a2;
+    BufferedImage image = IMAGES.getLater(imageKey(r, n, a2), DEFAULT_WIDTH, DEFAULT_HEIGHT,
+        ThumbnailCache.getScale(g), () -> imagePainter(r, n, a2), whenReady);
+    if (image != null) {
+      lastImage = image;
+    } else {
+      image = lastImage;
+    }
+    if (image != null) {
+      g.drawImage(image, x, y, DEFAULT_WIDTH, DEFAULT_HEIGHT, null);
+    }
+  }
+
+  /**
+   * Start making a small plot of the pattern in the background so that it is
+   * ready to paint.
+   *
+   * @param r pattern repeat
+   * @param n optional 2nd integer parameter
+   * @param a2 optional 2nd amplitude parameter
+   * @param scale scale of the screen (1.0 except on scaled displays)
+   */
+  @Override
+  public void prepareImage(int r, int n, double a2, double scale) {
+    IMAGES.getLater(imageKey(r, n, a2), DEFAULT_WIDTH, DEFAULT_HEIGHT, scale, () -> imagePainter(r, n, a2), null);
+  }
+
+  /**
+   * The images of the pattern need to be made again (for custom patterns that
+   * have changed).
+   */
+  protected void imageChanged() {
+    imageVersion++;
+  }
+
+  /**
+   * Get the key for an image of the pattern that doesn't use a repeat. The
+   * key doesn't hold the pattern itself, so the cache doesn't keep patterns
+   * that are no longer used.
+   *
+   * @return key
+   */
+  private List<Object> imageKey() {
+    return Arrays.asList(getClass().getName(), name, getContentHash(), imageVersion);
+  }
+
+  /**
+   * Get the key for an image of the pattern with the given repeat.
+   *
+   * @param r pattern repeat
+   * @return key
+   */
+  private List<Object> imageKey(int r) {
+    return Arrays.asList(getClass().getName(), name, getContentHash(), imageVersion, r);
+  }
+
+  /**
+   * Get the key for an image with the given parameters, using only the ones
+   * the pattern needs.
+   *
+   * @param r pattern repeat
+   * @param n optional 2nd integer parameter
+   * @param a2 optional 2nd amplitude parameter
+   * @return key
+   */
+  private List<Object> imageKey(int r, int n, double a2) {
+    if (needsOptions()) {
+      return Arrays.asList(getClass().getName(), name, getContentHash(), imageVersion, r, n, a2);
+    } else if (needsRepeat) {
+      return imageKey(r);
+    }
+    return imageKey();
+  }
+
+  /**
+   * Get a painter for an image of the pattern that doesn't use a repeat.
+   *
+   * @return painter
+   */
+  private Consumer<Graphics2D> imagePainter() {
+    return imagePainter((x) -> getValue(x));
+  }
+
+  /**
+   * Get a painter for an image of the pattern with the given repeat.
+   *
+   * @param r pattern repeat
+   * @return painter
+   */
+  private Consumer<Graphics2D> imagePainter(int r) {
+    return imagePainter((x) -> getValue(x, r));
+  }
+
+  /**
+   * Get a painter for an image with the given parameters, using only the ones
+   * the pattern needs.
+   *
+   * @param r pattern repeat
+   * @param n optional 2nd integer parameter
+   * @param a2 optional 2nd amplitude parameter
+   * @return painter
+   */
+  private Consumer<Graphics2D> imagePainter(int r, int n, double a2) {
+    if (needsOptions()) {
+      return imagePainter((x) -> getValue(x, r, n, a2));
+    } else if (needsRepeat) {
+      return imagePainter(r);
+    }
+    return imagePainter();
+  }
+
+  /**
+   * Get a painter for a plot of the given pattern values. The values are found
+   * here (on the calling thread), so a custom pattern can be edited while the
+   * plot is painted in the background.
+   *
+   * @param value pattern value for a given normalized input
+   * @return painter
+   */
+  private Consumer<Graphics2D> imagePainter(DoubleUnaryOperator value) {
+    double[] values = new double[NUM_PTS + 1];
+    for (int i = 0; i <= NUM_PTS; i++) {
+      values[i] = value.applyAsDouble((double) i / (double) NUM_PTS);
+    }
+    return (g2d) -> paintPlot(g2d, values);
+  }
+
+  /**
+   * Paint a plot of the pattern in a DEFAULT_WIDTH x DEFAULT_HEIGHT area.
+   *
+   * @param g2d Graphics2D
+   * @param values pattern values at NUM_PTS + 1 evenly spaced inputs
+   */
+  private void paintPlot(Graphics2D g2d, double[] values) {
+    g2d.setColor(IMAGE_COLOR);
+    g2d.setStroke(SOLID_LINE);
+    Point[] pts = new Point[NUM_PTS + 1];
+    double x, y;
+    for (int i = 0; i <= NUM_PTS; i++) {
+      x = (double) i / (double) NUM_PTS;
+      y = values[i];
+      pts[i] = new Point((int) (x * DEFAULT_WIDTH), DEFAULT_HEIGHT - (int) (y * DEFAULT_HEIGHT));
+    }
+
+    GeneralPath polyline = new GeneralPath(GeneralPath.WIND_EVEN_ODD, pts.length);
+    polyline.moveTo(pts[0].x, pts[0].y);
+    for (Point pt : pts) {
+      polyline.lineTo(pt.x, pt.y);
     }
-    return image;
+    g2d.draw(polyline);
   }
 
   /**
@@ -344,7 +465,7 @@ public abstract class BasicPattern extends CLclass implements Pattern {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
+  public void writeXML(XMLWriter out) {
     // Do nothing for built-in patterns. Override for CustomPattern
   }
 
@@ -1,9 +1,7 @@
 package com.billooms.patterns;
 
 import com.billooms.clclass.CLUtilities;
-import static com.billooms.clclass.CLclass.indent;
-import static com.billooms.clclass.CLclass.indentLess;
-import static com.billooms.clclass.CLclass.indentMore;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.drawables.ArcSegLine;
 import com.billooms.drawables.BoundingBox;
 import static com.billooms.drawables.Drawable.SOLID_LINE;
@@ -18,7 +16,6 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
 import org.w3c.dom.Element;
@@ -160,8 +157,7 @@ public class CustomPattern extends BasicPattern {
    * Update the image.
    */
   private void updateImage() {
-    image = null;	// this forces it to be generated again
-    getImage();
+    imageChanged();	// this forces it to be generated again when next needed
   }
 
   /**
@@ -505,24 +501,24 @@ public class CustomPattern extends BasicPattern {
    * @param out output stream for writing
    */
   @Override
-  public void writeXML(PrintWriter out) {
+  public void writeXML(XMLWriter out) {
     String opt = "";
     if (isDual()) {
       opt += " dual='" + dual + "'";
     }
 //    if (line.getSize() != 0) {
-      out.println(indent + "<CustomPattern"
+      out.println(out.indent() + "<CustomPattern"
           + " name='" + getName() + "'"
           + " displayName='" + getDisplayName() + "'"
           + " style='" + customStyle.toString() + "'"
           + opt
           + ">");
-      indentMore();
+      out.indentMore();
       line.getAllPoints().stream().forEach((pt) -> {
         pt.writeXML(out);
       });
-      indentLess();
-      out.println(indent + "</CustomPattern>");
+      out.indentLess();
+      out.println(out.indent() + "</CustomPattern>");
 //    }
   }
 
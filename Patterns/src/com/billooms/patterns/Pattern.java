@@ -1,5 +1,6 @@
 package com.billooms.patterns;
 
+import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 
@@ -132,6 +133,35 @@ public interface Pattern {
    */
   BufferedImage getImage(int r, int n, double a2);
 
+  /**
+   * Paint a small plot of the pattern at the resolution of the screen.
+   *
+   * The plot uses whichever of the parameters the pattern needs, and is the
+   * same size as getImage. Plots are saved, and a plot that isn't ready yet is
+   * made in the background.
+   *
+   * @param g Graphics
+   * @param x x-coordinate of the upper left corner
+   * @param y y-coordinate of the upper left corner
+   * @param r pattern repeat
+   * @param n optional 2nd integer parameter
+   * @param a2 optional 2nd amplitude parameter
+   * @param whenReady run on the event dispatch thread when a plot that was
+   * being made is ready (generally to repaint)
+   */
+  void paintImage(Graphics g, int x, int y, int r, int n, double a2, Runnable whenReady);
+
+  /**
+   * Start making a small plot of the pattern in the background so that it is
+   * ready to paint.
+   *
+   * @param r pattern repeat
+   * @param n optional 2nd integer parameter
+   * @param a2 optional 2nd amplitude parameter
+   * @param scale scale of the screen (1.0 except on scaled displays)
+   */
+  void prepareImage(int r, int n, double a2, double scale);
+
   /**
    * Get a normalized value (in the range of 0 to 1) for the given normalized
    * input (also in the range of 0 to 1).
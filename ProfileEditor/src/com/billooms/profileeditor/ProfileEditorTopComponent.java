@@ -1,5 +1,6 @@
 package com.billooms.profileeditor;
 
+import com.billooms.clclass.ThumbnailCache;
 import com.billooms.drawables.Grid;
 import com.billooms.drawables.SquarePt;
 import com.billooms.profiles.BasicProfile;
@@ -100,6 +101,11 @@ public final class ProfileEditorTopComponent extends TopComponent implements Pro
     } else {
       setName(Bundle.CTL_ProfileEditorTopComponent() + ": " + rootNode.getDisplayName());
       profileMgr = rootNode.getLookup().lookup(Profiles.class);
+      double scale = ThumbnailCache.getScale(getGraphicsConfiguration());
+      int nProfiles = profileMgr.getAllNames().size();
+      for (int i = 0; i < nProfiles; i++) {   // get the profile pictures ready in the background
+        profileMgr.get(i).prepareImage(scale);
+      }
       if (profileMgr.getAllCustom().size() > 0) {
         setSelected(profileMgr.getAllCustom().get(0));    // set to first custom pattern
       } else {
@@ -471,7 +477,7 @@ public final class ProfileEditorTopComponent extends TopComponent implements Pro
 
       if (profileMgr != null) {
         Profile pro = profileMgr.get(profileCombo.getSelectedIndex());
-        g.drawImage(pro.getImage(), MARGIN, MARGIN, null);
+        pro.paintImage(g, MARGIN, MARGIN, this::repaint);
       }
     }
   }
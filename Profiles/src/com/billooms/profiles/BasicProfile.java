@@ -2,17 +2,22 @@ package com.billooms.profiles;
 
 import com.billooms.clclass.CLclass;
 import static com.billooms.drawables.Drawable.SOLID_LINE;
+import com.billooms.clclass.ThumbnailCache;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.drawables.PiecedLine;
 import com.billooms.drawables.simple.PolyLine;
 import com.billooms.drawables.PtDefinedLine;
 import com.billooms.drawables.SquarePt;
 import java.awt.BasicStroke;
 import java.awt.Color;
+import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Basic profile that can be extended without having to implement all the
@@ -39,8 +44,10 @@ public abstract class BasicProfile extends CLclass implements Profile {
   protected String name = "";
   /** The display name of this profile. */
   protected String displayName = "";
-  /** A small icon-like image of the profile. */
-  protected BufferedImage image = null;
+  /** Version of the profile's image (changed when the image needs to be made again). */
+  private volatile int imageVersion = 0;
+  /** The image last painted by paintImage (null if none). */
+  private volatile BufferedImage lastImage = null;
   /** Indicates if the profile is a built-in profile (cannot be deleted). */
   protected boolean builtIn = true;
   /** A line used for display in the profile editor. */
@@ -50,6 +57,8 @@ public abstract class BasicProfile extends CLclass implements Profile {
   public final static Color IMAGE_COLOR = new Color(65, 75, 126);	// dark blue/gray
   /** Number of points in the plot */
   private final int NUM_PTS = 24;
+  /** Small icon-like images of all profiles (by profile and version). */
+  private final static ThumbnailCache IMAGES = new ThumbnailCache(64);
 
   /**
    * Create a new profile with a style of the given display name.
@@ -141,27 +150,99 @@ public abstract class BasicProfile extends CLclass implements Profile {
    */
   @Override
   public BufferedImage getImage() {
-    if (image == null) {	// make the image
-      image = new BufferedImage(DEFAULT_WIDTH, DEFAULT_HEIGHT, BufferedImage.TYPE_INT_ARGB);
-      Graphics2D g2d = image.createGraphics();
-      g2d.setColor(IMAGE_COLOR);
-      g2d.setStroke(SOLID_LINE);
-      int radius = DEFAULT_HEIGHT / 2;
-      double r, p;
-      int len, y;
-      for (int i = -radius; i <= radius; i++) {
-        r = (double) i;
-        p = profileAt(r, (double) radius);
-        if (p < 0.0) {
-          len = DEFAULT_WIDTH - DEFAULT_HEIGHT;	// default
-        } else {
-          len = DEFAULT_WIDTH - (int) Math.round(p);
-        }
-        y = radius - i;
-        g2d.drawLine(0, y, len, y);
+    return IMAGES.get(imageKey(), DEFAULT_WIDTH, DEFAULT_HEIGHT, 1.0, () -> imagePainter());
+  }
+
+  /**
+   * Paint a small plot of the profile at the resolution of the screen.
+   *
+   * If it hasn't been made yet, it is made in the background and the previous
+   * plot of this profile is painted in the meantime.
+   *
+   * @param g Graphics
+   * @param x x-coordinate of the upper left corner
+   * @param y y-coordinate of the upper left corner
+   * @param whenReady run on the event dispatch thread when a plot that was
+   * being made is ready (generally to repaint)
+   */
+  @Override
+  public void paintImage(Graphics g, int x, int y, Runnable whenReady) {
+    BufferedImage image = IMAGES.getLater(imageKey(), DEFAULT_WIDTH, DEFAULT_HEIGHT,
+        ThumbnailCache.getScale(g), () -> imagePainter(), whenReady);
+    if (image != null) {
+      lastImage = image;
+    } else {
+      image = lastImage;
+    }
+    if (image != null) {
+      g.drawImage(image, x, y, DEFAULT_WIDTH, DEFAULT_HEIGHT, null);
+    }
+  }
+
+  /**
+   * Start making a small plot of the profile in the background so that it is
+   * ready to paint.
+   *
+   * @param scale scale of the screen (1.0 except on scaled displays)
+   */
+  @Override
+  public void prepareImage(double scale) {
+    IMAGES.getLater(imageKey(), DEFAULT_WIDTH, DEFAULT_HEIGHT, scale, () -> imagePainter(), null);
+  }
+
+  /**
+   * The image of the profile needs to be made again (for custom profiles that
+   * have changed).
+   */
+  protected void imageChanged() {
+    imageVersion++;
+  }
+
+  /**
+   * Get the key for the image of the profile. The key doesn't hold the profile
+   * itself, so the cache doesn't keep profiles that are no longer used.
+   *
+   * @return key
+   */
+  private List<Object> imageKey() {
+    return Arrays.asList(getClass().getName(), name, getContentHash(), imageVersion);
+  }
+
+  /**
+   * Get a painter for a plot of the profile. The profile is measured here (on
+   * the calling thread), so a custom profile can be edited while the plot is
+   * painted in the background.
+   *
+   * @return painter
+   */
+  private Consumer<Graphics2D> imagePainter() {
+    int radius = DEFAULT_HEIGHT / 2;
+    int[] lens = new int[2 * radius + 1];
+    double p;
+    for (int i = -radius; i <= radius; i++) {
+      p = profileAt((double) i, (double) radius);
+      if (p < 0.0) {
+        lens[i + radius] = DEFAULT_WIDTH - DEFAULT_HEIGHT;	// default
+      } else {
+        lens[i + radius] = DEFAULT_WIDTH - (int) Math.round(p);
       }
     }
-    return image;
+    return (g2d) -> paintPlot(g2d, lens);
+  }
+
+  /**
+   * Paint a plot of the profile in a DEFAULT_WIDTH x DEFAULT_HEIGHT area.
+   *
+   * @param g2d Graphics2D
+   * @param lens length of each line of the plot, from top to bottom
+   */
+  private void paintPlot(Graphics2D g2d, int[] lens) {
+    g2d.setColor(IMAGE_COLOR);
+    g2d.setStroke(SOLID_LINE);
+    int radius = DEFAULT_HEIGHT / 2;
+    for (int i = -radius; i <= radius; i++) {
+      g2d.drawLine(0, radius - i, lens[i + radius], radius - i);
+    }
   }
 
   /**
@@ -241,7 +322,7 @@ public abstract class BasicProfile extends CLclass implements Profile {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
+  public void writeXML(XMLWriter out) {
     // Do nothing for built-in profiles. Override for CustomProfile
   }
 
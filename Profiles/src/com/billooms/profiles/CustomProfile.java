@@ -1,9 +1,7 @@
 package com.billooms.profiles;
 
 import com.billooms.clclass.CLUtilities;
-import static com.billooms.clclass.CLclass.indent;
-import static com.billooms.clclass.CLclass.indentLess;
-import static com.billooms.clclass.CLclass.indentMore;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.drawables.BoundingBox;
 import static com.billooms.drawables.Drawable.SOLID_LINE;
 import com.billooms.drawables.FittedCurve;
@@ -13,7 +11,6 @@ import com.billooms.drawables.PtDefinedLine;
 import com.billooms.drawables.SquarePt;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
 import org.w3c.dom.Element;
@@ -125,8 +122,7 @@ public class CustomProfile extends BasicProfile {
    * Update the image.
    */
   private void updateImage() {
-    image = null;	// this forces it to be generated again
-    getImage();
+    imageChanged();	// this forces it to be generated again when next needed
   }
 
   /**
@@ -330,19 +326,19 @@ public class CustomProfile extends BasicProfile {
    * @param out output stream for writing
    */
   @Override
-  public void writeXML(PrintWriter out) {
+  public void writeXML(XMLWriter out) {
     if (line.getSize() != 0) {
-      out.println(indent + "<CustomProfile"
+      out.println(out.indent() + "<CustomProfile"
           + " name='" + getName() + "'"
           + " displayName='" + getDisplayName() + "'"
           + " style='" + customStyle.toString() + "'"
           + ">");
-      indentMore();
+      out.indentMore();
       line.getAllPoints().stream().forEach((pt) -> {
         pt.writeXML(out);
       });
-      indentLess();
-      out.println(indent + "</CustomProfile>");
+      out.indentLess();
+      out.println(out.indent() + "</CustomProfile>");
     }
   }
 
@@ -3,6 +3,7 @@ package com.billooms.profiles;
 import com.billooms.drawables.simple.PolyLine;
 import java.awt.BasicStroke;
 import java.awt.Color;
+import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
@@ -68,6 +69,28 @@ public interface Profile {
    */
   BufferedImage getImage();
 
+  /**
+   * Paint a small plot of the profile at the resolution of the screen.
+   *
+   * The plot is the same size as getImage. Plots are saved, and a plot that
+   * isn't ready yet is made in the background.
+   *
+   * @param g Graphics
+   * @param x x-coordinate of the upper left corner
+   * @param y y-coordinate of the upper left corner
+   * @param whenReady run on the event dispatch thread when a plot that was
+   * being made is ready (generally to repaint)
+   */
+  void paintImage(Graphics g, int x, int y, Runnable whenReady);
+
+  /**
+   * Start making a small plot of the profile in the background so that it is
+   * ready to paint.
+   *
+   * @param scale scale of the screen (1.0 except on scaled displays)
+   */
+  void prepareImage(double scale);
+
   /**
    * Make a Drawable PolyLine representing this profile up to the given depth.
    * The origin is at 0.0, 0.0 and the orientation is tip pointing downward.
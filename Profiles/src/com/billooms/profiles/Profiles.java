@@ -1,8 +1,8 @@
 package com.billooms.profiles;
 
 import com.billooms.clclass.CLclass;
+import com.billooms.clclass.XMLWriter;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import java.util.ArrayList;
 import org.openide.util.Lookup;
 import org.w3c.dom.Element;
@@ -252,15 +252,15 @@ public class Profiles extends CLclass {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
+  public void writeXML(XMLWriter out) {
     if (!customs.isEmpty()) {
-      out.println(indent + "<Profiles>");
-      indentMore();
+      out.println(out.indent() + "<Profiles>");
+      out.indentMore();
       customs.stream().forEach((pat) -> {
         pat.writeXML(out);    // CustomPatterns can write out their own xml
       });
-      indentLess();
-      out.println(indent + "</Profiles>");
+      out.indentLess();
+      out.println(out.indent() + "</Profiles>");
     }
   }
 
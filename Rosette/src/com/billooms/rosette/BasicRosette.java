@@ -16,6 +16,9 @@ import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
 import org.w3c.dom.Element;
 
 
@@ -49,6 +52,8 @@ public abstract class BasicRosette extends CLclass {
   public final static String PROP_PHASE = PROP_PREFIX + "Phase";
   /** Property name used for changing the invert flag */
   public final static String PROP_INVERT = PROP_PREFIX + "Invert";
+  /** Property name used when an outline drawn in the background is ready to paint (the rosette itself hasn't changed) */
+  public final static String PROP_DRAG_OUTLINE = PROP_PREFIX + "DragOutline_Ignore";
   
   /** Default peak-to-peak amplitude (currently set to 0.1) */
   public final static double DEFAULT_PTOP = 0.1;
@@ -63,8 +68,13 @@ public abstract class BasicRosette extends CLclass {
   static final Color OUTLINE_COLOR = Color.BLACK;
   static final Color RADIUS_COLOR = Color.BLUE;
   static final int NUM_POINTS = 720;	    // draw a point every 1/2 degree
-  final Point2D.Double center = new Point2D.Double(0.0, 0.0);   // center of the rosette is always 0.0, 0.0
-  final ArrayList<Drawable> drawList = new ArrayList<>();   // a list of things to draw for a visual representaiton of the rosette
+
+  /** Version of the rosette, incremented on every change so that a saved drawing is out of date. */
+  private final AtomicLong version = new AtomicLong();
+  /** True while announcing a new drawing (which doesn't change the rosette). */
+  private boolean announcing = false;
+  /** Drawing last made by paint (null if it hasn't been painted). */
+  private volatile OutlineDrawing drawing = null;
 
   /** Pattern manager. */
   protected Patterns patternMgr = null;
@@ -170,6 +180,15 @@ public abstract class BasicRosette extends CLclass {
    */
   public abstract void setRepeat(int n);
 
+  /**
+   * Get the number of times the rosette repeats exactly around 360 degrees.
+   * This can be less than the number of repeats if the repeats are masked or
+   * vary in amplitude or width.
+   *
+   * @return number of exact repeats (1 if there is no symmetry)
+   */
+  public abstract int getSymmetry();
+
   /**
    * Get the phase of the rosette
    *
@@ -285,6 +304,7 @@ public abstract class BasicRosette extends CLclass {
 
   /**
    * Paint the object.
+   * The drawing is saved and only made again when the rosette has changed.
    *
    * @param g2d Graphics2D
    * @param nomRadius Nominal radius of the drawn rosette
@@ -293,33 +313,108 @@ public abstract class BasicRosette extends CLclass {
     g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
     g2d.setStroke(SOLID_LINE);
 
-    makeDrawables(nomRadius);    // make drawables when needed for painting
-    drawList.stream().forEach((item) -> {
-      // paint everything in the drawlist
-      item.paint(g2d);
-    });
+    OutlineDrawing d = drawing;
+    if (!isCurrent(d, nomRadius)) {
+      d = new OutlineDrawing(getVersion(), nomRadius, this::getAmplitudeAt);
+      drawing = d;
+    }
+    d.paint(g2d);
   }
 
   /**
-   * Make the rosette appearance based on stored values.
-   * 
+   * Get the version of the rosette, which changes every time the rosette (or
+   * anything it uses) fires a propertyChange.
+   *
+   * @return version
+   */
+  long getVersion() {
+    return version.get();
+  }
+
+  /**
+   * Determine if a drawing was made for the current version of the rosette at
+   * the given radius.
+   *
+   * @param d drawing (can be null)
    * @param nomRadius Nominal radius of the drawn rosette
+   * @return true: the drawing can be painted as is
    */
-  private void makeDrawables(double nomRadius) {
-    drawList.clear();			// clear out the old drawlist
-    drawList.add(new Plus(center, RADIUS_COLOR));  // always draw a center mark
-    drawList.add(new Circle(new Point2D.Double(0.0, 0.0), nomRadius, RADIUS_COLOR, DOT_LINE));  // circle at nominal radius
+  boolean isCurrent(OutlineDrawing d, double nomRadius) {
+    return (d != null) && (d.version == version.get()) && (d.nomRadius == nomRadius);
+  }
+
+  /**
+   * Let listeners know that a drawing made in the background is ready to paint.
+   * This fires a PROP_DRAG_OUTLINE propertyChange without changing the version.
+   */
+  void announceDrawing() {
+    announcing = true;
+    try {
+      pcs.firePropertyChange(PROP_DRAG_OUTLINE, null, null);
+    } finally {
+      announcing = false;
+    }
+  }
+
+  @Override
+  protected void invalidateHash() {
+    if (!announcing) {
+      version.incrementAndGet();    // any saved drawing is now out of date
+    }
+    super.invalidateHash();
+  }
+
+  /**
+   * The rosette appearance for one version of the rosette at a nominal radius.
+   * A drawing can't be changed once it is made, so it can be made on any
+   * thread.
+   */
+  static class OutlineDrawing {
+
+    /** Version of the rosette that was drawn. */
+    final long version;
+    /** Nominal radius of the drawn rosette. */
+    final double nomRadius;
+    /** A list of things to draw for a visual representation of the rosette. */
+    private final List<Drawable> drawList = new ArrayList<>();
+
+    /**
+     * Make the rosette appearance.
+     *
+     * @param version version of the rosette
+     * @param nomRadius Nominal radius of the drawn rosette
+     * @param deflection deflection from the nominal radius at a given angle in
+     * degrees
+     */
+    OutlineDrawing(long version, double nomRadius, DoubleUnaryOperator deflection) {
+      this.version = version;
+      this.nomRadius = nomRadius;
+      drawList.add(new Plus(new Point2D.Double(0.0, 0.0), RADIUS_COLOR));  // always draw a center mark
+      drawList.add(new Circle(new Point2D.Double(0.0, 0.0), nomRadius, RADIUS_COLOR, DOT_LINE));  // circle at nominal radius
+
+      Point2D.Double[] pts = new Point2D.Double[NUM_POINTS + 1];     // add 1 for wrap-around
+      double rad, r;
+      for (int i = 0; i <= NUM_POINTS; i++) {
+        // Add PI so that the pattern starts on the left side.
+        // Minus sign so that pattern goes clockwise such that 
+        // a positive spindle rotation brings the feature to the left side.
+        rad = -Math.toRadians((double) i) + Math.PI;
+        r = nomRadius - deflection.applyAsDouble((double) i);
+        pts[i] = new Point2D.Double(r * Math.cos(rad), r * Math.sin(rad));
+      }
+      drawList.add(new Curve(pts, OUTLINE_COLOR, SOLID_LINE));
+    }
 
-    Point2D.Double[] pts = new Point2D.Double[NUM_POINTS + 1];     // add 1 for wrap-around
-    double rad, r;
-    for (int i = 0; i <= NUM_POINTS; i++) {
-      // Add PI so that the pattern starts on the left side.
-      // Minus sign so that pattern goes clockwise such that 
-      // a positive spindle rotation brings the feature to the left side.
-      rad = -Math.toRadians((double) i) + Math.PI;
-      r = nomRadius - getAmplitudeAt((double) i);
-      pts[i] = new Point2D.Double(r * Math.cos(rad), r * Math.sin(rad));
+    /**
+     * Paint the drawing.
+     *
+     * @param g2d Graphics2D
+     */
+    void paint(Graphics2D g2d) {
+      drawList.stream().forEach((item) -> {
+        // paint everything in the drawlist
+        item.paint(g2d);
+      });
     }
-    drawList.add(new Curve(pts, OUTLINE_COLOR, SOLID_LINE));
   }
 }
@@ -2,8 +2,8 @@ package com.billooms.rosette;
 
 import com.billooms.clclass.CLUtilities;
 import com.billooms.clclass.CLclass;
+import com.billooms.clclass.XMLWriter;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import org.w3c.dom.Element;
 
 /**
@@ -126,8 +126,8 @@ public class Combine extends CLclass {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
-    out.println(indent + "<Combine"
+  public void writeXML(XMLWriter out) {
+    out.println(out.indent() + "<Combine"
         + " type='" + combine.toString() + "'"
         + "/>");
   }
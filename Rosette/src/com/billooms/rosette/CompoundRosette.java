@@ -1,17 +1,22 @@
 package com.billooms.rosette;
 
 import com.billooms.clclass.CLUtilities;
-import com.billooms.drawables.simple.Circle;
-import com.billooms.drawables.simple.Curve;
-import com.billooms.drawables.simple.Plus;
+import com.billooms.clclass.CLclass;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.patterns.Patterns;
 import static com.billooms.rosette.BasicRosette.SOLID_LINE;
 import com.billooms.rosette.Combine.CombineType;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
-import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import javax.swing.SwingUtilities;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
@@ -41,12 +46,42 @@ public class CompoundRosette extends BasicRosette {
   /** Default size (currently set to 3) */
   public final static int DEFAULT_SIZE = 3;
   
+  /** Largest step in degrees of the scan for the maximum deflection. */
+  private final static double SCAN_STEP = 1.0;
+  /** The angle of the maximum deflection is found to within this many degrees. */
+  private final static double MAX_TOLERANCE = 0.001;
+  /** Fraction of an interval kept by each step of a golden-section search. */
+  private final static double GOLDEN = (Math.sqrt(5.0) - 1.0) / 2.0;
+  /** Number of maximum deflections that are remembered. */
+  private final static int MAX_CACHE_SIZE = 64;
+  /** Maximum deflections already found, by the hash of the rosettes and combiners (least recently used first). */
+  private final static Map<Long, Double> MAX_CACHE = Collections.synchronizedMap(new LinkedHashMap<Long, Double>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Long, Double> eldest) {
+      return size() > MAX_CACHE_SIZE;
+    }
+  });
+  /** Compounds with at least this many rosettes are drawn in the background by paint2. */
+  private final static int BACKGROUND_SIZE = 3;
+  /** All CompoundRosettes share one background thread for drawing. */
+  private final static ExecutorService OUTLINE_DRAWER = Executors.newSingleThreadExecutor((r) -> {
+    Thread t = new Thread(r, "COrnLathe rosette outlines");
+    t.setDaemon(true);
+    return t;
+  });
+  
   /** An array of available rosettes to combine. */
   private final Rosette[] rosettes;
   /** An array of ways to combine adjacent rosettes. */
   private Combine[] combiners;
-  /** Maximum deflection of the combination of the rosettes. */
-  private double maxDeflection = -1.0;
+  /** Maximum deflection of the combination of the rosettes (-1.0 if it needs calculating). */
+  private volatile double maxDeflection = -1.0;
+  /** Drawing last painted by paint2 (null if it hasn't been painted). */
+  private volatile OutlineDrawing drawing2 = null;
+  /** Builder for the next drawing in the background (null if nothing is waiting). */
+  private final AtomicReference<Supplier<OutlineDrawing>> nextDrawing = new AtomicReference<>();
+  /** Version of the rosette last sent to the background to be drawn. */
+  private long requestedVersion = -1;
   
   /**
    * Construct a new CompoundRosette. 
@@ -197,7 +232,7 @@ public class CompoundRosette extends BasicRosette {
       }
       Rosette old = rosettes[idx];
       rosettes[idx] = newRosette;
-      calculateMax();
+      maxDeflection = -1.0;   // calculated when next needed
       rosettes[idx].addPropertyChangeListener(this);
       this.pcs.firePropertyChange(PROP_ROSETTE, old, newRosette);
     }
@@ -259,21 +294,123 @@ public class CompoundRosette extends BasicRosette {
    * @return maximum deflection (peak-to-peak) 
    */
   public double getMaxDeflection() {
+    if (maxDeflection < 0.0) {
+      calculateMax();
+    }
     return maxDeflection;
   }
 
   /**
    * Calculate the maximum deflection of the combinations of rosettes.
    *
+   * One exact repeat of the combination is scanned in steps of no more than
+   * SCAN_STEP degrees. Each peak in the scan that could be higher than the
+   * highest sample is then refined with a golden-section search to within
+   * MAX_TOLERANCE degrees, so a peak between two samples isn't missed. The
+   * result is remembered by the hash of the rosettes and combiners, so setting
+   * them back to an earlier combination (or copying the compound) doesn't scan
+   * again.
+   *
    * @return maximum deflection of the combinations of rosettes
    */
   private double calculateMax() {
-    // TODO: This is crude, but it's the best I can think of for now.
-    maxDeflection = 0.0;
-    for (int i = 0; i < NUM_POINTS; i++) {
-      maxDeflection = Math.max(maxDeflection, deflectionAt((double) i));
+    long key = maxKey();
+    Double cached = MAX_CACHE.get(key);
+    if (cached != null) {
+      maxDeflection = cached;
+      return cached;
     }
-    return maxDeflection;
+    double period = 360.0 / getSymmetry();    // the deflection repeats exactly after this many degrees
+    int n = Math.max((int) Math.ceil(period / SCAN_STEP), 3);
+    double step = period / n;
+    double[] samples = new double[n];
+    double max = 0.0;
+    for (int i = 0; i < n; i++) {
+      samples[i] = deflectionAt(i * step);
+      max = Math.max(max, samples[i]);
+    }
+    double highest = max;
+    for (int i = 0; i < n; i++) {
+      double before = samples[(i + n - 1) % n];
+      double after = samples[(i + 1) % n];
+      if ((samples[i] > before) && (samples[i] >= after)) {   // a peak (or the start of a flat top)
+        // between samples, a peak can't rise much more than the samples change next to it
+        double rise = Math.max(samples[i] - before, samples[i] - after);
+        if (samples[i] + rise >= highest) {
+          max = Math.max(max, refineMax((i - 1) * step, (i + 1) * step));
+        }
+      }
+    }
+    maxDeflection = max;
+    MAX_CACHE.put(key, max);
+    return max;
+  }
+
+  /**
+   * Find the maximum deflection between two angles with a golden-section
+   * search. There should be only one peak between the angles.
+   *
+   * @param a starting angle in degrees
+   * @param b ending angle in degrees
+   * @return maximum deflection between the angles
+   */
+  private double refineMax(double a, double b) {
+    double c = b - GOLDEN * (b - a);
+    double d = a + GOLDEN * (b - a);
+    double fc = deflectionAt(c);
+    double fd = deflectionAt(d);
+    while ((b - a) > MAX_TOLERANCE) {
+      if (fc >= fd) {
+        b = d;
+        d = c;
+        fd = fc;
+        c = b - GOLDEN * (b - a);
+        fc = deflectionAt(c);
+      } else {
+        a = c;
+        c = d;
+        fc = fd;
+        d = a + GOLDEN * (b - a);
+        fd = deflectionAt(d);
+      }
+    }
+    return Math.max(fc, fd);
+  }
+
+  /**
+   * Make a key from everything that the maximum deflection depends on: the
+   * rosettes (with their patterns, since custom patterns aren't in the rosette
+   * xml) and the combiners. The compound's own pToP, phase and invert don't
+   * change the maximum deflection.
+   *
+   * @return key
+   */
+  private long maxKey() {
+    long key = hashString("CompoundRosette max " + size());
+    for (Rosette rosette : rosettes) {
+      key = combineHash(key, rosette.getContentHash());
+      if (rosette.getPattern() instanceof CLclass) {
+        key = combineHash(key, ((CLclass) rosette.getPattern()).getContentHash());
+      }
+    }
+    for (Combine combiner : combiners) {
+      key = combineHash(key, combiner.getContentHash());
+    }
+    return key;
+  }
+
+  /**
+   * The combined rosettes repeat exactly as often as all of the rosettes do.
+   *
+   * @return number of exact repeats (1 if there is no symmetry)
+   */
+  @Override
+  public int getSymmetry() {
+    int sym = 0;
+    for (Rosette r : rosettes) {
+      sym = CLUtilities.gcd(sym, r.getSymmetry());
+    }
+    return Math.max(sym, 1);
   }
 
   /**
@@ -286,13 +423,9 @@ public class CompoundRosette extends BasicRosette {
    */
   public double deflectionAt(double ang) {
     double phaseAdjustedAngle = angleCheck(ang + phase / repeat);	// angle relative to the start of first pattern (based on symmetrical rosette)
-    double[] deflections = new double[rosettes.length];
-    for (int i = 0; i < deflections.length; i++) {
-      deflections[i] = rosettes[i].getAmplitudeAt(phaseAdjustedAngle);
-    }
-    double deflection = deflections[0];
+    double deflection = rosettes[0].getAmplitudeAt(phaseAdjustedAngle);
     for (int i = 0; i < combiners.length; i++) {
-      deflection = combiners[i].getType().combine(deflection, deflections[i+1]);
+      deflection = combiners[i].getType().combine(deflection, rosettes[i + 1].getAmplitudeAt(phaseAdjustedAngle));
     }
     return deflection;
   }
@@ -325,7 +458,7 @@ public class CompoundRosette extends BasicRosette {
    */
   @Override
   public double getAmplitudeAt(double ang) {
-    double deltaR = deflectionAt(ang) / maxDeflection * pToP;
+    double deltaR = deflectionAt(ang) / getMaxDeflection() * pToP;
     if (invert) {
       return pToP - deltaR;
     }
@@ -333,21 +466,36 @@ public class CompoundRosette extends BasicRosette {
   }
   
   @Override
-  public void writeXML(PrintWriter out) {
-    out.println(indent + "<CompoundRosette"
-        + " amp='" + F3.format(pToP) + "'"
-        + " phase='" + F1.format(phase) + "'"
+  public void writeXML(XMLWriter out) {
+    out.println(out.indent() + "<CompoundRosette"
+        + " amp='" + out.f3(pToP) + "'"
+        + " phase='" + out.f1(phase) + "'"
         + " size='" + size() + "'"
         + ">");
-    indentMore();
+    out.indentMore();
     for (int i = 0; i < rosettes.length; i++) {
       rosettes[i].writeXML(out);
     }
     for (int i = 0; i < combiners.length; i++) {
       combiners[i].writeXML(out);
     }
-    indentLess();
-    out.println(indent + "</CompoundRosette>");
+    out.indentLess();
+    out.println(out.indent() + "</CompoundRosette>");
+  }
+
+  @Override
+  protected long computeHash() {
+    long hash = hashString("CompoundRosette");
+    hash = combineHash(hash, Double.doubleToLongBits(pToP));    // exact, so any change makes a new hash
+    hash = combineHash(hash, Double.doubleToLongBits(phase));
+    hash = combineHash(hash, size());
+    for (Rosette rosette : rosettes) {
+      hash = combineHash(hash, rosette.getContentHash());
+    }
+    for (Combine combiner : combiners) {
+      hash = combineHash(hash, combiner.getContentHash());
+    }
+    return hash;
   }
 
   @Override
@@ -355,7 +503,7 @@ public class CompoundRosette extends BasicRosette {
 //    System.out.println("CompoundRosette.propertyChange: " + evt.getPropertyName() + " " + evt.getOldValue() + " " + evt.getNewValue());
       
     // listening to Rosette and Combine
-    calculateMax();
+    maxDeflection = -1.0;   // calculated when next needed, so a burst of changes costs one calculation
     // pass the info through
     pcs.firePropertyChange(evt.getPropertyName(), evt.getOldValue(), evt.getNewValue());
 
@@ -365,6 +513,11 @@ public class CompoundRosette extends BasicRosette {
    * Paint the object at the combined deflections, not scaled by pToP.
    * This is mainly used in the RosetteBuilder.
    *
+   * The drawing is saved and only made again when the rosette has changed. For
+   * a compound of many rosettes, the new drawing is made in the background and
+   * the old one is painted until a PROP_DRAG_OUTLINE propertyChange says that
+   * the new one is ready.
+   *
    * @param g2d Graphics2D
    * @param nomRadius Nominal radius of the drawn rosette
    */
@@ -372,34 +525,63 @@ public class CompoundRosette extends BasicRosette {
     g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
     g2d.setStroke(SOLID_LINE);
 
-    makeDrawables(nomRadius);    // make drawables when needed for painting
-    drawList.stream().forEach((item) -> {
-      // paint everything in the drawlist
-      item.paint(g2d);
-    });
+    OutlineDrawing d = drawing2;
+    if (!isCurrent(d, nomRadius)) {
+      if ((d == null) || (d.nomRadius != nomRadius) || (rosettes.length < BACKGROUND_SIZE)) {
+        d = new OutlineDrawing(getVersion(), nomRadius, this::deflectionAt);  // nothing to show yet, so draw it now
+        drawing2 = d;
+      } else if (requestedVersion != getVersion()) {
+        requestedVersion = getVersion();
+        drawLater(nomRadius);
+      }
+    }
+    d.paint(g2d);
   }
 
   /**
-   * Make the rosette appearance based on stored values.
+   * Make a new drawing in the background, and announce it when it is ready.
    * 
    * @param nomRadius Nominal radius of the drawn rosette
    */
-  private void makeDrawables(double nomRadius) {
-    drawList.clear();			// clear out the old drawlist
-    drawList.add(new Plus(center, RADIUS_COLOR));  // always draw a center mark
-    drawList.add(new Circle(new Point2D.Double(0.0, 0.0), nomRadius, RADIUS_COLOR, DOT_LINE));  // circle at nominal radius
+  private void drawLater(double nomRadius) {
+    if (nextDrawing.getAndSet(captureDrawing(nomRadius)) == null) {
+      OUTLINE_DRAWER.execute(() -> {
+        OutlineDrawing newDrawing = nextDrawing.getAndSet(null).get();
+        SwingUtilities.invokeLater(() -> {
+          drawing2 = newDrawing;
+          announceDrawing();
+        });
+      });
+    }
+  }
 
-    Point2D.Double[] pts = new Point2D.Double[NUM_POINTS + 1];     // add 1 for wrap-around
-    double rad, r;
-    for (int i = 0; i <= NUM_POINTS; i++) {
-      // Add PI so that the pattern starts on the left side.
-      // Minus sign so that pattern goes clockwise such that 
-      // a positive spindle rotation brings the feature to the left side.
-      rad = -Math.toRadians((double) i) + Math.PI;
-      r = nomRadius - deflectionAt((double) i);
-      pts[i] = new Point2D.Double(r * Math.cos(rad), r * Math.sin(rad));
-    }
-    drawList.add(new Curve(pts, OUTLINE_COLOR, SOLID_LINE));
+  /**
+   * Capture everything needed to draw the combined deflections so that the
+   * drawing can be made on any thread while the rosettes keep changing.
+   *
+   * @param nomRadius Nominal radius of the drawn rosette
+   * @return builder for the drawing of the current version
+   */
+  private Supplier<OutlineDrawing> captureDrawing(double nomRadius) {
+    final long version = getVersion();
+    final Rosette[] ros = new Rosette[rosettes.length];
+    for (int i = 0; i < ros.length; i++) {
+      ros[i] = new Rosette(rosettes[i]);
+      ros[i].clear();   // the copy doesn't need to listen to a CustomPattern
+    }
+    final CombineType[] types = new CombineType[combiners.length];
+    for (int i = 0; i < types.length; i++) {
+      types[i] = combiners[i].getType();
+    }
+    final double phaseShift = phase / repeat;
+    return () -> new OutlineDrawing(version, nomRadius, (ang) -> {
+      double phaseAdjustedAngle = angleCheck(ang + phaseShift);
+      double deflection = ros[0].getAmplitudeAt(phaseAdjustedAngle);
+      for (int i = 0; i < types.length; i++) {
+        deflection = types[i].combine(deflection, ros[i + 1].getAmplitudeAt(phaseAdjustedAngle));
+      }
+      return deflection;
+    });
   }
 
 }
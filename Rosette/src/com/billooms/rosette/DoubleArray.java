@@ -1,5 +1,6 @@
 package com.billooms.rosette;
 
+import com.billooms.clclass.XMLWriter;
 import java.text.DecimalFormat;
 
 /**
@@ -92,6 +93,28 @@ public class DoubleArray {
     return str;
   }
   
+  /**
+   * Convert the data to comma delimited string using the XMLWriter's own
+   * format (so that files can be written from more than one thread).
+   * 
+   * @param out XMLWriter
+   * @return String (which could be empty if data is null)
+   */
+  public String toString(XMLWriter out) {
+    String str = "";
+    if (data == null) {
+      str = "(none)";
+    } else {
+      for (int i = 0; i < data.length; i++) {
+        if (i > 0) {
+          str += ", ";
+        }
+        str += out.f3(data[i]);
+      }
+    }
+    return str;
+  }
+  
   /**
    * Get the data array (which could be null).
    * 
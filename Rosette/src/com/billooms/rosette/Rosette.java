@@ -1,12 +1,15 @@
 package com.billooms.rosette;
 
 import com.billooms.clclass.CLUtilities;
+import com.billooms.clclass.XMLWriter;
 import com.billooms.cornlatheprefs.COrnLathePrefs;
 import com.billooms.patterns.CustomPattern;
 import com.billooms.patterns.Pattern;
 import com.billooms.patterns.Patterns;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.openide.util.Lookup;
 import org.w3c.dom.Element;
 
@@ -658,6 +661,23 @@ public class Rosette extends BasicRosette {
   public double[] getAngleBreaks() {
     return getAngleBreaks(getFactors());
   }
+
+  @Override
+  public int getSymmetry() {
+    if (usesSymmetryWid()) {
+      return 1;     // widths could be anything
+    }
+    String fullMask = mask;
+    while (!mask.isEmpty() && (fullMask.length() < repeat)) {
+      fullMask += mask;			// fill out to full length
+    }
+    List<Object> variants = new ArrayList<>();
+    for (int m = 0; m < repeat; m++) {
+      variants.add(Arrays.asList(mask.isEmpty() ? ' ' : fullMask.charAt(m),
+          usesSymmetryAmp() ? symmetryAmp.getData()[m % symmetryAmp.size()] : 1.0));
+    }
+    return CLUtilities.symmetry(variants);
+  }
   
   /**
    * Get a normalized value (in the range of 0 to 1) for the given normalized
@@ -718,7 +738,7 @@ public class Rosette extends BasicRosette {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
+  public void writeXML(XMLWriter out) {
     String opt = "";
     if (invert) {
       opt = opt + " invert='" + invert + "'";
@@ -726,25 +746,25 @@ public class Rosette extends BasicRosette {
     if (!mask.isEmpty()) {
       opt = opt + " mask='" + mask + "'"
           + " hilo='" + maskHiLo.toString() + "'"
-          + " maskPhase='" + F1.format(maskPhase) + "'";
+          + " maskPhase='" + out.f1(maskPhase) + "'";
     }
     if (pattern.needsN2()) {
       opt = opt + " n2='" + n2 + "'";
     }
     if (pattern.needsAmp2()) {
-      opt = opt + " amp2='" + F4.format(amp2) + "'";
+      opt = opt + " amp2='" + out.f4(amp2) + "'";
     }
     if (usesSymmetryAmp()) {
-      opt = opt + " symmetryAmp='" + symmetryAmp.toString() + "'";
+      opt = opt + " symmetryAmp='" + symmetryAmp.toString(out) + "'";
     }
     if (usesSymmetryWid()) {
-      opt = opt + " symmetryWid='" + symmetryWid.toString() + "'";
+      opt = opt + " symmetryWid='" + symmetryWid.toString(out) + "'";
     }
-    out.println(indent + "<Rosette"
+    out.println(out.indent() + "<Rosette"
         + " pattern='" + pattern.getName() + "'"
         + " repeat='" + repeat + "'"
-        + " amp='" + F3.format(pToP) + "'"
-        + " phase='" + F1.format(phase) + "'"
+        + " amp='" + out.f3(pToP) + "'"
+        + " phase='" + out.f1(phase) + "'"
         + opt
         + "/>");
   }
@@ -1,5 +1,6 @@
 package com.billooms.rosette;
 
+import com.billooms.clclass.ThumbnailCache;
 import com.billooms.cornlatheprefs.COrnLathePrefs;
 import com.billooms.drawables.Grid;
 import com.billooms.patterns.Pattern;
@@ -127,10 +128,26 @@ public class RosetteEditPanel extends JPanel implements PropertyChangeListener {
     if (rosette != null) {
       rosette.addPropertyChangeListener(this);
       rosette.addPropertyChangeListener((PropertyChangeListener) viewPanel);
+      if (patternMgr != null) {
+        prepareImages();
+      }
     }
     updateForm();
     pcs.firePropertyChange(PROP_ROSETTE, old, newRosette);
   }
+
+  /**
+   * Get the pictures of all the patterns ready in the background for the
+   * rosette's repeat, so that choosing a different pattern shows its picture
+   * right away.
+   */
+  private void prepareImages() {
+    double scale = ThumbnailCache.getScale(iconPanel.getGraphicsConfiguration());
+    int nPatterns = patternMgr.getAllNames().size();
+    for (int i = 0; i < nPatterns; i++) {
+      patternMgr.get(i).prepareImage(rosette.getRepeat(), rosette.getN2(), rosette.getAmp2(), scale);
+    }
+  }
   
   /** 
    * Update the patternCombo items.
@@ -232,14 +249,7 @@ public class RosetteEditPanel extends JPanel implements PropertyChangeListener {
       if (rosette == null) {
         return;
       }
-      Pattern pat = rosette.getPattern();
-      if (pat.needsOptions()) {
-        g.drawImage(pat.getImage(rosette.getRepeat(), rosette.getN2(), rosette.getAmp2()), 0, 0, null);
-      } else if (pat.needsRepeat()) {
-        g.drawImage(pat.getImage(rosette.getRepeat()), 0, 0, null);
-      } else {
-        g.drawImage(pat.getImage(), 0, 0, null);
-      }
+      rosette.getPattern().paintImage(g, 0, 0, rosette.getRepeat(), rosette.getN2(), rosette.getAmp2(), this::repaint);
     }
   }
   
@@ -31,13 +31,6 @@ public abstract class AbstractSpiral implements SpiralStyle {
   /** Flag indicating if this needs the optional amplitude parameter. */
   protected boolean needsAmplitude = false;
 
-  /**
-   * An array of Point3d with x,y from the original curve points and z=twist in
-   * degrees. Note: In lathe coordinates, this is actually x, z, c(degrees).
-   * This is a temporary array for the user to put data into.
-   */
-  protected Point3D[] twistPts;
-
   /**
    * Create a new spiral with the given display name.
    *
@@ -108,30 +101,41 @@ public abstract class AbstractSpiral implements SpiralStyle {
       return null;
     }
 
+    Point3D[] twistPts;
     if (pts.length == 1) {
       twistPts = new Point3D[2];		// must have at least a start and end
       twistPts[0] = new Point3D(pts[0].x, pts[0].y, 0.0);	// first point is 0.0
       twistPts[1] = new Point3D(pts[0].x, pts[0].y, twist);	// and the second is the total twist
     } else {
+      double[] twists = new double[pts.length];
+      makeTwist(pts, twist, amp, twists);
       twistPts = new Point3D[pts.length];
-      twistPts[0] = new Point3D(pts[0].x, pts[0].y, 0.0);	// first point is 0.0
-
-      calculate(pts, twist, amp);		// This is where the main calculation is done.
+      for (int i = 0; i < pts.length; i++) {
+        twistPts[i] = new Point3D(pts[i].x, pts[i].y, twists[i]);
+      }
     }
     return twistPts;
   }
 
+  @Override
+  public void makeTwist(Point2D.Double[] pts, double twist, double amp, double[] twists) {
+    twists[0] = 0.0;    // first point is 0.0
+    calculate(pts, twist, amp, twists);		// This is where the main calculation is done.
+  }
+
   /**
-   * This is where the main calculation is done. Each point is calculated then
-   * stuffed into twistPts[].
+   * This is where the main calculation is done. The twist at each point is
+   * calculated then stuffed into twists[]. Don't keep anything in fields,
+   * because the styles are shared.
    *
-   * Note: the first point should be set to pts[0].x, pts[0].y, 0.0
+   * Note: the first twist should be 0.0
    *
    * @param pts Points representing the outline of the portion of a shape
    * @param twist total twist in degrees
    * @param amp optional amplitude parameter (not used by all spirals)
+   * @param twists array for the twist at each point
    */
-  abstract void calculate(Point2D.Double[] pts, double twist, double amp);
+  abstract void calculate(Point2D.Double[] pts, double twist, double amp, double[] twists);
 
   /**
    * Filter the display name to produce a pattern name. Convert everything to
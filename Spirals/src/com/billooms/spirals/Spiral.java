@@ -5,8 +5,8 @@ import com.billooms.clclass.CLclass;
 import static com.billooms.spirals.SpiralMgr.DEFAULT_SPIRAL;
 import static com.billooms.spirals.SpiralStyle.DEFAULT_AMP;
 import static com.billooms.spirals.SpiralStyle.DEFAULT_TWIST;
+import com.billooms.clclass.XMLWriter;
 import java.beans.PropertyChangeEvent;
-import java.io.PrintWriter;
 import org.openide.util.Lookup;
 import org.w3c.dom.Element;
 
@@ -154,14 +154,14 @@ public class Spiral extends CLclass {
   }
 
   @Override
-  public void writeXML(PrintWriter out) {
+  public void writeXML(XMLWriter out) {
     String opt = "";
     if (style.needsAmplitude()) {
-      opt = opt + " amp='" + F4.format(amp) + "'";
+      opt = opt + " amp='" + out.f4(amp) + "'";
     }
-    out.println(indent + "<Spiral"
+    out.println(out.indent() + "<Spiral"
         + " style='" + style.getName() + "'"
-        + " twist='" + F2.format(twist) + "'"
+        + " twist='" + out.f2(twist) + "'"
         + opt
         + "/>");
   }
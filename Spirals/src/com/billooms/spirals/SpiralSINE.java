@@ -1,7 +1,6 @@
 package com.billooms.spirals;
 
 import java.awt.geom.Point2D.Double;
-import javafx.geometry.Point3D;
 import org.openide.util.lookup.ServiceProvider;
 
 /**
@@ -36,27 +35,28 @@ public class SpiralSINE extends AbstractSpiral {
   }
 
   /**
-   * This is where the main calculation is done. Each point is calculated then
-   * stuffed into twistPts[].
+   * This is where the main calculation is done. The twist at each point is
+   * calculated then stuffed into twists[].
    *
-   * Note: the first point should be set to pts[0].x, pts[0].y, 0.0
+   * Note: the first twist should be 0.0
    *
    * @param pts Points representing the outline of the portion of a shape
    * @param twist total twist in degrees
    * @param amp optional amplitude parameter (not used by all spirals)
+   * @param twists array for the twist at each point
    */
   @Override
-  public void calculate(Double[] pts, double twist, double amp) {
+  public void calculate(Double[] pts, double twist, double amp, double[] twists) {
     double tot = 0.0;
     for (int i = 1; i < pts.length; i++) {		// find the total length
       tot += pts[i].distance(pts[i - 1]);
     }
 
-    twistPts[0] = new Point3D(pts[0].x, pts[0].y, 0.0);	// first point is 0.0
+    twists[0] = 0.0;	// first point is 0.0
     double cum = 0.0;		// the cumulative length
-    for (int i = 1; i < twistPts.length; i++) {
+    for (int i = 1; i < pts.length; i++) {
       cum += pts[i].distance(pts[i - 1]);
-      twistPts[i] = new Point3D(pts[i].x, pts[i].y, twist * cum / tot + amp * Math.sin(cum / tot * 2.0 * Math.PI));
+      twists[i] = twist * cum / tot + amp * Math.sin(cum / tot * 2.0 * Math.PI);
     }
   }
 
@@ -65,4 +65,19 @@ public interface SpiralStyle {
    * this is actually x, z, c(degrees).
    */
 	public Point3D[] makeSpiral(Point2D.Double[] pts, double twist, double amp);
+
+  /**
+   * Calculate the twist (in degrees) at each of the given points into the
+   * given array. This doesn't keep anything between calls, so it can be used
+   * by more than one thread at a time.
+   *
+   * Note: The first point twist is always 0.0, so this is relative twist.
+   *
+   * @param pts Points representing the outline of the portion of a shape (at
+   * least 2 points)
+   * @param twist total twist in degrees
+   * @param amp optional amplitude parameter (not used by all spirals)
+   * @param twists array (at least as long as pts) for the twist at each point
+   */
+  public void makeTwist(Point2D.Double[] pts, double twist, double amp, double[] twists);
 }
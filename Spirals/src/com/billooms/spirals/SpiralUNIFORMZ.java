@@ -2,7 +2,6 @@ package com.billooms.spirals;
 
 import java.awt.geom.Point2D;
 import java.awt.geom.Point2D.Double;
-import javafx.geometry.Point3D;
 import org.openide.util.lookup.ServiceProvider;
 
 /**
@@ -35,22 +34,23 @@ public class SpiralUNIFORMZ extends AbstractSpiral {
   }
 
   /**
-   * This is where the main calculation is done. Each point is calculated then
-   * stuffed into twistPts[].
+   * This is where the main calculation is done. The twist at each point is
+   * calculated then stuffed into twists[].
    *
-   * Note: the first point should be set to pts[0].x, pts[0].y, 0.0
+   * Note: the first twist should be 0.0
    *
    * @param pts Points representing the outline of the portion of a shape
    * @param twist total twist in degrees
    * @param amp optional amplitude parameter (not used by all spirals)
+   * @param twists array for the twist at each point
    */
   @Override
-  public void calculate(Double[] pts, double twist, double amp) {
+  public void calculate(Double[] pts, double twist, double amp, double[] twists) {
     double y0 = pts[0].y;
     double tot = pts[pts.length-1].y - y0;
     
-    for (int i = 0; i < twistPts.length; i++) {
-      twistPts[i] = new Point3D(pts[i].x, pts[i].y, twist * (pts[i].y - y0) / tot);
+    for (int i = 0; i < pts.length; i++) {
+      twists[i] = twist * (pts[i].y - y0) / tot;
     }
   }
 
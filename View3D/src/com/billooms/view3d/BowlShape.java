@@ -3,6 +3,8 @@ package com.billooms.view3d;
 import com.billooms.cutpoints.surface.Surface;
 import javafx.geometry.Point3D;
 import javafx.scene.Group;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.PhongMaterial;
 import javafx.scene.shape.CullFace;
@@ -30,24 +32,142 @@ import javafx.scene.shape.TriangleMesh;
  */
 public class BowlShape extends Group {
 
-  /** This is the mesh that defines the bowl. */
-  private final TriangleMesh mesh = new TriangleMesh();
-  /** This is the mesh that defines layer1. */
-  private final TriangleMesh mesh1 = new TriangleMesh();
-  /** This is the mesh that defines layer2. */
-  private final TriangleMesh mesh2 = new TriangleMesh();
-  /** To add a TriangleMesh to a 3D scene you need a MeshView container object. */
-  private final MeshView meshView = new MeshView(mesh);
-  /** To add a TriangleMesh to a 3D scene you need a MeshView container object. */
-  private final MeshView meshView1 = new MeshView(mesh1);
-  /** To add a TriangleMesh to a 3D scene you need a MeshView container object. */
-  private final MeshView meshView2 = new MeshView(mesh2);
-  /** Material used for the bowl. */
+  /** Row and sector steps for each level of detail (level 0 is full detail). */
+  private final static int[] LOD_STEPS = {1, 2, 4};
+  /** Maximum number of triangles to show while the camera is moving. */
+  private final static int INTERACTIVE_FACES = 150000;
+
+  /** Number of colors in the palette: the bowl, layer1 and layer2. */
+  private final static int PALETTE_SIZE = 3;
+  /** Width and height in pixels of each color cell in the palette texture. */
+  private final static int PALETTE_CELL = 4;
+  /** Palette texture with one cell for each layer color. */
+  private final static WritableImage palette = new WritableImage(PALETTE_SIZE * PALETTE_CELL, PALETTE_CELL);
+  /** Material used for the bowl, colored by the palette texture. */
   private final static PhongMaterial bowlMaterial = new PhongMaterial();
-  /** Material used for the bowl layer1. */
-  private final static PhongMaterial bowlMaterial1 = new PhongMaterial();
-  /** Material used for the bowl layer2. */
-  private final static PhongMaterial bowlMaterial2 = new PhongMaterial();
+
+  /** Meshes for each level of detail. */
+  private final Lod[] lods = new Lod[LOD_STEPS.length];
+  /** Level of detail to show while the camera is moving. */
+  private int interactiveLevel = 0;
+  /** True while the camera is moving. */
+  private boolean interactive = false;
+
+  /**
+   * The mesh for one level of detail. There is only one set of mesh points for
+   * all layers. Each triangular face gets the color of its layer by using the
+   * texture coordinate of that layer's color in the palette.
+   */
+  private class Lod extends Group {
+
+    /** Number of rows and sectors to skip. */
+    private final int step;
+    /** This is the mesh that defines the bowl (all layers). */
+    private final TriangleMesh mesh = new TriangleMesh();
+    /** Number of triangles in the mesh. */
+    private int nFaces = 0;
+
+    /**
+     * Construct the mesh for a level of detail.
+     *
+     * @param step number of rows and sectors to skip
+     */
+    Lod(int step) {
+      this.step = step;
+      //The MeshView allows you to control how the TriangleMesh is rendered
+      //To add a TriangleMesh to a 3D scene you need a MeshView container object
+      MeshView meshView = new MeshView(mesh);
+//      meshView.setDrawMode(DrawMode.LINE); // show lines only 
+      meshView.setDrawMode(DrawMode.FILL);
+      meshView.setCullFace(CullFace.NONE); // no culling
+      meshView.setMaterial(bowlMaterial);
+      this.getChildren().add(meshView);
+      // one texCoord at the center of each palette cell
+      float[] texCoords = new float[2 * PALETTE_SIZE];
+      for (int i = 0; i < PALETTE_SIZE; i++) {
+        texCoords[2 * i] = (i + 0.5f) / PALETTE_SIZE;
+        texCoords[2 * i + 1] = 0.5f;
+      }
+      mesh.getTexCoords().setAll(texCoords);
+    }
+
+    /**
+     * Clear all points and faces (TexCoords stay the same).
+     */
+    void clear() {
+      mesh.getPoints().clear();
+      mesh.getFaces().clear();
+      nFaces = 0;
+    }
+    /**
+     * Fill the mesh from the surface using every step'th point on the curve
+     * and every step'th sector.
+     *
+     * @param surface surface
+     * @param layer layer number for every surface point (null if no layers)
+     */
+    void build(Surface surface, byte[][] layer) {
+      int[] rows = subSample(surface.getLength(), step, true);
+      int[] sects = subSample(surface.numSectors(), step, false);
+      int nr = rows.length;
+      int ns = sects.length;
+
+      // fill the array with x,y,z coordinates of every point
+      // first go up the curve (the j value)
+      // then go to the next sector (the i value)
+      float[] points = new float[ns * nr * 3];
+      int n = 0;
+      for (int i = 0; i < ns; i++) {
+        for (int j = 0; j < nr; j++) {
+          Point3D p = surface.pts[rows[j]][sects[i]];
+          points[n++] = (float) p.getX();
+          points[n++] = (float) p.getY();
+          points[n++] = (float) p.getZ();
+        }
+      }
+
+      // fill the array with triangle definitions 
+      // from bottom to the top on each sector
+      // inside wraps Counterclockwise on the inside, outside on the outside
+      int[] faces = new int[2 * ns * (nr - 1) * 3];
+      n = 0;
+      for (int i = 0; i < ns; i++) {
+        int k = (i + 1) % ns;	    // wrap around back to zero for the last sector
+        for (int j = 0; j < nr - 1; j++) {
+          if (surface.isInside()) {
+            faces[n++] = i * nr + j;    // 1st triangle
+            faces[n++] = k * nr + j;
+            faces[n++] = i * nr + j + 1;
+            faces[n++] = i * nr + j + 1;    // 2nd triangle
+            faces[n++] = k * nr + j;
+            faces[n++] = k * nr + j + 1;
+          } else {
+            faces[n++] = k * nr + j;    // 1st triangle
+            faces[n++] = i * nr + j;
+            faces[n++] = k * nr + j + 1;
+            faces[n++] = k * nr + j + 1;    // 2nd triangle
+            faces[n++] = i * nr + j;
+            faces[n++] = i * nr + j + 1;
+          }
+        }
+      }
+      nFaces = faces.length / 3;
+
+      // A face goes on the deepest layer that all 3 of its points have reached
+      byte[] faceLayer = new byte[nFaces];
+      if (layer != null) {
+        for (int f = 0; f < nFaces; f++) {
+          byte l = PALETTE_SIZE - 1;
+          for (int v = 3 * f; v < 3 * f + 3; v++) {
+            l = (byte) Math.min(l, layer[rows[faces[v] % nr]][sects[faces[v] / nr]]);
+          }
+          faceLayer[f] = l;
+        }
+      }
+      mesh.getPoints().setAll(points);
+      mesh.getFaces().setAll(toMeshFaces(faces, faceLayer));
+    }
+  }
 
   /**
    * Construct the Bowl from the given Surface.
@@ -55,211 +175,150 @@ public class BowlShape extends Group {
    * @param surface surface
    */
   public BowlShape(Surface surface) {
-    bowlMaterial.setDiffuseColor(Color.PERU);	  // defaults are overwritten in refresh()
+    for (int i = 0; i < PALETTE_SIZE; i++) {
+      setPaletteColor(i, Color.PERU);	  // defaults are overwritten in refresh()
+    }
+    bowlMaterial.setDiffuseColor(Color.WHITE);    // white so the palette colors are not changed
     bowlMaterial.setSpecularColor(Color.WHITE);   // seems to be shinier with white
-    bowlMaterial1.setSpecularColor(Color.WHITE);   // seems to be shinier with white
-    bowlMaterial2.setSpecularColor(Color.WHITE);   // seems to be shinier with white
-
-    //The MeshView allows you to control how the TriangleMesh is rendered
-//    meshView.setDrawMode(DrawMode.LINE); // show lines only 
-    meshView.setDrawMode(DrawMode.FILL);
-    meshView.setCullFace(CullFace.NONE); // no culling
-//    meshView.setCullFace(CullFace.BACK);
-    meshView.setMaterial(bowlMaterial);
-    this.getChildren().add(meshView);
-
-    meshView1.setDrawMode(DrawMode.FILL);
-    meshView1.setCullFace(CullFace.NONE); // no culling
-    meshView1.setMaterial(bowlMaterial1);
-    this.getChildren().add(meshView1);
+    bowlMaterial.setDiffuseMap(palette);
 
-    meshView2.setDrawMode(DrawMode.FILL);
-    meshView2.setCullFace(CullFace.NONE); // no culling
-    meshView2.setMaterial(bowlMaterial2);
-    this.getChildren().add(meshView2);
-
-    //for now we'll just make an empty texCoordinate group
-    mesh.getTexCoords().setAll(0, 0);
-    mesh1.getTexCoords().setAll(0, 0);
-    mesh2.getTexCoords().setAll(0, 0);
+    for (int i = 0; i < lods.length; i++) {
+      lods[i] = new Lod(LOD_STEPS[i]);
+      lods[i].setVisible(i == 0);
+      this.getChildren().add(lods[i]);
+    }
 
     if (surface != null) {
       refresh(surface);
     }
   }
 
+  /**
+   * Show a coarse level of detail while the camera is moving, and the full
+   * level of detail once the camera settles.
+   *
+   * @param moving true: camera is moving
+   */
+  public void setInteractive(boolean moving) {
+    if (moving == interactive) {
+      return;
+    }
+    interactive = moving;
+    showLevel(moving ? interactiveLevel : 0);
+  }
+
+  /**
+   * Make only the given level of detail visible.
+   *
+   * @param level level of detail
+   */
+  private void showLevel(int level) {
+    for (int i = 0; i < lods.length; i++) {
+      lods[i].setVisible(i == level);
+    }
+  }
+
   /**
    * Refresh the meshes from the surface.
    *
-   * When layers are present, there are 3 different meshes -- one for each
-   * layer. The mesh points are the same for all 3 meshes. The triangular faces
-   * are put into one of the three meshes. The distance of all 3 points of the
-   * face is measured from an uncut surface. If all 3 points are greater than
-   * the layer thickness, then they are put into the corresponding mesh.
+   * When layers are present, each triangular face is given the palette color
+   * of one of the 3 layers. The distance of all 3 points of the face is
+   * measured from an uncut surface. If all 3 points are greater than the layer
+   * thickness, then the face gets the color of the corresponding layer.
+   *
+   * Each level of detail is made the same way from a subset of the surface
+   * points.
    *
    * @param surface surface
    */
   public synchronized final void refresh(Surface surface) {
     try {
-      mesh.getPoints().clear();
-      mesh.getFaces().clear();
-      mesh1.getPoints().clear();
-      mesh1.getFaces().clear();
-      mesh2.getPoints().clear();
-      mesh2.getFaces().clear();
-      // dummy TexCoords stay the same
+      for (Lod lod : lods) {
+        lod.clear();
+      }
       if (surface == null) {
         return;
       }
 
       java.awt.Color c = surface.getOutline().getColor();
-      bowlMaterial.setDiffuseColor(Color.rgb(c.getRed(), c.getGreen(), c.getBlue()));
+      setPaletteColor(0, Color.rgb(c.getRed(), c.getGreen(), c.getBlue()));
 //    bowlMaterial.setSpecularColor(Color.rgb(c.getRed(), c.getGreen(), c.getBlue()));  // leave it white
       java.awt.Color c1 = surface.getOutline().getColor1();
-      bowlMaterial1.setDiffuseColor(Color.rgb(c1.getRed(), c1.getGreen(), c1.getBlue()));
+      setPaletteColor(1, Color.rgb(c1.getRed(), c1.getGreen(), c1.getBlue()));
       java.awt.Color c2 = surface.getOutline().getColor2();
-      bowlMaterial2.setDiffuseColor(Color.rgb(c2.getRed(), c2.getGreen(), c2.getBlue()));
+      setPaletteColor(2, Color.rgb(c2.getRed(), c2.getGreen(), c2.getBlue()));
 
-      Point3D[][] uncutSurface = null;      // uncut surface used for determining colors
+      byte[][] layer = null;      // layer number of each point (used for determining colors)
       if (surface.isRender() && surface.getOutline().usesLayers()) {
-        uncutSurface = surface.makeCleanSurface();
+        layer = surface.findLayers();
       }
 
-      int nCurvePts = surface.getLength();
-      int nSects = surface.numSectors();
-      // fill the array with x,y,z coordinates of every point
-      // first go up the curve (the j value)
-      // then go to the next sector (the i value)
-      for (int i = 0; i < nSects; i++) {
-        for (int j = 0; j < nCurvePts; j++) {
-          mesh.getPoints().addAll(
-              (float) surface.pts[j][i].getX(),
-              (float) surface.pts[j][i].getY(),
-              (float) surface.pts[j][i].getZ());
-        }
-      }
-      if (surface.isRender() && surface.getOutline().usesLayers()) {    // make copies into mesh1 and mesh2 for colors
-        mesh1.getPoints().addAll(mesh.getPoints());
-        mesh2.getPoints().addAll(mesh.getPoints());
-      }
-
-      // fill the array with triangle definitions 
-      // from bottom to the top on each sector
-      double dist1 = surface.getOutline().getLayer1();        // depth of first color boundary
-      double dist2 = surface.getOutline().getLayer1plus2();   // depth of second color boundary
-      for (int i = 0; i < nSects; i++) {
-        int k = (i + 1) % nSects;	    // wrap around back to zero for the last sector
-        for (int j = 0; j < nCurvePts - 1; j++) {
-          if (surface.isInside()) {     // inside wraps Counterclockwise on the inside
-            if (surface.isRender() && surface.getOutline().usesLayers()) {    // use layers?
-              if (surface.pts[j][i].distance(uncutSurface[j][i]) > dist2
-                  && surface.pts[j][k].distance(uncutSurface[j][k]) > dist2
-                  && surface.pts[j + 1][i].distance(uncutSurface[j + 1][i]) > dist2) {
-                mesh2.getFaces().addAll( // 1st triangle on mesh2 for layer2
-                    i * nCurvePts + j, 0,
-                    k * nCurvePts + j, 0,
-                    i * nCurvePts + j + 1, 0);
-              } else if (surface.pts[j][i].distance(uncutSurface[j][i]) > dist1
-                  && surface.pts[j][k].distance(uncutSurface[j][k]) > dist1
-                  && surface.pts[j + 1][i].distance(uncutSurface[j + 1][i]) > dist1) {
-                mesh1.getFaces().addAll( // 1st triangle on mesh1 for layer1
-                    i * nCurvePts + j, 0,
-                    k * nCurvePts + j, 0,
-                    i * nCurvePts + j + 1, 0);
-              } else {
-                mesh.getFaces().addAll( // 1st triangle on mesh for outer surface
-                    i * nCurvePts + j, 0,
-                    k * nCurvePts + j, 0,
-                    i * nCurvePts + j + 1, 0);
-              }
-              if (surface.pts[j + 1][i].distance(uncutSurface[j + 1][i]) > dist2
-                  && surface.pts[j][k].distance(uncutSurface[j][k]) > dist2
-                  && surface.pts[j + 1][k].distance(uncutSurface[j + 1][k]) > dist2) {
-                mesh2.getFaces().addAll( // 2nd triangle on mesh2 for layer2
-                    i * nCurvePts + j + 1, 0,
-                    k * nCurvePts + j, 0,
-                    k * nCurvePts + j + 1, 0);
-              } else if (surface.pts[j + 1][i].distance(uncutSurface[j + 1][i]) > dist1
-                  && surface.pts[j][k].distance(uncutSurface[j][k]) > dist1
-                  && surface.pts[j + 1][k].distance(uncutSurface[j + 1][k]) > dist1) {
-                mesh1.getFaces().addAll( // 2nd triangle on mesh1 for layer1
-                    i * nCurvePts + j + 1, 0,
-                    k * nCurvePts + j, 0,
-                    k * nCurvePts + j + 1, 0);
-              } else {
-                mesh.getFaces().addAll( // 2nd triangle on mesh for outer surface
-                    i * nCurvePts + j + 1, 0,
-                    k * nCurvePts + j, 0,
-                    k * nCurvePts + j + 1, 0);
-              }
-            } else {        // no layers are used
-              mesh.getFaces().addAll(
-                  i * nCurvePts + j, 0,
-                  k * nCurvePts + j, 0,
-                  i * nCurvePts + j + 1, 0);
-              mesh.getFaces().addAll(
-                  i * nCurvePts + j + 1, 0,
-                  k * nCurvePts + j, 0,
-                  k * nCurvePts + j + 1, 0);
-            }
-          } else {        // outside wraps Counterclockwise on the outside
-            if (surface.isRender() && surface.getOutline().usesLayers()) {
-              if (surface.pts[j][k].distance(uncutSurface[j][k]) > dist2
-                  && surface.pts[j][i].distance(uncutSurface[j][i]) > dist2
-                  && surface.pts[j + 1][k].distance(uncutSurface[j + 1][k]) > dist2) {
-                mesh2.getFaces().addAll( // 1st triangle on mesh2 for layer2
-                    k * nCurvePts + j, 0,
-                    i * nCurvePts + j, 0,
-                    k * nCurvePts + j + 1, 0);
-              } else if (surface.pts[j][k].distance(uncutSurface[j][k]) > dist1
-                  && surface.pts[j][i].distance(uncutSurface[j][i]) > dist1
-                  && surface.pts[j + 1][k].distance(uncutSurface[j + 1][k]) > dist1) {
-                mesh1.getFaces().addAll( // 1st triangle on mesh1 for layer1
-                    k * nCurvePts + j, 0,
-                    i * nCurvePts + j, 0,
-                    k * nCurvePts + j + 1, 0);
-              } else {
-                mesh.getFaces().addAll( // 1st triangle on mesh for outer surface
-                    k * nCurvePts + j, 0,
-                    i * nCurvePts + j, 0,
-                    k * nCurvePts + j + 1, 0);
-              }
-              if (surface.pts[j + 1][k].distance(uncutSurface[j + 1][k]) > dist2
-                  && surface.pts[j][i].distance(uncutSurface[j][i]) > dist2
-                  && surface.pts[j + 1][i].distance(uncutSurface[j + 1][i]) > dist2) {
-                mesh2.getFaces().addAll( // 2nd triangle on mesh2 for layer2
-                    k * nCurvePts + j + 1, 0,
-                    i * nCurvePts + j, 0,
-                    i * nCurvePts + j + 1, 0);
-              } else if (surface.pts[j + 1][k].distance(uncutSurface[j + 1][k]) > dist1
-                  && surface.pts[j][i].distance(uncutSurface[j][i]) > dist1
-                  && surface.pts[j + 1][i].distance(uncutSurface[j + 1][i]) > dist1) {
-                mesh1.getFaces().addAll( // 2nd triangle on mesh1 for layer1
-                    k * nCurvePts + j + 1, 0,
-                    i * nCurvePts + j, 0,
-                    i * nCurvePts + j + 1, 0);
-              } else {
-                mesh.getFaces().addAll( // 2nd triangle on mesh for outer surface
-                    k * nCurvePts + j + 1, 0,
-                    i * nCurvePts + j, 0,
-                    i * nCurvePts + j + 1, 0);
-              }
-            } else {
-              mesh.getFaces().addAll( // Counterclockwise on the outside
-                  k * nCurvePts + j, 0,
-                  i * nCurvePts + j, 0,
-                  k * nCurvePts + j + 1, 0);
-              mesh.getFaces().addAll(
-                  k * nCurvePts + j + 1, 0,
-                  i * nCurvePts + j, 0,
-                  i * nCurvePts + j + 1, 0);
-            }
-          }
+      interactiveLevel = lods.length - 1;
+      for (int i = 0; i < lods.length; i++) {
+        lods[i].build(surface, layer);
+        if ((i < interactiveLevel) && (lods[i].nFaces <= INTERACTIVE_FACES)) {
+          interactiveLevel = i;
         }
       }
+      showLevel(interactive ? interactiveLevel : 0);
     } catch (Exception e) {
       // ignore ArrayIndexOutOfBoundsException and NullPointerException
     }
   }
 
+  /**
+   * Get every step'th index from 0 to n-1.
+   *
+   * @param n number of indices
+   * @param step number of indices to skip
+   * @param keepLast true: always include the last index (ends of the curve)
+   * @return array of indices
+   */
+  private static int[] subSample(int n, int step, boolean keepLast) {
+    int size = (n + step - 1) / step;
+    boolean addLast = keepLast && ((n - 1) % step != 0);
+    int[] idx = new int[addLast ? size + 1 : size];
+    for (int i = 0; i < size; i++) {
+      idx[i] = i * step;
+    }
+    if (addLast) {
+      idx[size] = n - 1;
+    }
+    return idx;
+  }
+
+  /**
+   * Fill one cell of the palette texture with the given color.
+   *
+   * @param index palette index (same as the layer number)
+   * @param color color
+   */
+  private static void setPaletteColor(int index, Color color) {
+    PixelWriter writer = palette.getPixelWriter();
+    for (int x = index * PALETTE_CELL; x < (index + 1) * PALETTE_CELL; x++) {
+      for (int y = 0; y < PALETTE_CELL; y++) {
+        writer.setColor(x, y, color);
+      }
+    }
+  }
+
+  /**
+   * Convert triangles of point indices to TriangleMesh faces (which are pairs
+   * of point index and TexCoord index). The TexCoord index is the layer of the
+   * face so that it gets that layer's color from the palette.
+   *
+   * @param faces 3 point indices for every triangle
+   * @param faceLayer layer of every triangle
+   * @return faces for a TriangleMesh
+   */
+  private static int[] toMeshFaces(int[] faces, byte[] faceLayer) {
+    int[] meshFaces = new int[faces.length * 2];
+    int n = 0;
+    for (int v = 0; v < faces.length; v++) {
+      meshFaces[n++] = faces[v];
+      meshFaces[n++] = faceLayer[v / 3];
+    }
+    return meshFaces;
+  }
+
 }
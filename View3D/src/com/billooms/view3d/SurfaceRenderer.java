@@ -0,0 +1,463 @@
+package com.billooms.view3d;
+
+import com.billooms.cutpoints.surface.Surface;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import javafx.geometry.Point3D;
+import javax.imageio.ImageIO;
+
+/**
+ * Software renderer that makes an image of a Surface without any window,
+ * JavaFX scene or display. This can run on any thread (not the EDT or the
+ * JavaFX thread) and can make images of any size, so it can be used for
+ * making catalog images in batch jobs.
+ *
+ * The image is split into square tiles which are rasterized in parallel, each
+ * with its own small depth buffer. The view is defined like the View3D window:
+ * the camera orbits around the spindle (lathe z-axis) and looks at the target
+ * point.
+ *
+ * @author Bill Ooms. Copyright 2015 Studio of Bill Ooms. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class SurfaceRenderer {
+
+  /** Default camera angle around the spindle in degrees (same as View3D). */
+  public final static double DEFAULT_AZIMUTH = -20.0;
+  /** Default camera angle above the horizon in degrees (same as View3D). */
+  public final static double DEFAULT_ELEVATION = 20.0;
+  /** Default camera distance from the target (same as View3D). */
+  public final static double DEFAULT_DISTANCE = 10.0;
+  /** Default vertical field of view in degrees (same as JavaFX). */
+  public final static double DEFAULT_FIELD_OF_VIEW = 30.0;
+  /** Default width and height of a tile in pixels. */
+  public final static int DEFAULT_TILE_SIZE = 256;
+  /** Default background color. */
+  private final static Color DEFAULT_BACKGROUND = Color.WHITE;
+
+  /** Lighting similar to the lights in the View3D window. */
+  private final static double AMBIENT = 0.5, KEY_LIGHT = 1.0, FILL_LIGHT = 0.6;
+  /** Closest distance from the camera that is drawn. */
+  private final static double NEAR_CLIP = 0.1;
+
+  /** Surface to be rendered. */
+  private final Surface surface;
+  /** Camera angle around the spindle in degrees. */
+  private double azimuth = DEFAULT_AZIMUTH;
+  /** Camera angle above the horizon in degrees. */
+  private double elevation = DEFAULT_ELEVATION;
+  /** Camera distance from the target. */
+  private double distance = DEFAULT_DISTANCE;
+  /** Vertical field of view in degrees. */
+  private double fieldOfView = DEFAULT_FIELD_OF_VIEW;
+  /** Point that the camera looks at (lathe coordinates). */
+  private Point3D target = new Point3D(0.0, 0.0, 0.0);
+  /** Width and height of a tile in pixels. */
+  private int tileSize = DEFAULT_TILE_SIZE;
+  /** Background color. */
+  private Color background = DEFAULT_BACKGROUND;
+
+  /**
+   * Construct a new renderer for the given surface.
+   *
+   * @param surface surface
+   */
+  public SurfaceRenderer(Surface surface) {
+    this.surface = surface;
+  }
+
+  /**
+   * Set the direction of the camera.
+   *
+   * @param azimuth camera angle around the spindle in degrees
+   * @param elevation camera angle above the horizon in degrees
+   */
+  public void setView(double azimuth, double elevation) {
+    this.azimuth = azimuth;
+    this.elevation = Math.max(-89.0, Math.min(89.0, elevation));
+  }
+
+  /**
+   * Set the camera distance from the target.
+   *
+   * @param distance camera distance (must be greater than 0.0)
+   */
+  public void setDistance(double distance) {
+    if (distance > 0.0) {
+      this.distance = distance;
+    }
+  }
+
+  /**
+   * Set the vertical field of view.
+   *
+   * @param deg field of view in degrees (between 1 and 179)
+   */
+  public void setFieldOfView(double deg) {
+    this.fieldOfView = Math.max(1.0, Math.min(179.0, deg));
+  }
+
+  /**
+   * Set the point that the camera looks at.
+   *
+   * @param target point in lathe coordinates
+   */
+  public void setTarget(Point3D target) {
+    this.target = target;
+  }
+
+  /**
+   * Set the width and height of the tiles.
+   *
+   * @param size tile size in pixels
+   */
+  public void setTileSize(int size) {
+    if (size > 0) {
+      this.tileSize = size;
+    }
+  }
+
+  /**
+   * Set the background color.
+   *
+   * @param color background color
+   */
+  public void setBackground(Color color) {
+    this.background = color;
+  }
+
+  /**
+   * Render the surface and write it to a png file.
+   *
+   * @param file png file
+   * @param width image width in pixels
+   * @param height image height in pixels
+   * @throws IOException if the file can't be written
+   */
+  public void writePNG(File file, int width, int height) throws IOException {
+    ImageIO.write(render(width, height), "png", file);
+  }
+
+  /**
+   * Render the surface into a new image.
+   *
+   * @param width image width in pixels
+   * @param height image height in pixels
+   * @return image
+   */
+  public BufferedImage render(int width, int height) {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Mesh mesh = new Mesh(width, height);
+    int tilesX = (width + tileSize - 1) / tileSize;
+    int tilesY = (height + tileSize - 1) / tileSize;
+    int[][] bins = mesh.binFaces(tilesX, tilesY);
+    IntStream.range(0, tilesX * tilesY).parallel().forEach((t) -> {
+      int x0 = (t % tilesX) * tileSize;
+      int y0 = (t / tilesX) * tileSize;
+      int w = Math.min(tileSize, width - x0);
+      int h = Math.min(tileSize, height - y0);
+      int[] rgb = mesh.rasterize(bins[t], x0, y0, w, h);
+      image.setRGB(x0, y0, w, h, rgb, 0, w);    // each tile writes its own pixels
+    });
+    return image;
+  }
+
+  /**
+   * The surface points projected onto the image along with the color of every
+   * triangle. This is made once for each image and shared by all tiles.
+   */
+  private class Mesh {
+
+    /** Number of points on the curve and number of sectors. */
+    private final int nCurvePts, nSects;
+    /** Screen x, screen y, and 1/depth of every surface point. */
+    private final float[] sx, sy, invZ;
+    /** RGB color of every triangle (or -1 if it can't be seen). */
+    private final int[] faceColor;
+
+    /**
+     * Project the surface onto an image of the given size and shade every
+     * triangle.
+     *
+     * @param width image width in pixels
+     * @param height image height in pixels
+     */
+    Mesh(int width, int height) {
+      // camera position and axes
+      double az = Math.toRadians(azimuth);
+      double el = Math.toRadians(elevation);
+      double[] eye = {
+        target.getX() + distance * Math.cos(el) * Math.sin(az),
+        target.getY() - distance * Math.cos(el) * Math.cos(az),
+        target.getZ() + distance * Math.sin(el)};
+      double[] fwd = normalize(new double[]{target.getX() - eye[0], target.getY() - eye[1], target.getZ() - eye[2]});
+      double[] right = normalize(cross(fwd, new double[]{0.0, 0.0, 1.0}));
+      double[] up = cross(right, fwd);
+      double focal = (height / 2.0) / Math.tan(Math.toRadians(fieldOfView) / 2.0);
+      // lights are fixed relative to the camera: upper right front and upper left
+      double[] key = normalize(new double[]{
+        right[0] + up[0] - fwd[0], right[1] + up[1] - fwd[1], right[2] + up[2] - fwd[2]});
+      double[] fill = normalize(new double[]{-right[0] + up[0], -right[1] + up[1], -right[2] + up[2]});
+
+      byte[][] layer;
+      Color[] colors = {
+        surface.getOutline().getColor(),
+        surface.getOutline().getColor1(),
+        surface.getOutline().getColor2()};
+      double[] p;
+      synchronized (surface) {    // don't let the surface change while copying points
+        nCurvePts = surface.getLength();
+        nSects = surface.numSectors();
+        layer = (surface.isRender() && surface.getOutline().usesLayers()) ? surface.findLayers() : null;
+        p = new double[nCurvePts * nSects * 3];
+        int n = 0;
+        for (int i = 0; i < nSects; i++) {
+          for (int j = 0; j < nCurvePts; j++) {
+            p[n++] = surface.pts[j][i].getX();
+            p[n++] = surface.pts[j][i].getY();
+            p[n++] = surface.pts[j][i].getZ();
+          }
+        }
+      }
+
+      // project every point onto the screen
+      int nPts = nCurvePts * nSects;
+      sx = new float[nPts];
+      sy = new float[nPts];
+      invZ = new float[nPts];
+      for (int v = 0; v < nPts; v++) {
+        double dx = p[3 * v] - eye[0];
+        double dy = p[3 * v + 1] - eye[1];
+        double dz = p[3 * v + 2] - eye[2];
+        double zc = dx * fwd[0] + dy * fwd[1] + dz * fwd[2];
+        if (zc < NEAR_CLIP) {
+          invZ[v] = 0.0f;     // behind the camera
+          continue;
+        }
+        sx[v] = (float) (width / 2.0 + focal * (dx * right[0] + dy * right[1] + dz * right[2]) / zc);
+        sy[v] = (float) (height / 2.0 - focal * (dx * up[0] + dy * up[1] + dz * up[2]) / zc);
+        invZ[v] = (float) (1.0 / zc);
+      }
+
+      // flat shade every triangle (two sided like CullFace.NONE)
+      faceColor = new int[2 * nSects * Math.max(0, nCurvePts - 1)];
+      int[] tri = new int[3];
+      for (int f = 0; f < faceColor.length; f++) {
+        triangle(f, tri);
+        if ((invZ[tri[0]] == 0.0f) || (invZ[tri[1]] == 0.0f) || (invZ[tri[2]] == 0.0f)) {
+          faceColor[f] = -1;
+          continue;
+        }
+        double[] a = {p[3 * tri[1]] - p[3 * tri[0]], p[3 * tri[1] + 1] - p[3 * tri[0] + 1], p[3 * tri[1] + 2] - p[3 * tri[0] + 2]};
+        double[] b = {p[3 * tri[2]] - p[3 * tri[0]], p[3 * tri[2] + 1] - p[3 * tri[0] + 1], p[3 * tri[2] + 2] - p[3 * tri[0] + 2]};
+        double[] norm = cross(a, b);
+        double len = Math.sqrt(dot(norm, norm));
+        double shade = AMBIENT;
+        if (len > 0.0) {
+          double toEye = (eye[0] - p[3 * tri[0]]) * norm[0] + (eye[1] - p[3 * tri[0] + 1]) * norm[1] + (eye[2] - p[3 * tri[0] + 2]) * norm[2];
+          double s = (toEye < 0.0) ? -1.0 / len : 1.0 / len;   // face the camera
+          shade += KEY_LIGHT * Math.max(0.0, s * dot(norm, key)) + FILL_LIGHT * Math.max(0.0, s * dot(norm, fill));
+        }
+        int l = 0;
+        if (layer != null) {    // deepest layer that all 3 points have reached
+          l = 2;
+          for (int v : tri) {
+            l = Math.min(l, layer[v % nCurvePts][v / nCurvePts]);
+          }
+        }
+        faceColor[f] = shadeColor(colors[l], Math.min(1.0, shade));
+      }
+    }
+
+    /**
+     * Sort the visible triangles into the tiles that they overlap.
+     *
+     * @param tilesX number of tiles across
+     * @param tilesY number of tiles down
+     * @return triangle numbers for each tile
+     */
+    int[][] binFaces(int tilesX, int tilesY) {
+      int[][] bins = new int[tilesX * tilesY][];
+      int[] counts = new int[bins.length];
+      for (int pass = 0; pass < 2; pass++) {    // first count, then fill
+        if (pass == 1) {
+          for (int t = 0; t < bins.length; t++) {
+            bins[t] = new int[counts[t]];
+            counts[t] = 0;
+          }
+        }
+        int[] tri = new int[3];
+        for (int f = 0; f < faceColor.length; f++) {
+          if (faceColor[f] == -1) {
+            continue;
+          }
+          triangle(f, tri);
+          float minX = Math.min(sx[tri[0]], Math.min(sx[tri[1]], sx[tri[2]]));
+          float maxX = Math.max(sx[tri[0]], Math.max(sx[tri[1]], sx[tri[2]]));
+          float minY = Math.min(sy[tri[0]], Math.min(sy[tri[1]], sy[tri[2]]));
+          float maxY = Math.max(sy[tri[0]], Math.max(sy[tri[1]], sy[tri[2]]));
+          int tx0 = Math.max(0, (int) Math.floor(minX / tileSize));
+          int tx1 = Math.min(tilesX - 1, (int) Math.floor(maxX / tileSize));
+          int ty0 = Math.max(0, (int) Math.floor(minY / tileSize));
+          int ty1 = Math.min(tilesY - 1, (int) Math.floor(maxY / tileSize));
+          for (int ty = ty0; ty <= ty1; ty++) {
+            for (int tx = tx0; tx <= tx1; tx++) {
+              int t = ty * tilesX + tx;
+              if (pass == 1) {
+                bins[t][counts[t]] = f;
+              }
+              counts[t]++;
+            }
+          }
+        }
+      }
+      return bins;
+    }
+
+    /**
+     * Get the point indices of the given triangle.
+     *
+     * @param f triangle number
+     * @param tri array for the 3 point indices
+     * @return the same array
+     */
+    private int[] triangle(int f, int[] tri) {
+      int quad = f / 2;
+      int i = quad / (nCurvePts - 1);
+      int j = quad % (nCurvePts - 1);
+      int k = (i + 1) % nSects;
+      if (f % 2 == 0) {
+        tri[0] = i * nCurvePts + j;
+        tri[1] = k * nCurvePts + j;
+        tri[2] = i * nCurvePts + j + 1;
+      } else {
+        tri[0] = i * nCurvePts + j + 1;
+        tri[1] = k * nCurvePts + j;
+        tri[2] = k * nCurvePts + j + 1;
+      }
+      return tri;
+    }
+
+    /**
+     * Rasterize the given triangles into one tile using a depth buffer.
+     *
+     * @param faces triangle numbers that overlap the tile
+     * @param x0 left pixel of the tile
+     * @param y0 top pixel of the tile
+     * @param w tile width
+     * @param h tile height
+     * @return RGB pixels of the tile
+     */
+    int[] rasterize(int[] faces, int x0, int y0, int w, int h) {
+      int[] rgb = new int[w * h];
+      float[] depth = new float[w * h];     // 1/z, so bigger is closer and 0 is far away
+      Arrays.fill(rgb, background.getRGB());
+      int[] tri = new int[3];
+      for (int f : faces) {
+        triangle(f, tri);
+        float ax = sx[tri[0]], ay = sy[tri[0]];
+        float bx = sx[tri[1]], by = sy[tri[1]];
+        float cx = sx[tri[2]], cy = sy[tri[2]];
+        float area = (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+        if (area == 0.0f) {
+          continue;
+        }
+        int px0 = Math.max(x0, (int) Math.floor(Math.min(ax, Math.min(bx, cx))));
+        int px1 = Math.min(x0 + w - 1, (int) Math.ceil(Math.max(ax, Math.max(bx, cx))));
+        int py0 = Math.max(y0, (int) Math.floor(Math.min(ay, Math.min(by, cy))));
+        int py1 = Math.min(y0 + h - 1, (int) Math.ceil(Math.max(ay, Math.max(by, cy))));
+        for (int y = py0; y <= py1; y++) {
+          float pcy = y + 0.5f;     // sample at the pixel center
+          for (int x = px0; x <= px1; x++) {
+            float pcx = x + 0.5f;
+            float w0 = ((bx - pcx) * (cy - pcy) - (by - pcy) * (cx - pcx)) / area;
+            float w1 = ((cx - pcx) * (ay - pcy) - (cy - pcy) * (ax - pcx)) / area;
+            float w2 = 1.0f - w0 - w1;
+            if ((w0 < 0.0f) || (w1 < 0.0f) || (w2 < 0.0f)) {
+              continue;     // outside the triangle
+            }
+            float z = w0 * invZ[tri[0]] + w1 * invZ[tri[1]] + w2 * invZ[tri[2]];
+            int n = (y - y0) * w + (x - x0);
+            if (z > depth[n]) {
+              depth[n] = z;
+              rgb[n] = faceColor[f];
+            }
+          }
+        }
+      }
+      return rgb;
+    }
+  }
+
+  /**
+   * Scale the given color by the shading.
+   *
+   * @param c color
+   * @param shade shading from 0.0 to 1.0
+   * @return shaded RGB
+   */
+  private static int shadeColor(Color c, double shade) {
+    int r = (int) Math.round(c.getRed() * shade);
+    int g = (int) Math.round(c.getGreen() * shade);
+    int b = (int) Math.round(c.getBlue() * shade);
+    return (r << 16) | (g << 8) | b;
+  }
+
+  /**
+   * Cross product of two vectors.
+   *
+   * @param a first vector
+   * @param b second vector
+   * @return a x b
+   */
+  private static double[] cross(double[] a, double[] b) {
+    return new double[]{
+      a[1] * b[2] - a[2] * b[1],
+      a[2] * b[0] - a[0] * b[2],
+      a[0] * b[1] - a[1] * b[0]};
+  }
+
+  /**
+   * Dot product of two vectors.
+   *
+   * @param a first vector
+   * @param b second vector
+   * @return a . b
+   */
+  private static double dot(double[] a, double[] b) {
+    return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+  }
+
+  /**
+   * Normalize the given vector (in place).
+   *
+   * @param a vector
+   * @return the same vector with length 1.0
+   */
+  private static double[] normalize(double[] a) {
+    double len = Math.sqrt(dot(a, a));
+    if (len > 0.0) {
+      a[0] /= len;
+      a[1] /= len;
+      a[2] /= len;
+    }
+    return a;
+  }
+
+}
@@ -10,6 +10,7 @@ import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.List;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.embed.swing.JFXPanel;
 import javafx.embed.swing.SwingFXUtils;
@@ -20,6 +21,7 @@ import javafx.scene.PointLight;
 import javafx.scene.Scene;
 import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
+import javafx.util.Duration;
 import javax.imageio.ImageIO;
 import javax.swing.JFileChooser;
 import javax.swing.JPanel;
@@ -87,6 +89,11 @@ public class View3DPanel extends JPanel implements PropertyChangeListener {
   private double mouseOldX;
   private double mouseOldY;
 
+  /** Time after the last camera movement before showing full detail. */
+  private final static double SETTLE_MILLIS = 250.0;
+  /** Show full detail when this runs out (created on the JavaFX thread). */
+  private PauseTransition settle;
+
   private final View3DTopComponent parent;
 
   /**
@@ -222,6 +229,10 @@ public class View3DPanel extends JPanel implements PropertyChangeListener {
    * @param root
    */
   private void handleMouse(Scene scene) {
+    settle = new PauseTransition(Duration.millis(SETTLE_MILLIS));
+    settle.setOnFinished(event -> {
+      bowl.setInteractive(false);   // camera has settled, so show full detail
+    });
     scene.setOnMousePressed(event -> {
       if (event.getClickCount() == 2) {	  // Double click to reset the view to the default
         resetView();
@@ -248,12 +259,23 @@ public class View3DPanel extends JPanel implements PropertyChangeListener {
       }
       mouseOldX = mousePosX;
       mouseOldY = mousePosY;
+      cameraMoved();
     });
     scene.setOnScroll(event -> {
       camera.setTranslateZ(camera.getTranslateZ() + event.getDeltaY() * MOUSE_SCROLL_SCALE);
+      cameraMoved();
     });
   }
 
+  /**
+   * Show the coarse level of detail while the camera is moving and restart the
+   * timer for going back to full detail.
+   */
+  private void cameraMoved() {
+    bowl.setInteractive(true);
+    settle.playFromStart();
+  }
+
   /**
    * Reset the view to the default.
    */
@@ -1,6 +1,7 @@
 package com.billooms.view3d;
 
 import com.billooms.cutpoints.surface.Surface;
+import com.billooms.cutpoints.surface.SwingRenderProgress;
 import com.billooms.cornfile.COrnFileDataObject;
 import com.billooms.cutpoints.CutPoints;
 import com.billooms.outline.Outline;
@@ -106,6 +107,7 @@ public final class View3DTopComponent extends TopComponent implements PropertyCh
       view3DPanel.snapShotButton.setEnabled(true);
       cutPtMgr = rootNode.getLookup().lookup(CutPoints.class);
       surface = new Surface(rootNode.getLookup().lookup(Outline.class), view3DPanel.inOutButton.isSelected(), cutPtMgr);
+      surface.setProgressFactory((max) -> new SwingRenderProgress(this, "Rendering the surface", max));
       if (isShowing()) {    // only do the 3D rendering if the View3D window is showing
         view3DPanel.updateAll();   // update the Bowl
         surface.addPropertyChangeListener(view3DPanel);   // view3DPanel listen for changes in the surface